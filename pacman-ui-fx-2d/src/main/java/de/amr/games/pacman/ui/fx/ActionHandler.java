@@ -23,6 +23,12 @@ public interface ActionHandler {
 
     void resetSimulationSpeed();
 
+    void fastForward();
+
+    void rewind(double seconds);
+
+    void toggleTurbo();
+
     void toggleAutopilot();
 
     void enterLevel(int newLevelNumber);
@@ -31,6 +37,8 @@ public interface ActionHandler {
 
     void toggleImmunity();
 
+    void toggleInputRecording();
+
     void addCredit();
 
     void startGame();
@@ -0,0 +1,165 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.ui.fx;
+
+import de.amr.games.pacman.model.GameVariant;
+import de.amr.games.pacman.ui.fx.HeadlessRunner.Report;
+import org.tinylog.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.IntSummaryStatistics;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs many independent autopilot games in parallel and aggregates their results.
+ * <p>
+ * The game controller of the core module is a process-wide singleton, so games cannot run concurrently inside one JVM.
+ * Instead, the games are split into batches and each batch is played by a separate {@link HeadlessRunner} process. A
+ * thread pool sized to the number of available cores keeps one process per worker running.
+ * <p>
+ * Usage: <code>AutopilotTournament [--variant=PACMAN|MS_PACMAN] [--games=100] [--workers=n] [--maxTicks=n]
+ * [--immune=false]</code>
+ *
+ * @author Armin Reichert
+ */
+public class AutopilotTournament {
+
+	/** Number of batches per worker, more batches give better load balancing but cost more process starts. */
+	private static final int BATCHES_PER_WORKER = 4;
+
+	public static void main(String[] args) throws InterruptedException {
+		var params = HeadlessRunner.parseNamedArgs(args);
+		var variant = GameVariant.valueOf(params.getOrDefault("variant", GameVariant.PACMAN.name()));
+		int games = Integer.parseInt(params.getOrDefault("games", "100"));
+		int workers = Integer.parseInt(params.getOrDefault("workers",
+				String.valueOf(Runtime.getRuntime().availableProcessors())));
+		long maxTicks = Long.parseLong(params.getOrDefault("maxTicks", String.valueOf(HeadlessRunner.DEFAULT_MAX_TICKS)));
+		boolean immune = Boolean.parseBoolean(params.getOrDefault("immune", "false"));
+
+		var tournament = new AutopilotTournament(variant, workers, maxTicks, immune);
+		long startTime = System.nanoTime();
+		var reports = tournament.play(games);
+		long nanos = System.nanoTime() - startTime;
+		Logger.info(summary(reports, nanos));
+	}
+
+	/**
+	 * @param reports game reports
+	 * @param nanos   wall clock time used for playing all games
+	 * @return summary text with score, level and death statistics and overall simulation speed
+	 */
+	public static String summary(List<Report> reports, long nanos) {
+		IntSummaryStatistics scores = reports.stream().mapToInt(Report::score).summaryStatistics();
+		IntSummaryStatistics levels = reports.stream().mapToInt(Report::levelReached).summaryStatistics();
+		IntSummaryStatistics deaths = reports.stream().mapToInt(Report::deaths).summaryStatistics();
+		long ticks = reports.stream().mapToLong(Report::ticks).sum();
+		double seconds = nanos / 1e9;
+		return String.format("%d games in %.1f sec (%.0f ticks/sec)%n"
+				+ "  score:  avg %.1f min %d max %d%n"
+				+ "  level:  avg %.2f min %d max %d%n"
+				+ "  deaths: avg %.2f total %d",
+				reports.size(), seconds, seconds > 0 ? ticks / seconds : 0,
+				scores.getAverage(), scores.getMin(), scores.getMax(),
+				levels.getAverage(), levels.getMin(), levels.getMax(),
+				deaths.getAverage(), deaths.getSum());
+	}
+
+	private final GameVariant variant;
+	private final int workers;
+	private final long maxTicks;
+	private final boolean immune;
+
+	public AutopilotTournament(GameVariant variant, int workers, long maxTicks, boolean immune) {
+		if (workers <= 0) {
+			throw new IllegalArgumentException("Number of workers must be positive but is " + workers);
+		}
+		this.variant = variant;
+		this.workers = workers;
+		this.maxTicks = maxTicks;
+		this.immune = immune;
+	}
+
+	/**
+	 * Plays the given number of games and waits until all are finished.
+	 *
+	 * @param games number of games
+	 * @return reports of all games
+	 * @throws InterruptedException if interrupted while waiting for the results
+	 */
+	public List<Report> play(int games) throws InterruptedException {
+		int batches = Math.min(games, workers * BATCHES_PER_WORKER);
+		var executor = Executors.newFixedThreadPool(workers);
+		try {
+			var futures = new ArrayList<Future<List<Report>>>(batches);
+			for (int i = 0; i < batches; ++i) {
+				int batchSize = games / batches + (i < games % batches ? 1 : 0);
+				futures.add(executor.submit(() -> playBatch(batchSize)));
+			}
+			var reports = new ArrayList<Report>(games);
+			for (var future : futures) {
+				try {
+					reports.addAll(future.get());
+				} catch (ExecutionException x) {
+					Logger.error(x.getCause(), "Batch failed");
+				}
+			}
+			return reports;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private List<Report> playBatch(int games) throws IOException, InterruptedException {
+		var process = new ProcessBuilder(runnerCommand(games)).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+		var reports = new ArrayList<Report>(games);
+		try (var reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.startsWith(Report.LINE_PREFIX)) {
+					reports.add(Report.fromLine(line));
+				}
+			}
+		}
+		int exitCode = process.waitFor();
+		if (exitCode != 0) {
+			Logger.warn("Runner process exited with code {}", exitCode);
+		}
+		return reports;
+	}
+
+	private List<String> runnerCommand(int games) {
+		var command = new ArrayList<String>();
+		command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+		command.add("-Dtinylog.level=warn");
+		String modulePath = System.getProperty("jdk.module.path");
+		String classPath = System.getProperty("java.class.path");
+		if (classPath != null && !classPath.isEmpty()) {
+			command.add("-cp");
+			command.add(classPath);
+		}
+		if (modulePath != null && !modulePath.isEmpty()) {
+			command.add("-p");
+			command.add(modulePath);
+			command.add("-m");
+			command.add(HeadlessRunner.class.getModule().getName() + "/" + HeadlessRunner.class.getName());
+		} else {
+			command.add(HeadlessRunner.class.getName());
+		}
+		command.add("--variant=" + variant.name());
+		command.add("--games=" + games);
+		command.add("--maxTicks=" + maxTicks);
+		command.add("--immune=" + immune);
+		command.add("--report=line");
+		return command;
+	}
+}
@@ -13,9 +13,12 @@ import de.amr.games.pacman.ui.fx.rendering2d.ArcadePalette;
 import de.amr.games.pacman.ui.fx.scene.GameScene;
 import de.amr.games.pacman.ui.fx.scene2d.GameScene2D;
 import de.amr.games.pacman.ui.fx.scene2d.HelpButton;
+import de.amr.games.pacman.ui.fx.scene2d.PlayScene2D;
+import de.amr.games.pacman.ui.fx.scene2d.SoftwareRenderView;
 import de.amr.games.pacman.ui.fx.util.FadingPane;
 import de.amr.games.pacman.ui.fx.util.FlashMessageView;
 import de.amr.games.pacman.ui.fx.util.ResourceManager;
+import de.amr.games.pacman.ui.fx.util.TextureAtlas;
 import de.amr.games.pacman.ui.fx.util.Theme;
 import de.amr.games.pacman.ui.fx.util.Ufx;
 import javafx.beans.binding.Bindings;
@@ -54,12 +57,18 @@ public class GamePage implements Page {
 	protected final StackPane layers = new StackPane();
 	protected final BorderPane gameSceneLayer = new BorderPane();
 	protected final BorderPane canvasContainer = new BorderPane();
-	protected final Canvas canvas = new Canvas();
+	protected final StackPane canvasLayers = new StackPane();
+	protected final Canvas backgroundCanvas = new Canvas();
+	protected final Canvas canvas = new Canvas(); // actors layer
+	protected final Canvas hudCanvas = new Canvas();
 	protected final Pane popupLayer = new Pane();
 	protected final FadingPane helpMenu = new FadingPane();
 	protected final HelpButton helpButton = new HelpButton();
 	protected final Signature signature = new Signature("Remake (2023) by ", "Armin Reichert");
 
+	protected SoftwareRenderView softwareRenderView; // created when software rendering is first used
+	protected boolean softwareRendering;
+
 	protected double scaling = 1.0;
 
 	public GamePage(PacManGames2dUI ui, Theme theme) {
@@ -70,7 +79,8 @@ public class GamePage implements Page {
 		gameSceneLayer.setCenter(canvasContainer);
 
 		canvasContainer.setBackground(ResourceManager.coloredBackground(GameScene2D.PY_CANVAS_BG_COLOR.get()));
-		canvasContainer.setCenter(canvas);
+		canvasLayers.getChildren().addAll(backgroundCanvas, canvas, hudCanvas);
+		canvasContainer.setCenter(canvasLayers);
 		canvasContainer.heightProperty().addListener((py, ov, nv) -> resize(scaling, false));
 
 		helpButton.setOnMouseClicked(e -> {
@@ -138,6 +148,7 @@ public class GamePage implements Page {
 				gameScene2D.setScaling(scaling);
 			}
 		});
+		prepareScaledImages(scaling);
 
 		if (this.scaling == scaling && !always) {
 			return;
@@ -147,8 +158,13 @@ public class GamePage implements Page {
 		double w = Math.round( (PacManGames2dApp.CANVAS_WIDTH_UNSCALED  + 25) * scaling );
 		double h = Math.round( (PacManGames2dApp.CANVAS_HEIGHT_UNSCALED + 15) * scaling );
 
-		canvas.setWidth(PacManGames2dApp.CANVAS_WIDTH_UNSCALED * scaling);
-		canvas.setHeight(PacManGames2dApp.CANVAS_HEIGHT_UNSCALED * scaling);
+		for (var layerCanvas : List.of(backgroundCanvas, canvas, hudCanvas)) {
+			layerCanvas.setWidth(PacManGames2dApp.CANVAS_WIDTH_UNSCALED * scaling);
+			layerCanvas.setHeight(PacManGames2dApp.CANVAS_HEIGHT_UNSCALED * scaling);
+		}
+		if (softwareRenderView != null) {
+			softwareRenderView.setScaling(scaling);
+		}
 
 		canvasContainer.setMinSize (w, h);
 		canvasContainer.setPrefSize(w, h);
@@ -172,6 +188,21 @@ public class GamePage implements Page {
 				canvas.getWidth(), canvas.getHeight(), borderWidth);
 	}
 
+	/**
+	 * Creates the pre-scaled copies of the spritesheet and maze images for the current game variant such that sprites
+	 * can be drawn without scaling. The cache keeps the images of the last scalings used.
+	 */
+	protected void prepareScaledImages(double scaling) {
+		var scaledImages = ui.scaledImages();
+		var spritesheet = ui.spritesheet();
+		scaledImages.prepare(scaling, spritesheet.source(), spritesheet.spritesRegion());
+		if (ui.game().variant() == GameVariant.PACMAN) {
+			TextureAtlas atlas = theme.get("atlas");
+			scaledImages.prepare(scaling, atlas.image(), atlas.region("pacman.flashingMaze"));
+			scaledImages.prepare(scaling, atlas.image(), atlas.region("pacman.emptyMaze"));
+		}
+	}
+
 	public void onGameSceneChanged() {
 		var config = ui.sceneConfig();
 		var currentGameScene = ui.currentScene().get();
@@ -190,7 +221,7 @@ public class GamePage implements Page {
 			signature.hide();
 		}
 		if (currentGameScene instanceof GameScene2D gameScene2D) {
-			gameScene2D.setCanvas(canvas);
+			gameScene2D.setCanvases(backgroundCanvas, canvas, hudCanvas);
 		}
 		resize(scaling, true);
 	}
@@ -222,7 +253,12 @@ public class GamePage implements Page {
 
 	public void render() {
 		ui.currentScene().ifPresent(gameScene -> {
-			if (gameScene instanceof GameScene2D gameScene2D) {
+			if (gameScene instanceof PlayScene2D playScene && PacManGames2dApp.PY_SOFTWARE_RENDERING.get()) {
+				setSoftwareRendering(true, playScene);
+				softwareRenderView.render(ui.snapshot(), playScene, GameScene2D.PY_CANVAS_BG_COLOR.get(),
+						ui.clock().getInterpolationAlpha());
+			} else if (gameScene instanceof GameScene2D gameScene2D) {
+				setSoftwareRendering(false, gameScene2D);
 				gameScene2D.draw();
 			}
 		});
@@ -230,10 +266,41 @@ public class GamePage implements Page {
 		popupLayer.setVisible(true);
 	}
 
+	/**
+	 * Switches between the canvas layers and the view showing the frames of the software renderer. The software renderer
+	 * only supports the play scene.
+	 */
+	protected void setSoftwareRendering(boolean enabled, GameScene2D gameScene2D) {
+		if (enabled == softwareRendering) {
+			return;
+		}
+		if (enabled && softwareRenderView == null) {
+			softwareRenderView = new SoftwareRenderView(ui);
+			softwareRenderView.setScaling(scaling);
+			canvasLayers.getChildren().add(softwareRenderView.root());
+		}
+		softwareRendering = enabled;
+		softwareRenderView.root().setVisible(enabled);
+		for (var layerCanvas : List.of(backgroundCanvas, canvas, hudCanvas)) {
+			layerCanvas.setVisible(!enabled);
+		}
+		if (!enabled) {
+			// canvas layers have not been updated while hidden
+			gameScene2D.invalidateLayers();
+		}
+		Logger.info("Software rendering {}", enabled ? "on" : "off");
+	}
+
+	public Optional<SoftwareRenderView> softwareRenderView() {
+		return Optional.ofNullable(softwareRenderView);
+	}
+
 	protected void handleKeyPressed(KeyEvent keyEvent) {
-		Keyboard.accept(keyEvent);
-		handleKeyboardInput();
-		Keyboard.clearState();
+		ui.clock().runExclusive(() -> {
+			Keyboard.accept(keyEvent);
+			handleKeyboardInput();
+			Keyboard.clearState();
+		});
 	}
 
 	protected void handleKeyboardInput() {
@@ -264,6 +331,16 @@ public class GamePage implements Page {
 			ui.changeSimulationSpeed(-5);
 		} else if (Keyboard.pressed(PacManGames2dApp.KEY_SIMULATION_NORMAL)) {
 			ui.resetSimulationSpeed();
+		} else if (Keyboard.pressed(PacManGames2dApp.KEY_FAST_FORWARD)) {
+			ui.fastForward();
+		} else if (Keyboard.pressed(PacManGames2dApp.KEY_TURBO)) {
+			ui.toggleTurbo();
+		} else if (Keyboard.pressed(PacManGames2dApp.KEY_RECORD_INPUT)) {
+			ui.toggleInputRecording();
+		} else if (Keyboard.pressed(PacManGames2dApp.KEY_REWIND)) {
+			ui.rewind(1);
+		} else if (Keyboard.pressed(PacManGames2dApp.KEY_REWIND_FORWARD)) {
+			ui.rewind(-1);
 		} else if (Keyboard.pressed(PacManGames2dApp.KEY_QUIT)) {
 			if (gameState != GameState.BOOT && gameState != GameState.INTRO) {
 				ui.restartIntro();
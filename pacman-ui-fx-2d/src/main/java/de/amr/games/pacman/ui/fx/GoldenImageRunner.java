@@ -0,0 +1,567 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.ui.fx;
+
+import de.amr.games.pacman.controller.GameController;
+import de.amr.games.pacman.controller.GameState;
+import de.amr.games.pacman.event.GameEvent;
+import de.amr.games.pacman.event.GameEventListener;
+import de.amr.games.pacman.event.GameStateChangeEvent;
+import de.amr.games.pacman.model.GameVariant;
+import de.amr.games.pacman.model.IllegalGameVariantException;
+import de.amr.games.pacman.ui.fx.rendering2d.PixelRaster;
+import de.amr.games.pacman.ui.fx.replay.StateHash;
+import de.amr.games.pacman.ui.fx.scene.GameScene;
+import de.amr.games.pacman.ui.fx.scene.GameSceneContext;
+import de.amr.games.pacman.ui.fx.scene.RenderSnapshot;
+import de.amr.games.pacman.ui.fx.scene2d.*;
+import de.amr.games.pacman.ui.fx.util.AnimationTicker;
+import de.amr.games.pacman.ui.fx.util.GameClock;
+import de.amr.games.pacman.ui.fx.util.PngWriter;
+import de.amr.games.pacman.ui.fx.util.ScaledImageCache;
+import de.amr.games.pacman.ui.fx.util.Spritesheet;
+import de.amr.games.pacman.ui.fx.util.TextureAtlas;
+import de.amr.games.pacman.ui.fx.util.Theme;
+import de.amr.games.pacman.ui.fx.util.Ufx;
+import javafx.application.Platform;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.media.AudioClip;
+import org.tinylog.Logger;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static de.amr.games.pacman.lib.Globals.RND;
+import static de.amr.games.pacman.lib.Globals.checkNotNull;
+
+/**
+ * Renders the 2D game scenes offscreen while stepping the game controller deterministically, and writes the frames as
+ * PNG images and/or compares them against stored golden images. This is used to prove that changes of the 2D rendering
+ * code do not change the rendered pixels.
+ * <p>
+ * Scenarios:
+ * <ul>
+ * <li><code>intro</code>: boot and intro scene</li>
+ * <li><code>play</code>: a game played by the autopilot</li>
+ * <li><code>cutscenes</code>: the cut scenes test (all intermissions)</li>
+ * </ul>
+ * The random generators of the game model and of the visual effects (see {@link Ufx#EFFECTS_RND}) are seeded before
+ * each scenario, so each run produces the same frames. Every
+ * <code>every</code>-th tick, the frame is rendered into an offscreen canvas (backend <code>canvas</code>) or, for the
+ * play scene, into a pixel raster by a {@link RasterDrawTarget} like the software renderer does (backend
+ * <code>raster</code>). For each frame, a hash of its pixels is written to <code>hashes.txt</code> in the output
+ * directory.
+ * <p>
+ * Backend <code>compare</code> renders each frame of the play scene both ways and compares the raster frame against
+ * the canvas frame instead of a golden image, so it checks that canvas and software rendering show the same content.
+ * The canvas frames are written and hashed.
+ * <p>
+ * When comparing, a pixel counts as different if its color differs from the golden pixel at the same position and from
+ * all golden pixels around it by more than <code>threshold</code> in any channel. Small shifts by one pixel, e.g. from
+ * different rounding, are therefore tolerated. A frame fails if more than <code>maxDiffPixels</code> pixels differ; a
+ * diff image is then written to the output directory. The process exits with code 1 if any frame failed.
+ * <p>
+ * With <code>--determinism=true</code>, each scenario is run twice and fails if the frame hashes of both runs differ,
+ * e.g. because some randomness is not seeded.
+ * <p>
+ * Usage: <code>GoldenImageRunner [--variant=PACMAN|MS_PACMAN] [--scenarios=intro,play,cutscenes] [--ticks=900]
+ * [--every=10] [--scaling=2] [--seed=42] [--backend=canvas|raster|compare] [--out=dir] [--golden=dir] [--threshold=24]
+ * [--maxDiffPixels=0] [--determinism=false]</code>
+ * <p>
+ * The JavaFX toolkit is needed for image decoding and canvas rendering. On machines without display, run with the
+ * headless Monocle platform (<code>-Dglass.platform=Monocle -Dmonocle.platform=Headless -Dprism.order=sw</code>).
+ *
+ * @author Armin Reichert
+ */
+public class GoldenImageRunner implements GameSceneContext, GameEventListener {
+
+	/**
+	 * @param scenario    scenario name
+	 * @param frames      number of rendered frames
+	 * @param compared    number of frames compared against a golden image
+	 * @param mismatches  number of frames differing from their golden image
+	 * @param hash        hash over all frame hashes
+	 * @param frameHashes tick and pixel hash of each rendered frame
+	 */
+	public record Result(String scenario, int frames, int compared, int mismatches, long hash,
+			List<String> frameHashes) {
+
+		@Override
+		public String toString() {
+			return String.format("%s: %d frames, hash: %016x, compared: %d, mismatches: %d", scenario, frames, hash,
+					compared, mismatches);
+		}
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+		var params = HeadlessRunner.parseNamedArgs(args);
+		var variant = GameVariant.valueOf(params.getOrDefault("variant", GameVariant.PACMAN.name()));
+		var scenarios = List.of(params.getOrDefault("scenarios", "intro,play,cutscenes").split(","));
+		boolean determinism = Boolean.parseBoolean(params.getOrDefault("determinism", "false"));
+		var failures = new AtomicInteger();
+		var done = new CountDownLatch(1);
+		Platform.startup(() -> {
+			try {
+				GameController.create(variant);
+				var runner = new GoldenImageRunner(params);
+				for (var scenario : scenarios) {
+					var result = runner.run(scenario.trim());
+					Logger.info(result);
+					failures.addAndGet(result.mismatches());
+					if (determinism && !isRepeatedBy(result, runner.run(scenario.trim()))) {
+						failures.incrementAndGet();
+					}
+				}
+			} catch (Exception x) {
+				Logger.error(x, "Golden image run failed");
+				failures.incrementAndGet();
+			} finally {
+				done.countDown();
+			}
+		});
+		done.await();
+		Platform.exit();
+		System.exit(failures.get() > 0 ? 1 : 0);
+	}
+
+	/**
+	 * @return if the second run rendered the same frames as the first one
+	 */
+	private static boolean isRepeatedBy(Result first, Result second) {
+		var hashes = first.frameHashes();
+		var repeatedHashes = second.frameHashes();
+		for (int i = 0; i < Math.min(hashes.size(), repeatedHashes.size()); ++i) {
+			if (!hashes.get(i).equals(repeatedHashes.get(i))) {
+				Logger.warn("{}: frame hashes of repeated run differ, first run: {}, repeated run: {}", first.scenario(),
+						hashes.get(i), repeatedHashes.get(i));
+				return false;
+			}
+		}
+		if (hashes.size() != repeatedHashes.size()) {
+			Logger.warn("{}: repeated run rendered {} frames instead of {}", first.scenario(), repeatedHashes.size(),
+					hashes.size());
+			return false;
+		}
+		Logger.info("{}: repeated run rendered the same frames", first.scenario());
+		return true;
+	}
+
+	// user actions are ignored in golden image runs
+	private static final ActionHandler NO_ACTIONS = new ActionHandler() {
+		@Override public void showFlashMessage(String message, Object... args) {}
+		@Override public void showFlashMessageSeconds(double seconds, String message, Object... args) {}
+		@Override public void restartIntro() {}
+		@Override public void reboot() {}
+		@Override public void togglePaused() {}
+		@Override public void oneSimulationStep() {}
+		@Override public void tenSimulationSteps() {}
+		@Override public void changeSimulationSpeed(int delta) {}
+		@Override public void resetSimulationSpeed() {}
+		@Override public void fastForward() {}
+		@Override public void rewind(double seconds) {}
+		@Override public void toggleTurbo() {}
+		@Override public void toggleAutopilot() {}
+		@Override public void enterLevel(int newLevelNumber) {}
+		@Override public void startLevelTestMode() {}
+		@Override public void toggleImmunity() {}
+		@Override public void toggleInputRecording() {}
+		@Override public void addCredit() {}
+		@Override public void startGame() {}
+		@Override public void switchGameVariant() {}
+		@Override public void startCutscenesTest() {}
+		@Override public void cheatEatAllPellets() {}
+		@Override public void cheatAddLives() {}
+		@Override public void cheatEnterNextLevel() {}
+		@Override public void cheatKillAllEatableGhosts() {}
+	};
+
+	private final int ticks;
+	private final int every;
+	private final double scaling;
+	private final long seed;
+	private final boolean rasterBackend;
+	private final boolean compareBackends;
+	private final Path outDir;
+	private final Path goldenDir;
+	private final int threshold;
+	private final int maxDiffPixels;
+
+	private final Theme theme;
+	private final Map<String, GameScene> scenes;
+	private final SoundHandler soundHandler;
+	private final GameClock clock = new GameClock(); // not running, interpolation alpha is always 1
+	private final ScaledImageCache scaledImages = new ScaledImageCache();
+	private final RenderSnapshot snapshot = new RenderSnapshot();
+	private final RenderSnapshot.FoodTracker foodTracker = new RenderSnapshot.FoodTracker();
+	private final Canvas canvas;
+	private final WritableImage canvasImage;
+	private final int[] pixels;
+	private final RasterDrawTarget rasterTarget = new RasterDrawTarget();
+	private final int[] rasterPixels;
+	private GameScene currentScene;
+
+	public GoldenImageRunner(Map<String, String> params) {
+		checkNotNull(params);
+		ticks = Integer.parseInt(params.getOrDefault("ticks", "900"));
+		every = Integer.parseInt(params.getOrDefault("every", "10"));
+		scaling = Double.parseDouble(params.getOrDefault("scaling", "2"));
+		seed = Long.parseLong(params.getOrDefault("seed", "42"));
+		var backend = params.getOrDefault("backend", "canvas");
+		if (!List.of("canvas", "raster", "compare").contains(backend)) {
+			throw new IllegalArgumentException("Unknown backend: " + backend);
+		}
+		rasterBackend = "raster".equals(backend);
+		compareBackends = "compare".equals(backend);
+		outDir = params.containsKey("out") ? Path.of(params.get("out")) : null;
+		goldenDir = params.containsKey("golden") ? Path.of(params.get("golden")) : null;
+		threshold = Integer.parseInt(params.getOrDefault("threshold", "24"));
+		maxDiffPixels = Integer.parseInt(params.getOrDefault("maxDiffPixels", "0"));
+		if (ticks <= 0 || every <= 0 || scaling <= 0) {
+			throw new IllegalArgumentException("Ticks, frame interval and scaling must be positive");
+		}
+
+		theme = new PacManGames2dApp().createTheme();
+		scenes = createScenes(game().variant());
+		soundHandler = new SoundHandler(theme) {
+			@Override
+			public void ensureSirenStarted(GameVariant gameVariant, int sirenIndex) {
+				// silent
+			}
+
+			@Override
+			public void ensureLoop(AudioClip clip, int repetitions) {
+				// silent
+			}
+		};
+		int width = (int) Math.ceil(PacManGames2dApp.CANVAS_WIDTH_UNSCALED * scaling);
+		int height = (int) Math.ceil(PacManGames2dApp.CANVAS_HEIGHT_UNSCALED * scaling);
+		canvas = new Canvas(width, height);
+		canvasImage = new WritableImage(width, height);
+		pixels = new int[width * height];
+		rasterPixels = new int[width * height];
+
+		var spritesheet = spritesheet();
+		scaledImages.prepare(scaling, spritesheet.source(), spritesheet.spritesRegion());
+		if (game().variant() == GameVariant.PACMAN) {
+			TextureAtlas atlas = theme.get("atlas");
+			scaledImages.prepare(scaling, atlas.image(), atlas.region("pacman.flashingMaze"));
+			scaledImages.prepare(scaling, atlas.image(), atlas.region("pacman.emptyMaze"));
+		}
+		rasterTarget.setRaster(new PixelRaster(SoftwareRenderView.WIDTH, SoftwareRenderView.HEIGHT));
+		GameController.it().addListener(this);
+	}
+
+	private static Map<String, GameScene> createScenes(GameVariant variant) {
+		return switch (variant) {
+		case MS_PACMAN -> Map.of(
+			"boot",   new BootScene(),
+			"intro",  new MsPacManIntroScene(),
+			"credit", new MsPacManCreditScene(),
+			"play",   new PlayScene2D(),
+			"cut1",   new MsPacManCutscene1(),
+			"cut2",   new MsPacManCutscene2(),
+			"cut3",   new MsPacManCutscene3()
+		);
+		case PACMAN -> Map.of(
+			"boot",   new BootScene(),
+			"intro",  new PacManIntroScene(),
+			"credit", new PacManCreditScene(),
+			"play",   new PlayScene2D(),
+			"cut1",   new PacManCutscene1(),
+			"cut2",   new PacManCutscene2(),
+			"cut3",   new PacManCutscene3()
+		);
+		default -> throw new IllegalGameVariantException(variant);
+		};
+	}
+
+	/**
+	 * Runs a scenario, renders its frames and writes and/or compares them.
+	 *
+	 * @param scenario scenario name
+	 * @return scenario result
+	 * @throws IOException if reading or writing images fails
+	 */
+	public Result run(String scenario) throws IOException {
+		var gc = GameController.it();
+		gc.setAutoControlled(false);
+		gc.setImmune(false);
+		RND.setSeed(seed);
+		Ufx.EFFECTS_RND.setSeed(seed);
+		switch (scenario) {
+		case "intro" -> gc.restart(GameState.BOOT);
+		case "play" -> {
+			gc.restart(GameState.INTRO);
+			gc.addCredit();
+			gc.setAutoControlled(true);
+			gc.startPlaying();
+		}
+		case "cutscenes" -> gc.startCutscenesTest(1);
+		default -> throw new IllegalArgumentException("Unknown scenario: " + scenario);
+		}
+		updateScene(true);
+
+		Path scenarioOut = outDir != null ? outDir.resolve(game().variant().name()).resolve(scenario) : null;
+		Path scenarioGolden = goldenDir != null ? goldenDir.resolve(game().variant().name()).resolve(scenario) : null;
+		if (scenarioOut != null) {
+			Files.createDirectories(scenarioOut);
+		}
+		var hashes = new ArrayList<String>();
+		int frames = 0, compared = 0, mismatches = 0;
+		long hash = 0;
+		for (int tick = 1; tick <= ticks; ++tick) {
+			gc.update();
+			if (currentScene != null) {
+				currentScene.update();
+			}
+			AnimationTicker.tick();
+			snapshot.capture(gc, foodTracker);
+			if (tick % every != 0 || !(currentScene instanceof GameScene2D scene2D)) {
+				continue;
+			}
+			renderFrame(scene2D);
+			if (compareBackends && scene2D instanceof PlayScene2D playScene) {
+				renderRaster(playScene, rasterPixels);
+				int diffPixels = countDiffPixels(rasterPixels, pixels, scenarioOut, String.format("raster-diff-%06d.png", tick));
+				if (diffPixels > maxDiffPixels) {
+					++mismatches;
+					Logger.warn("{} tick {}: {} pixels of raster frame differ from canvas frame", scenario, tick, diffPixels);
+				}
+			}
+			++frames;
+			long frameHash = pixelHash();
+			hash = StateHash.combine(hash, frameHash);
+			hashes.add(String.format("%d %016x", tick, frameHash));
+			String frameName = String.format("frame-%06d.png", tick);
+			if (scenarioOut != null) {
+				PngWriter.write(scenarioOut.resolve(frameName), width(), height(), pixels);
+			}
+			if (scenarioGolden != null && Files.exists(scenarioGolden.resolve(frameName))) {
+				++compared;
+				int diffPixels = compare(scenarioGolden.resolve(frameName), scenarioOut, tick);
+				if (diffPixels > maxDiffPixels) {
+					++mismatches;
+					Logger.warn("{} tick {}: {} pixels differ from golden image", scenario, tick, diffPixels);
+				}
+			}
+		}
+		if (scenarioOut != null) {
+			try (var out = new PrintWriter(Files.newBufferedWriter(scenarioOut.resolve("hashes.txt")))) {
+				hashes.forEach(out::println);
+			}
+		}
+		return new Result(scenario, frames, compared, mismatches, hash, List.copyOf(hashes));
+	}
+
+	private int width() {
+		return (int) canvas.getWidth();
+	}
+
+	private int height() {
+		return (int) canvas.getHeight();
+	}
+
+	private void renderFrame(GameScene2D scene2D) {
+		if (rasterBackend && scene2D instanceof PlayScene2D playScene) {
+			renderRaster(playScene, pixels);
+		} else {
+			scene2D.draw();
+			canvas.snapshot(null, canvasImage);
+			canvasImage.getPixelReader().getPixels(0, 0, width(), height(), PixelFormat.getIntArgbInstance(), pixels, 0,
+					width());
+		}
+	}
+
+	// draws the layers in the same order as the canvas layers are stacked, like the software renderer does
+	private void renderRaster(PlayScene2D playScene, int[] target) {
+		var raster = rasterTarget.raster();
+		raster.clear(PixelRaster.argb(GameScene2D.PY_CANVAS_BG_COLOR.get()) | 0xFF000000);
+		playScene.drawBackground(rasterTarget, snapshot);
+		playScene.drawSceneContent(rasterTarget, snapshot, 1);
+		playScene.drawHUD(rasterTarget, snapshot);
+		upscaleRaster(raster, target);
+	}
+
+	// nearest neighbour, like drawing the unscaled raster into the scaled canvas without smoothing
+	private void upscaleRaster(PixelRaster raster, int[] target) {
+		int w = width(), h = height();
+		int[] src = raster.pixels();
+		for (int y = 0; y < h; ++y) {
+			int sy = Math.min((int) (y / scaling), raster.height() - 1);
+			for (int x = 0; x < w; ++x) {
+				int sx = Math.min((int) (x / scaling), raster.width() - 1);
+				target[y * w + x] = src[sy * raster.width() + sx];
+			}
+		}
+	}
+
+	private long pixelHash() {
+		long h = 0;
+		for (int p : pixels) {
+			h = StateHash.combine(h, p);
+		}
+		return h;
+	}
+
+	/**
+	 * @return number of pixels that differ perceptibly from the golden image, all pixels if the sizes differ
+	 */
+	private int compare(Path goldenFile, Path diffDir, int tick) throws IOException {
+		var golden = new Image(goldenFile.toUri().toString());
+		int w = width(), h = height();
+		if (golden.isError() || (int) golden.getWidth() != w || (int) golden.getHeight() != h) {
+			Logger.warn("Golden image {} cannot be read or has wrong size", goldenFile);
+			return w * h;
+		}
+		var goldenPixels = new int[w * h];
+		golden.getPixelReader().getPixels(0, 0, w, h, PixelFormat.getIntArgbInstance(), goldenPixels, 0, w);
+		return countDiffPixels(pixels, goldenPixels, diffDir, String.format("diff-%06d.png", tick));
+	}
+
+	/**
+	 * @return number of pixels that differ perceptibly from the reference pixels, a diff image is written if too many
+	 */
+	private int countDiffPixels(int[] framePixels, int[] referencePixels, Path diffDir, String diffName)
+			throws IOException {
+		int w = width(), h = height();
+		var diff = new int[w * h];
+		int count = 0;
+		for (int y = 0; y < h; ++y) {
+			for (int x = 0; x < w; ++x) {
+				int i = y * w + x;
+				if (differsFromNeighborhood(framePixels[i], referencePixels, w, h, x, y)) {
+					diff[i] = 0xFFFF0000;
+					++count;
+				} else {
+					diff[i] = 0xFF000000 | (framePixels[i] >> 2 & 0x3F3F3F); // darkened
+				}
+			}
+		}
+		if (count > maxDiffPixels && diffDir != null) {
+			PngWriter.write(diffDir.resolve(diffName), w, h, diff);
+		}
+		return count;
+	}
+
+	private boolean differsFromNeighborhood(int p, int[] golden, int w, int h, int x, int y) {
+		if (!differs(p, golden[y * w + x])) {
+			return false;
+		}
+		for (int ny = Math.max(y - 1, 0); ny <= Math.min(y + 1, h - 1); ++ny) {
+			for (int nx = Math.max(x - 1, 0); nx <= Math.min(x + 1, w - 1); ++nx) {
+				if (!differs(p, golden[ny * w + nx])) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private boolean differs(int p, int q) {
+		for (int shift = 0; shift < 32; shift += 8) {
+			if (Math.abs((p >>> shift & 0xFF) - (q >>> shift & 0xFF)) > threshold) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// Scene selection as in the user interface
+
+	private void updateScene(boolean reload) {
+		var gc = GameController.it();
+		var nextScene = switch (gc.state()) {
+			case BOOT              -> scenes.get("boot");
+			case CREDIT            -> scenes.get("credit");
+			case INTRO             -> scenes.get("intro");
+			case INTERMISSION      -> scenes.get("cut" + game().level().get().intermissionNumber);
+			case INTERMISSION_TEST -> scenes.get("cut" + gc.intermissionTestNumber);
+			default                -> scenes.get("play");
+		};
+		if (reload || nextScene != currentScene) {
+			if (currentScene != null) {
+				currentScene.end();
+			}
+			currentScene = nextScene;
+			currentScene.setContext(this);
+			if (currentScene instanceof GameScene2D scene2D) {
+				scene2D.setCanvas(canvas);
+				scene2D.setScaling(scaling);
+			}
+			currentScene.init();
+		}
+	}
+
+	@Override
+	public void onGameEvent(GameEvent e) {
+		GameEventListener.super.onGameEvent(e);
+		if (currentScene != null) {
+			currentScene.onGameEvent(e);
+		}
+	}
+
+	@Override
+	public void onGameStateChange(GameStateChangeEvent e) {
+		updateScene(false);
+	}
+
+	@Override
+	public void onUnspecifiedChange(GameEvent e) {
+		updateScene(true);
+	}
+
+	@Override
+	public void onLevelCreated(GameEvent e) {
+		e.game.level().ifPresent(level -> PacManGames2dUI.createCreatureAnimations(level, spritesheet()));
+		updateScene(true);
+	}
+
+	// GameSceneContext
+
+	@Override
+	public ActionHandler actionHandler() {
+		return NO_ACTIONS;
+	}
+
+	@Override
+	public Theme theme() {
+		return theme;
+	}
+
+	@Override
+	public Spritesheet spritesheet() {
+		return game().variant() == GameVariant.MS_PACMAN ? theme.get("mspacman.spritesheet") : theme.get("pacman.spritesheet");
+	}
+
+	@Override
+	public SoundHandler soundHandler() {
+		return soundHandler;
+	}
+
+	@Override
+	public GameClock clock() {
+		return clock;
+	}
+
+	@Override
+	public ScaledImageCache scaledImages() {
+		return scaledImages;
+	}
+
+	@Override
+	public RenderSnapshot snapshot() {
+		return snapshot;
+	}
+}
@@ -0,0 +1,200 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.ui.fx;
+
+import de.amr.games.pacman.controller.GameController;
+import de.amr.games.pacman.controller.GameState;
+import de.amr.games.pacman.event.GameEvent;
+import de.amr.games.pacman.event.GameEventListener;
+import de.amr.games.pacman.event.GameStateChangeEvent;
+import de.amr.games.pacman.model.GameLevel;
+import de.amr.games.pacman.model.GameModel;
+import de.amr.games.pacman.model.GameVariant;
+import org.tinylog.Logger;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Runs the game simulation without any user interface (no stage, canvas or audio) as fast as possible. Pac-Man is
+ * steered by the autopilot, intermission scenes are skipped.
+ * <p>
+ * Usage: <code>HeadlessRunner [--variant=PACMAN|MS_PACMAN] [--games=1] [--maxTicks=n] [--immune=false]
+ * [--report=log|line]</code>. With <code>--report=line</code>, each game report is written as a single line to standard
+ * output (see {@link Report#toLine()}).
+ *
+ * @author Armin Reichert
+ */
+public class HeadlessRunner implements GameEventListener {
+
+	/** Default limit: one hour of simulated game time. */
+	public static final long DEFAULT_MAX_TICKS = 60L * 60 * GameModel.FPS;
+
+	public record Report(GameVariant variant, long ticks, long nanos, int levelsCompleted, int levelReached, int score,
+			int deaths) {
+
+		public static final String LINE_PREFIX = "REPORT";
+
+		/**
+		 * @param line line as produced by {@link #toLine()}
+		 * @return report parsed from the line
+		 */
+		public static Report fromLine(String line) {
+			var fields = line.split(",");
+			if (fields.length != 8 || !LINE_PREFIX.equals(fields[0])) {
+				throw new IllegalArgumentException("Not a report line: " + line);
+			}
+			return new Report(GameVariant.valueOf(fields[1]), Long.parseLong(fields[2]), Long.parseLong(fields[3]),
+					Integer.parseInt(fields[4]), Integer.parseInt(fields[5]), Integer.parseInt(fields[6]),
+					Integer.parseInt(fields[7]));
+		}
+
+		/**
+		 * @return machine-readable representation of this report, comma-separated
+		 */
+		public String toLine() {
+			return String.join(",", LINE_PREFIX, variant.name(), String.valueOf(ticks), String.valueOf(nanos),
+					String.valueOf(levelsCompleted), String.valueOf(levelReached), String.valueOf(score), String.valueOf(deaths));
+		}
+
+		public double ticksPerSecond() {
+			return nanos > 0 ? ticks * 1e9 / nanos : 0;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s: %d ticks in %.2f sec (%.0f ticks/sec), levels completed: %d, level reached: %d, score: %d, deaths: %d",
+					variant, ticks, nanos / 1e9, ticksPerSecond(), levelsCompleted, levelReached, score, deaths);
+		}
+	}
+
+	public static void main(String[] args) {
+		var params = parseNamedArgs(args);
+		var variant = GameVariant.valueOf(params.getOrDefault("variant", GameVariant.PACMAN.name()));
+		int games = Integer.parseInt(params.getOrDefault("games", "1"));
+		long maxTicks = Long.parseLong(params.getOrDefault("maxTicks", String.valueOf(DEFAULT_MAX_TICKS)));
+		boolean immune = Boolean.parseBoolean(params.getOrDefault("immune", "false"));
+		boolean lineReport = "line".equals(params.get("report"));
+
+		GameController.create(variant);
+		var runner = new HeadlessRunner(maxTicks, immune);
+		long totalTicks = 0;
+		long totalNanos = 0;
+		for (int i = 0; i < games; ++i) {
+			var report = runner.runGame();
+			if (lineReport) {
+				System.out.println(report.toLine());
+			} else {
+				Logger.info("Game #{} {}", i + 1, report);
+			}
+			totalTicks += report.ticks();
+			totalNanos += report.nanos();
+		}
+		if (games > 1) {
+			Logger.info("{} games, {} ticks, {} ticks/sec", games, totalTicks,
+					String.format("%.0f", totalNanos > 0 ? totalTicks * 1e9 / totalNanos : 0));
+		}
+	}
+
+	/**
+	 * Parses arguments of the form <code>--name=value</code> like JavaFX named application parameters.
+	 */
+	static Map<String, String> parseNamedArgs(String[] args) {
+		var params = new HashMap<String, String>();
+		for (var arg : args) {
+			if (arg.startsWith("--") && arg.indexOf('=') > 2) {
+				int sep = arg.indexOf('=');
+				params.put(arg.substring(2, sep), arg.substring(sep + 1));
+			} else {
+				Logger.warn("Ignored argument '{}'", arg);
+			}
+		}
+		return params;
+	}
+
+	private final long maxTicks;
+	private final boolean immune;
+	private boolean listening;
+	private boolean gameOver;
+	private int levelsCompleted;
+	private int deaths;
+
+	/**
+	 * @param maxTicks maximum number of ticks a game may run
+	 * @param immune   if Pac-Man is immune against ghost attacks
+	 */
+	public HeadlessRunner(long maxTicks, boolean immune) {
+		if (maxTicks <= 0) {
+			throw new IllegalArgumentException("Maximum number of ticks must be positive but is " + maxTicks);
+		}
+		this.maxTicks = maxTicks;
+		this.immune = immune;
+	}
+
+	/**
+	 * Plays a complete game (until game over or the tick limit is reached) using the existing game controller.
+	 *
+	 * @return report about the game
+	 */
+	public Report runGame() {
+		var gc = GameController.it();
+		if (!listening) {
+			gc.addListener(this);
+			listening = true;
+		}
+		gc.setAutoControlled(true);
+		gc.setImmune(immune);
+		gameOver = false;
+		levelsCompleted = 0;
+		deaths = 0;
+		gc.restart(GameState.INTRO);
+
+		long ticks = 0;
+		long startTime = System.nanoTime();
+		while (!gameOver && ticks < maxTicks) {
+			driveStateMachine(gc);
+			gc.update();
+			++ticks;
+		}
+		long nanos = System.nanoTime() - startTime;
+
+		var game = gc.game();
+		int levelReached = game.level().map(GameLevel::number).orElse(0);
+		return new Report(game.variant(), ticks, nanos, levelsCompleted, levelReached, game.score().points(), deaths);
+	}
+
+	/**
+	 * Does what the user and the game scenes would do: skip boot and intro, insert coin and start, end intermissions.
+	 */
+	private void driveStateMachine(GameController gc) {
+		switch (gc.state()) {
+		case BOOT -> gc.terminateCurrentState();
+		case INTRO, CREDIT -> {
+			if (!gc.hasCredit()) {
+				gc.addCredit();
+			}
+			gc.startPlaying();
+		}
+		case INTERMISSION -> gc.state().timer().expire();
+		default -> {
+			// let the game run
+		}
+		}
+	}
+
+	@Override
+	public void onGameStateChange(GameStateChangeEvent e) {
+		if (e.newState == GameState.LEVEL_COMPLETE) {
+			++levelsCompleted;
+		} else if (e.newState == GameState.GAME_OVER) {
+			gameOver = true;
+		}
+	}
+
+	@Override
+	public void onPacDied(GameEvent e) {
+		++deaths;
+	}
+}
@@ -8,23 +8,30 @@ import de.amr.games.pacman.controller.GameController;
 import de.amr.games.pacman.lib.Globals;
 import de.amr.games.pacman.model.GameModel;
 import de.amr.games.pacman.ui.fx.rendering2d.ArcadePalette;
+import de.amr.games.pacman.ui.fx.rendering2d.GlyphAtlas;
 import de.amr.games.pacman.ui.fx.rendering2d.mspacman.SpritesheetMsPacManGame;
 import de.amr.games.pacman.ui.fx.rendering2d.pacman.SpritesheetPacManGame;
 import de.amr.games.pacman.ui.fx.scene.GameScene;
 import de.amr.games.pacman.ui.fx.scene2d.*;
+import de.amr.games.pacman.ui.fx.util.ResourceLoader;
 import de.amr.games.pacman.ui.fx.util.ResourceManager;
+import de.amr.games.pacman.ui.fx.util.TextureAtlas;
 import de.amr.games.pacman.ui.fx.util.Theme;
 import javafx.application.Application;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.SimpleBooleanProperty;
+import javafx.geometry.Rectangle2D;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyCodeCombination;
 import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontWeight;
 import javafx.stage.Stage;
 import org.tinylog.Logger;
 
 import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
 
 import static de.amr.games.pacman.ui.fx.input.Keyboard.*;
 
@@ -40,6 +47,8 @@ public class PacManGames2dApp extends Application implements ResourceManager {
 	public static final int CANVAS_HEIGHT_UNSCALED = GameModel.TILES_Y * Globals.TS; // 288
 
 	public static final BooleanProperty PY_SHOW_DEBUG_INFO    = new SimpleBooleanProperty(false);
+	public static final BooleanProperty PY_RECORD_INPUT       = new SimpleBooleanProperty(false);
+	public static final BooleanProperty PY_SOFTWARE_RENDERING = new SimpleBooleanProperty(false);
 
 	public static final KeyCodeCombination KEY_CHEAT_EAT_ALL     = alt(KeyCode.E);
 	public static final KeyCodeCombination KEY_CHEAT_ADD_LIVES   = alt(KeyCode.L);
@@ -57,6 +66,11 @@ public class PacManGames2dApp extends Application implements ResourceManager {
 	public static final KeyCodeCombination KEY_SIMULATION_FASTER = alt(KeyCode.PLUS);
 	public static final KeyCodeCombination KEY_SIMULATION_SLOWER = alt(KeyCode.MINUS);
 	public static final KeyCodeCombination KEY_SIMULATION_NORMAL = alt(KeyCode.DIGIT0);
+	public static final KeyCodeCombination KEY_FAST_FORWARD      = alt(KeyCode.F);
+	public static final KeyCodeCombination KEY_TURBO             = alt(KeyCode.DIGIT8);
+	public static final KeyCodeCombination KEY_RECORD_INPUT      = alt(KeyCode.R);
+	public static final KeyCodeCombination KEY_REWIND            = just(KeyCode.BACK_SPACE);
+	public static final KeyCodeCombination KEY_REWIND_FORWARD    = shift(KeyCode.BACK_SPACE);
 
 	public static final KeyCodeCombination KEYS_START_GAME[]     = { just(KeyCode.DIGIT1), just(KeyCode.NUMPAD1) };
 	public static final KeyCodeCombination KEYS_ADD_CREDIT[]     = { just(KeyCode.DIGIT5), just(KeyCode.NUMPAD5) };
@@ -121,6 +135,7 @@ public class PacManGames2dApp extends Application implements ResourceManager {
 
 	public Theme createTheme() {
 		var theme = new Theme();
+		var loader = new ResourceLoader(this);
 
 		// Common to both games
 
@@ -131,85 +146,108 @@ public class PacManGames2dApp extends Application implements ResourceManager {
 
 		theme.set("startpage.button.bgColor",        Color.rgb(0, 155, 252, 0.8));
 		theme.set("startpage.button.color",          Color.WHITE);
-		theme.set("startpage.button.font",           font("fonts/emulogic.ttf", 30));
+		theme.set("startpage.button.font",           loader.font("fonts/emulogic.ttf", 30));
 
-		theme.set("wallpaper.background",            imageBackground("graphics/pacman_wallpaper.png"));
+		theme.set("wallpaper.background",            loader.imageBackground("graphics/pacman_wallpaper.png"));
 		theme.set("wallpaper.color",                 Color.rgb(72, 78, 135));
 
-		theme.set("font.arcade",                     font("fonts/emulogic.ttf", 8));
-		theme.set("font.handwriting",                font("fonts/Molle-Italic.ttf", 9));
-		theme.set("font.monospaced",                 font("fonts/Inconsolata_Condensed-Bold.ttf", 12));
+		theme.set("font.arcade",                     loader.font("fonts/emulogic.ttf", 8));
+		// the glyph atlas is rendered using a snapshot, so it is created on first access
+		theme.setLazy("font.arcade.glyphs",          () -> new GlyphAtlas(theme.font("font.arcade")));
+		theme.setLazy("font.serif.glyphs",           () -> new GlyphAtlas(Font.font("Serif", FontWeight.BOLD, 8)));
+		theme.set("font.handwriting",                loader.font("fonts/Molle-Italic.ttf", 9));
+		theme.set("font.monospaced",                 loader.font("fonts/Inconsolata_Condensed-Bold.ttf", 12));
 
-		theme.set("voice.explain",                   audioClip("sound/voice/press-key.mp3"));
-		theme.set("voice.autopilot.off",             audioClip("sound/voice/autopilot-off.mp3"));
-		theme.set("voice.autopilot.on",              audioClip("sound/voice/autopilot-on.mp3"));
-		theme.set("voice.immunity.off",              audioClip("sound/voice/immunity-off.mp3"));
-		theme.set("voice.immunity.on",               audioClip("sound/voice/immunity-on.mp3"));
+		theme.set("voice.explain",                   loader.audioClip("sound/voice/press-key.mp3"));
+		theme.set("voice.autopilot.off",             loader.audioClip("sound/voice/autopilot-off.mp3"));
+		theme.set("voice.autopilot.on",              loader.audioClip("sound/voice/autopilot-on.mp3"));
+		theme.set("voice.immunity.off",              loader.audioClip("sound/voice/immunity-off.mp3"));
+		theme.set("voice.immunity.on",               loader.audioClip("sound/voice/immunity-on.mp3"));
+
+		//
+		// 2D images of both games, packed into a single texture atlas
+		//
+
+		var msPacManSheet = loader.image("graphics/mspacman/sprites.png");
+		var pacManSprites = loader.image("graphics/pacman/sprites.png");
+		var pacManFlashingMaze = loader.image("graphics/pacman/maze_empty_flashing.png");
+		var pacManFullMaze = loader.image("graphics/pacman/maze_full.png");
+		var pacManEmptyMaze = loader.image("graphics/pacman/maze_empty.png");
+		var midwayLogo = loader.image("graphics/mspacman/midway.png");
+		var atlas = CompletableFuture.allOf(msPacManSheet, pacManSprites, pacManFlashingMaze, pacManFullMaze,
+				pacManEmptyMaze, midwayLogo).thenApply(done -> new TextureAtlas.Builder()
+			.add("pacman.sprites",            pacManSprites.join())
+			.add("pacman.flashingMaze",       pacManFlashingMaze.join())
+			.add("pacman.fullMaze",           pacManFullMaze.join())
+			.add("pacman.emptyMaze",          pacManEmptyMaze.join())
+			// only the sprites, the mazes are stored as indexed images by the spritesheet
+			.add("mspacman.sprites",          msPacManSheet.join(), new Rectangle2D(456, 0, 192, 240))
+			.add("mspacman.logo.midway",      midwayLogo.join())
+			.build());
+		theme.set("atlas",                           atlas);
 
 		//
 		// Ms. Pac-Man game
 		//
 
-		theme.set("mspacman.startpage.image",        image("graphics/mspacman/wallpaper-midway.png"));
-		theme.set("mspacman.helpButton.icon",        image("graphics/icons/help-red-64.png"));
-
-		theme.set("mspacman.spritesheet",            new SpritesheetMsPacManGame(image("graphics/mspacman/sprites.png")));
-		theme.set("mspacman.icon",                   image("graphics/icons/mspacman.png"));
-		theme.set("mspacman.logo.midway",            image("graphics/mspacman/midway.png"));
-		theme.set("mspacman.flashingMazes",          image("graphics/mspacman/mazes-flashing.png"));
-
-		theme.set("mspacman.audio.bonus_eaten",      audioClip("sound/mspacman/Fruit.mp3"));
-		theme.set("mspacman.audio.credit",           audioClip("sound/mspacman/Credit.mp3"));
-		theme.set("mspacman.audio.extra_life",       audioClip("sound/mspacman/ExtraLife.mp3"));
-		theme.set("mspacman.audio.game_ready",       audioClip("sound/mspacman/Start.mp3"));
-		theme.set("mspacman.audio.game_over",        audioClip("sound/common/game-over.mp3"));
-		theme.set("mspacman.audio.ghost_eaten",      audioClip("sound/mspacman/Ghost.mp3"));
-		theme.set("mspacman.audio.ghost_returning",  audioClip("sound/mspacman/GhostEyes.mp3"));
-		theme.set("mspacman.audio.intermission.1",   audioClip("sound/mspacman/Act1TheyMeet.mp3"));
-		theme.set("mspacman.audio.intermission.2",   audioClip("sound/mspacman/Act2TheChase.mp3"));
-		theme.set("mspacman.audio.intermission.3",   audioClip("sound/mspacman/Act3Junior.mp3"));
-		theme.set("mspacman.audio.level_complete",   audioClip("sound/common/level-complete.mp3"));
-		theme.set("mspacman.audio.pacman_death",     audioClip("sound/mspacman/Died.mp3"));
-		theme.set("mspacman.audio.pacman_munch",     audioClip("sound/mspacman/Pill.wav"));
-		theme.set("mspacman.audio.pacman_power",     audioClip("sound/mspacman/ScaredGhost.mp3"));
-		theme.set("mspacman.audio.siren.1",          audioClip("sound/mspacman/GhostNoise1.wav"));
-		theme.set("mspacman.audio.siren.2",          audioClip("sound/mspacman/GhostNoise1.wav"));// TODO
-		theme.set("mspacman.audio.siren.3",          audioClip("sound/mspacman/GhostNoise1.wav"));// TODO
-		theme.set("mspacman.audio.siren.4",          audioClip("sound/mspacman/GhostNoise1.wav"));// TODO
-		theme.set("mspacman.audio.sweep",            audioClip("sound/common/sweep.mp3"));
+		theme.set("mspacman.startpage.image",        loader.image("graphics/mspacman/wallpaper-midway.png"));
+		theme.set("mspacman.helpButton.icon",        loader.image("graphics/icons/help-red-64.png"));
+
+		theme.set("mspacman.spritesheet",            msPacManSheet.thenCombine(atlas, (sheet, textureAtlas) ->
+				new SpritesheetMsPacManGame(sheet, textureAtlas.image(), textureAtlas.region("mspacman.sprites"))));
+		theme.set("mspacman.icon",                   loader.image("graphics/icons/mspacman.png"));
+
+		theme.set("mspacman.audio.bonus_eaten",      loader.audioClip("sound/mspacman/Fruit.mp3"));
+		theme.set("mspacman.audio.credit",           loader.audioClip("sound/mspacman/Credit.mp3"));
+		theme.set("mspacman.audio.extra_life",       loader.audioClip("sound/mspacman/ExtraLife.mp3"));
+		theme.set("mspacman.audio.game_ready",       loader.audioClip("sound/mspacman/Start.mp3"));
+		theme.set("mspacman.audio.game_over",        loader.audioClip("sound/common/game-over.mp3"));
+		theme.set("mspacman.audio.ghost_eaten",      loader.audioClip("sound/mspacman/Ghost.mp3"));
+		theme.set("mspacman.audio.ghost_returning",  loader.audioClip("sound/mspacman/GhostEyes.mp3"));
+		theme.set("mspacman.audio.intermission.1",   loader.audioClip("sound/mspacman/Act1TheyMeet.mp3"));
+		theme.set("mspacman.audio.intermission.2",   loader.audioClip("sound/mspacman/Act2TheChase.mp3"));
+		theme.set("mspacman.audio.intermission.3",   loader.audioClip("sound/mspacman/Act3Junior.mp3"));
+		theme.set("mspacman.audio.level_complete",   loader.audioClip("sound/common/level-complete.mp3"));
+		theme.set("mspacman.audio.pacman_death",     loader.audioClip("sound/mspacman/Died.mp3"));
+		theme.set("mspacman.audio.pacman_munch",     loader.audioClip("sound/mspacman/Pill.wav"));
+		theme.set("mspacman.audio.pacman_power",     loader.audioClip("sound/mspacman/ScaredGhost.mp3"));
+		theme.set("mspacman.audio.siren.1",          loader.audioClip("sound/mspacman/GhostNoise1.wav"));
+		theme.set("mspacman.audio.siren.2",          loader.audioClip("sound/mspacman/GhostNoise1.wav"));// TODO
+		theme.set("mspacman.audio.siren.3",          loader.audioClip("sound/mspacman/GhostNoise1.wav"));// TODO
+		theme.set("mspacman.audio.siren.4",          loader.audioClip("sound/mspacman/GhostNoise1.wav"));// TODO
+		theme.set("mspacman.audio.sweep",            loader.audioClip("sound/common/sweep.mp3"));
 
 		//
 		// Pac-Man game
 		//
 
-		theme.set("pacman.startpage.image",          image("graphics/pacman/1980-Flyer-USA-Midway-front.jpg"));
-		theme.set("pacman.helpButton.icon",          image("graphics/icons/help-blue-64.png"));
+		theme.set("pacman.startpage.image",          loader.image("graphics/pacman/1980-Flyer-USA-Midway-front.jpg"));
+		theme.set("pacman.helpButton.icon",          loader.image("graphics/icons/help-blue-64.png"));
 
-		theme.set("pacman.spritesheet",              new SpritesheetPacManGame(image("graphics/pacman/sprites.png")));
-		theme.set("pacman.icon",                     image("graphics/icons/pacman.png"));
-		theme.set("pacman.flashingMaze",             image("graphics/pacman/maze_empty_flashing.png"));
-		theme.set("pacman.fullMaze",                 image("graphics/pacman/maze_full.png"));
-		theme.set("pacman.emptyMaze",                image("graphics/pacman/maze_empty.png"));
+		theme.set("pacman.spritesheet",              atlas.thenApply(textureAtlas ->
+				new SpritesheetPacManGame(textureAtlas.image(), textureAtlas.region("pacman.sprites"))));
+		theme.set("pacman.icon",                     loader.image("graphics/icons/pacman.png"));
 		theme.set("pacman.maze.foodColor",           Color.rgb(254, 189, 180));
 
-		theme.set("pacman.audio.bonus_eaten",        audioClip("sound/pacman/eat_fruit.mp3"));
-		theme.set("pacman.audio.credit",             audioClip("sound/pacman/credit.wav"));
-		theme.set("pacman.audio.extra_life",         audioClip("sound/pacman/extend.mp3"));
-		theme.set("pacman.audio.game_ready",         audioClip("sound/pacman/game_start.mp3"));
-		theme.set("pacman.audio.game_over",          audioClip("sound/common/game-over.mp3"));
-		theme.set("pacman.audio.ghost_eaten",        audioClip("sound/pacman/eat_ghost.mp3"));
-		theme.set("pacman.audio.ghost_returning",    audioClip("sound/pacman/retreating.mp3"));
-		theme.set("pacman.audio.intermission",       audioClip("sound/pacman/intermission.mp3"));
-		theme.set("pacman.audio.level_complete",     audioClip("sound/common/level-complete.mp3"));
-		theme.set("pacman.audio.pacman_death",       audioClip("sound/pacman/pacman_death.wav"));
-		theme.set("pacman.audio.pacman_munch",       audioClip("sound/pacman/doublemunch.wav"));
-		theme.set("pacman.audio.pacman_power",       audioClip("sound/pacman/ghost-turn-to-blue.mp3"));
-		theme.set("pacman.audio.siren.1",            audioClip("sound/pacman/siren_1.mp3"));
-		theme.set("pacman.audio.siren.2",            audioClip("sound/pacman/siren_2.mp3"));
-		theme.set("pacman.audio.siren.3",            audioClip("sound/pacman/siren_3.mp3"));
-		theme.set("pacman.audio.siren.4",            audioClip("sound/pacman/siren_4.mp3"));
-		theme.set("pacman.audio.sweep",              audioClip("sound/common/sweep.mp3"));
-
+		theme.set("pacman.audio.bonus_eaten",        loader.audioClip("sound/pacman/eat_fruit.mp3"));
+		theme.set("pacman.audio.credit",             loader.audioClip("sound/pacman/credit.wav"));
+		theme.set("pacman.audio.extra_life",         loader.audioClip("sound/pacman/extend.mp3"));
+		theme.set("pacman.audio.game_ready",         loader.audioClip("sound/pacman/game_start.mp3"));
+		theme.set("pacman.audio.game_over",          loader.audioClip("sound/common/game-over.mp3"));
+		theme.set("pacman.audio.ghost_eaten",        loader.audioClip("sound/pacman/eat_ghost.mp3"));
+		theme.set("pacman.audio.ghost_returning",    loader.audioClip("sound/pacman/retreating.mp3"));
+		theme.set("pacman.audio.intermission",       loader.audioClip("sound/pacman/intermission.mp3"));
+		theme.set("pacman.audio.level_complete",     loader.audioClip("sound/common/level-complete.mp3"));
+		theme.set("pacman.audio.pacman_death",       loader.audioClip("sound/pacman/pacman_death.wav"));
+		theme.set("pacman.audio.pacman_munch",       loader.audioClip("sound/pacman/doublemunch.wav"));
+		theme.set("pacman.audio.pacman_power",       loader.audioClip("sound/pacman/ghost-turn-to-blue.mp3"));
+		theme.set("pacman.audio.siren.1",            loader.audioClip("sound/pacman/siren_1.mp3"));
+		theme.set("pacman.audio.siren.2",            loader.audioClip("sound/pacman/siren_2.mp3"));
+		theme.set("pacman.audio.siren.3",            loader.audioClip("sound/pacman/siren_3.mp3"));
+		theme.set("pacman.audio.siren.4",            loader.audioClip("sound/pacman/siren_4.mp3"));
+		theme.set("pacman.audio.sweep",              loader.audioClip("sound/common/sweep.mp3"));
+
+		loader.shutdown();
 		return theme;
 	}
 }
\ No newline at end of file
@@ -10,6 +10,7 @@ import de.amr.games.pacman.event.GameEvent;
 import de.amr.games.pacman.event.GameEventListener;
 import de.amr.games.pacman.event.GameStateChangeEvent;
 import de.amr.games.pacman.lib.Globals;
+import de.amr.games.pacman.model.GameLevel;
 import de.amr.games.pacman.model.GameModel;
 import de.amr.games.pacman.model.GameVariant;
 import de.amr.games.pacman.model.IllegalGameVariantException;
@@ -20,12 +21,21 @@ import de.amr.games.pacman.ui.fx.rendering2d.mspacman.SpritesheetMsPacManGame;
 import de.amr.games.pacman.ui.fx.rendering2d.pacman.GhostAnimationsPacManGame;
 import de.amr.games.pacman.ui.fx.rendering2d.pacman.PacAnimationsPacManGame;
 import de.amr.games.pacman.ui.fx.rendering2d.pacman.SpritesheetPacManGame;
+import de.amr.games.pacman.ui.fx.replay.InputLog;
+import de.amr.games.pacman.ui.fx.replay.InputRecorder;
 import de.amr.games.pacman.ui.fx.scene.GameScene;
 import de.amr.games.pacman.ui.fx.scene.GameSceneContext;
+import de.amr.games.pacman.ui.fx.scene.RenderSnapshot;
+import de.amr.games.pacman.ui.fx.scene.RewindBuffer;
+import de.amr.games.pacman.ui.fx.util.AnimationTicker;
 import de.amr.games.pacman.ui.fx.util.GameClock;
+import de.amr.games.pacman.ui.fx.util.ScaledImageCache;
 import de.amr.games.pacman.ui.fx.util.Spritesheet;
 import de.amr.games.pacman.ui.fx.util.Theme;
+import de.amr.games.pacman.ui.fx.util.TripleBuffer;
+import javafx.application.Platform;
 import javafx.scene.Scene;
+import javafx.scene.image.Image;
 import javafx.scene.layout.Region;
 import javafx.scene.media.AudioClip;
 import javafx.scene.paint.Color;
@@ -33,11 +43,17 @@ import javafx.stage.Screen;
 import javafx.stage.Stage;
 import org.tinylog.Logger;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.EnumMap;
 import java.util.Map;
 import java.util.Optional;
 
 import static de.amr.games.pacman.controller.GameState.INTRO;
+import static de.amr.games.pacman.lib.Globals.RND;
 import static de.amr.games.pacman.lib.Globals.checkNotNull;
 import static de.amr.games.pacman.ui.fx.util.ResourceManager.message;
 import static de.amr.games.pacman.ui.fx.util.Ufx.toggle;
@@ -49,16 +65,34 @@ import static de.amr.games.pacman.ui.fx.util.Ufx.toggle;
  */
 public class PacManGames2dUI implements GameEventListener, ActionHandler, GameSceneContext {
 
+	/** Game time (in seconds) skipped by the fast-forward action. */
+	public static final int FAST_FORWARD_SECONDS = 5;
+
+	/** Game time (in seconds) that can be rewound. */
+	public static final int REWIND_SECONDS = 10;
+
+	/** Directory where input recordings are saved. */
+	public static final Path RECORDINGS_DIR = Path.of(System.getProperty("user.home"), "pacman-recordings");
+
 	protected final Map<GameVariant, Map<String, GameScene>> gameScenes = new EnumMap<>(GameVariant.class);
+	protected final TripleBuffer<RenderSnapshot> snapshots = new TripleBuffer<>(RenderSnapshot::new);
+	private final RenderSnapshot.FoodTracker foodTracker = new RenderSnapshot.FoodTracker();
+	protected final RewindBuffer rewindBuffer = new RewindBuffer(REWIND_SECONDS * GameModel.FPS);
+	private final RenderSnapshot rewindSnapshot = new RenderSnapshot();
+	protected final ScaledImageCache scaledImages = new ScaledImageCache();
+	/** Age (in frames) of the rewound frame currently shown, -1 if the current frame is shown. */
+	private volatile int rewindAge = -1;
 	protected GameClock clock;
 	protected Theme theme;
 	protected Stage stage;
 	protected Scene scene;
 	protected StartPage startPage;
-	protected GamePage gamePage;
+	protected GamePage gamePage; // created on first access, see gamePage()
 	protected SoundHandler soundHandler;
 	protected Page currentPage;
-	private GameScene currentGameScene;
+	private volatile GameScene currentGameScene;
+	private RenderSnapshot renderSnapshot;
+	private InputRecorder inputRecorder;
 
 	public PacManGames2dUI(Stage stage, Settings settings, Theme theme,
 												 Map<String, GameScene> gameScenesMsPacMan, Map<String, GameScene> gameScenesPacMan) {
@@ -81,20 +115,63 @@ public class PacManGames2dUI implements GameEventListener, ActionHandler, GameSc
 		configureBindings(settings);
 		configureStage(settings);
 		createStartPage(theme);
-		createGamePage(theme);
+		// the game page is created when it is shown for the first time, see gamePage()
 	}
 
 	protected void createClock() {
-		clock = new GameClock(() -> {
-			GameController.it().update();
-			if (currentGameScene != null) {
-				currentGameScene.update();
-			}
-		}, () -> gamePage.render());
+		clock = new GameClock(this::simulateFrame, this::renderFrame);
 		clock.pausedPy.addListener((py, ov, nv) -> updateStage());
 		clock.targetFrameratePy.set(GameModel.FPS);
 	}
 
+	/**
+	 * Update phase: runs the game logic and the scene update and publishes the resulting state for rendering. With
+	 * simulation thread, 3D scenes are updated on the JavaFX application thread instead because they modify the scene
+	 * graph. Each published state is also kept in the rewind buffer.
+	 */
+	protected void simulateFrame() {
+		var gc = GameController.it();
+		rewindAge = -1;
+		if (inputRecorder != null) {
+			inputRecorder.beforeUpdate(gc);
+		}
+		gc.update();
+		if (inputRecorder != null) {
+			inputRecorder.afterUpdate(gc);
+			if (gc.state() == GameState.INTRO || gc.state() == GameState.CREDIT || gc.state() == GameState.BOOT) {
+				finishInputRecording();
+			}
+		}
+		var gameScene = currentGameScene;
+		if (gameScene != null && !(gameScene.is3D() && clock.isSimulationThreaded())) {
+			gameScene.update();
+		}
+		AnimationTicker.tick();
+		var snapshot = snapshots.writeBuffer();
+		snapshot.capture(gc, foodTracker);
+		rewindBuffer.record(snapshot);
+		snapshots.publish();
+	}
+
+	/**
+	 * Render phase: scenes rendering from the snapshot run without blocking the simulation, all others are rendered
+	 * while the simulation is held.
+	 */
+	protected void renderFrame() {
+		renderSnapshot = rewindAge >= 0 ? rewindSnapshot : snapshots.readBuffer();
+		var gameScene = currentGameScene;
+		if (gameScene != null && gameScene.rendersFromSnapshot()) {
+			gamePage.render();
+		} else {
+			clock.runExclusive(() -> {
+				if (gameScene != null && gameScene.is3D() && clock.isSimulationThreaded()) {
+					gameScene.update();
+				}
+				gamePage.render();
+			});
+		}
+	}
+
 	protected void createMainScene() {
 		var screenHeight = Screen.getPrimary().getBounds().getHeight();
 		double height = Math.min(screenHeight * 0.8, 800);
@@ -144,7 +221,7 @@ public class PacManGames2dUI implements GameEventListener, ActionHandler, GameSc
 	}
 
 	public void showGamePage() {
-		currentPage = gamePage;
+		currentPage = gamePage();
 		// call reboot() first such that current game scene is set
 		reboot();
 		scene.setRoot(gamePage.root());
@@ -168,14 +245,19 @@ public class PacManGames2dUI implements GameEventListener, ActionHandler, GameSc
 			titleKey += ".paused";
 		}
 		stage.setTitle(message(PacManGames2dApp.TEXTS, titleKey));
-		stage.getIcons().setAll(theme.image(variantKey + ".icon"));
+		theme.<Image>onLoaded(variantKey + ".icon", icon -> stage.getIcons().setAll(icon));
 	}
 
 	/**
 	 * @param settings application settings
 	 */
 	protected void configureBindings(Settings settings) {
-		// snooze...
+		clock.fixedTimestepPy.set(settings.fixedTimestep);
+		clock.simulationThreadPy.set(settings.simulationThread);
+		clock.simulationThreadPy.addListener((py, ov, nv) -> switchOffTurboIfBlocking());
+		clock.overloadPolicyPy.set(settings.overloadPolicy);
+		PacManGames2dApp.PY_RECORD_INPUT.set(settings.recordInput);
+		PacManGames2dApp.PY_SOFTWARE_RENDERING.set(settings.softwareRendering);
 	}
 
 	protected GameScene sceneMatchingCurrentGameState() {
@@ -212,8 +294,28 @@ public class PacManGames2dUI implements GameEventListener, ActionHandler, GameSc
 		currentGameScene = newGameScene;
 		currentGameScene.setContext(this);
 		currentGameScene.init();
-		gamePage.onGameSceneChanged();
+		if (gamePage != null) {
+			gamePage.onGameSceneChanged();
+		}
 		Logger.trace("Game scene changed from {} to {}", prevGameScene, currentGameScene);
+		switchOffTurboIfBlocking();
+	}
+
+	/**
+	 * A 3D scene is updated on the JavaFX thread while the simulation is held. If the simulation runs on its own thread
+	 * in turbo mode, it holds the simulation for a whole burst of updates and the JavaFX thread blocks on every pulse.
+	 *
+	 * @return if turbo mode would block the JavaFX thread with the current game scene
+	 */
+	protected boolean isTurboBlocking() {
+		return currentGameScene != null && currentGameScene.is3D() && clock.isSimulationThreaded();
+	}
+
+	private void switchOffTurboIfBlocking() {
+		if (clock.isTurbo() && isTurboBlocking()) {
+			clock.turboFactorPy.set(1);
+			Logger.warn("Turbo mode switched off, not available for 3D scene with simulation thread");
+		}
 	}
 
 	// GameSceneContext
@@ -238,12 +340,39 @@ public class PacManGames2dUI implements GameEventListener, ActionHandler, GameSc
 		return soundHandler;
 	}
 
+	@Override
+	public RenderSnapshot snapshot() {
+		return renderSnapshot;
+	}
+
+	@Override
+	public ScaledImageCache scaledImages() {
+		return scaledImages;
+	}
+
 	// Accessors
 
 	public Scene mainScene() {
 		return scene;
 	}
 
+	/**
+	 * The game page accesses many theme resources, so it is not created before it is needed. This way, the start page
+	 * is shown while the resources are still loading.
+	 *
+	 * @return the game page, created on first access
+	 */
+	public GamePage gamePage() {
+		if (gamePage == null) {
+			createGamePage(theme);
+			if (currentGameScene != null) {
+				gamePage.onGameSceneChanged();
+			}
+		}
+		return gamePage;
+	}
+
+	@Override
 	public GameClock clock() {
 		return clock;
 	}
@@ -264,6 +393,15 @@ public class PacManGames2dUI implements GameEventListener, ActionHandler, GameSc
 
 	@Override
 	public void onGameEvent(GameEvent e) {
+		if (Platform.isFxApplicationThread()) {
+			handleGameEvent(e);
+		} else {
+			// published by the simulation thread
+			Platform.runLater(() -> clock.runExclusive(() -> handleGameEvent(e)));
+		}
+	}
+
+	private void handleGameEvent(GameEvent e) {
 		Logger.trace("Event received: {}", e);
 		// call event specific handler
 		GameEventListener.super.onGameEvent(e);
@@ -286,26 +424,34 @@ public class PacManGames2dUI implements GameEventListener, ActionHandler, GameSc
 	@Override
 	public void onLevelCreated(GameEvent e) {
 		// Found no better point in time to create and assign the sprite animations to the guys
-		e.game.level().ifPresent(level -> {
-			switch (e.game.variant()) {
-			case MS_PACMAN -> {
-				var ss = (SpritesheetMsPacManGame) spritesheet();
-				level.pac().setAnimations(new PacAnimationsMsPacManGame(level.pac(), ss));
-				level.ghosts().forEach(ghost -> ghost.setAnimations(new GhostAnimationsMsPacManGame(ghost, ss)));
-				Logger.info("Created Ms. Pac-Man game creature animations for level #{}", level.number());
-			}
-			case PACMAN -> {
-				var ss = (SpritesheetPacManGame) spritesheet();
-				level.pac().setAnimations(new PacAnimationsPacManGame(level.pac(), ss));
-				level.ghosts().forEach(ghost -> ghost.setAnimations(new GhostAnimationsPacManGame(ghost, ss)));
-				Logger.info("Created Pac-Man game creature animations for level #{}", level.number());
-			}
-			default -> throw new IllegalGameVariantException(e.game.variant());
-			}
-		});
+		e.game.level().ifPresent(level -> createCreatureAnimations(level, spritesheet()));
 		updateOrReloadGameScene(true);
 	}
 
+	/**
+	 * Creates the sprite animations of Pac-Man and the ghosts of the given level.
+	 *
+	 * @param level       game level
+	 * @param spritesheet spritesheet of the level's game variant
+	 */
+	public static void createCreatureAnimations(GameLevel level, Spritesheet spritesheet) {
+		switch (level.game().variant()) {
+		case MS_PACMAN -> {
+			var ss = (SpritesheetMsPacManGame) spritesheet;
+			level.pac().setAnimations(new PacAnimationsMsPacManGame(level.pac(), ss));
+			level.ghosts().forEach(ghost -> ghost.setAnimations(new GhostAnimationsMsPacManGame(ghost, ss)));
+			Logger.info("Created Ms. Pac-Man game creature animations for level #{}", level.number());
+		}
+		case PACMAN -> {
+			var ss = (SpritesheetPacManGame) spritesheet;
+			level.pac().setAnimations(new PacAnimationsPacManGame(level.pac(), ss));
+			level.ghosts().forEach(ghost -> ghost.setAnimations(new GhostAnimationsPacManGame(ghost, ss)));
+			Logger.info("Created Pac-Man game creature animations for level #{}", level.number());
+		}
+		default -> throw new IllegalGameVariantException(level.game().variant());
+		}
+	}
+
 	// ActionHandler implementation part
 
 	@Override
@@ -315,17 +461,70 @@ public class PacManGames2dUI implements GameEventListener, ActionHandler, GameSc
 
 	@Override
 	public void showFlashMessageSeconds(double seconds, String message, Object... args) {
-		gamePage.flashMessageView().showMessage(String.format(message, args), seconds);
+		gamePage().flashMessageView().showMessage(String.format(message, args), seconds);
 	}
 
 	@Override
 	public void startGame() {
 		if (GameController.it().hasCredit()) {
 			soundHandler.stopVoice();
+			if (PacManGames2dApp.PY_RECORD_INPUT.get()) {
+				startInputRecording();
+			}
 			GameController.it().startPlaying();
 		}
 	}
 
+	/**
+	 * Starts recording a new game. The random generator gets a new seed such that the game can be replayed.
+	 */
+	private void startInputRecording() {
+		var gc = GameController.it();
+		long seed = System.nanoTime();
+		RND.setSeed(seed);
+		inputRecorder = new InputRecorder(game().variant(), seed);
+		inputRecorder.record(InputLog.Event.AUTOPILOT, gc.isAutoControlled() ? 1 : 0);
+		inputRecorder.record(InputLog.Event.IMMUNITY, gc.isImmune() ? 1 : 0);
+		if (gc.getManualPacSteering() instanceof KeyboardSteering keyboardSteering) {
+			keyboardSteering.setOnSteer(dir -> inputRecorder.record(InputLog.Event.STEER, dir.ordinal()));
+		}
+		Logger.info("Input recording started, seed={}", seed);
+	}
+
+	private void finishInputRecording() {
+		if (GameController.it().getManualPacSteering() instanceof KeyboardSteering keyboardSteering) {
+			keyboardSteering.setOnSteer(null);
+		}
+		var log = inputRecorder.finish();
+		inputRecorder = null;
+		var fileName = String.format("%s-%s.pmil", log.variant(),
+				LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")));
+		var path = RECORDINGS_DIR.resolve(fileName);
+		try {
+			Files.createDirectories(RECORDINGS_DIR);
+			log.save(path);
+			Logger.info("Input recording saved to {}: {}", path, log);
+		} catch (IOException x) {
+			Logger.error(x, "Could not save input recording to {}", path);
+		}
+	}
+
+	private void recordInput(InputLog.Event event, long arg) {
+		if (inputRecorder != null) {
+			inputRecorder.record(event, arg);
+		}
+	}
+
+	@Override
+	public void toggleInputRecording() {
+		toggle(PacManGames2dApp.PY_RECORD_INPUT);
+		if (!PacManGames2dApp.PY_RECORD_INPUT.get() && inputRecorder != null) {
+			finishInputRecording();
+		}
+		showFlashMessage(PacManGames2dApp.PY_RECORD_INPUT.get() ? "Input recording ON (starts with next game)"
+				: "Input recording OFF");
+	}
+
 	@Override
 	public void startCutscenesTest() {
 		GameController.it().startCutscenesTest(1);
@@ -356,6 +555,7 @@ public class PacManGames2dUI implements GameEventListener, ActionHandler, GameSc
 	@Override
 	public void addCredit() {
 		GameController.it().addCredit();
+		recordInput(InputLog.Event.ADD_CREDIT, 0);
 	}
 
 	@Override
@@ -380,6 +580,40 @@ public class PacManGames2dUI implements GameEventListener, ActionHandler, GameSc
 		}
 	}
 
+	@Override
+	public void rewind(double seconds) {
+		if (currentGameScene == null || !currentGameScene.rendersFromSnapshot()) {
+			showFlashMessage("No rewind in this scene");
+			return;
+		}
+		if (!clock.isPaused()) {
+			togglePaused();
+		}
+		int age = Math.max(0, rewindAge) + (int) Math.round(seconds * GameModel.FPS);
+		age = Math.max(0, Math.min(age, rewindBuffer.size() - 1));
+		if (rewindBuffer.read(age, rewindSnapshot)) {
+			rewindAge = age;
+			showFlashMessageSeconds(0.75, "-%.1f sec", (double) age / GameModel.FPS);
+		}
+	}
+
+	@Override
+	public void fastForward() {
+		clock.fastForward(FAST_FORWARD_SECONDS * clock.targetFrameratePy.get());
+		showFlashMessageSeconds(0.75, "+" + FAST_FORWARD_SECONDS + " sec");
+	}
+
+	@Override
+	public void toggleTurbo() {
+		if (!clock.isTurbo() && isTurboBlocking()) {
+			Logger.warn("Turbo mode not available for 3D scene with simulation thread");
+			showFlashMessageSeconds(0.75, "Turbo not available in 3D with simulation thread");
+			return;
+		}
+		clock.turboFactorPy.set(clock.isTurbo() ? 1 : GameClock.DEFAULT_TURBO_FACTOR);
+		showFlashMessageSeconds(0.75, clock.isTurbo() ? "Turbo " + clock.getTurboFactor() + "x" : "Turbo OFF");
+	}
+
 	@Override
 	public void changeSimulationSpeed(int delta) {
 		int newRate = clock.targetFrameratePy.get() + delta;
@@ -406,6 +640,7 @@ public class PacManGames2dUI implements GameEventListener, ActionHandler, GameSc
 	public void toggleAutopilot() {
 		GameController.it().toggleAutoControlled();
 		var auto = GameController.it().isAutoControlled();
+		recordInput(InputLog.Event.AUTOPILOT, auto ? 1 : 0);
 		String message = message(PacManGames2dApp.TEXTS, auto ? "autopilot_on" : "autopilot_off");
 		showFlashMessage(message);
 		soundHandler.playVoice(auto ? "voice.autopilot.on" : "voice.autopilot.off");
@@ -415,6 +650,7 @@ public class PacManGames2dUI implements GameEventListener, ActionHandler, GameSc
 	public void toggleImmunity() {
 		GameController.it().setImmune(!GameController.it().isImmune());
 		var immune = GameController.it().isImmune();
+		recordInput(InputLog.Event.IMMUNITY, immune ? 1 : 0);
 		String message = message(PacManGames2dApp.TEXTS, immune ? "player_immunity_on" : "player_immunity_off");
 		showFlashMessage(message);
 		soundHandler.playVoice(immune ? "voice.immunity.on" : "voice.immunity.off");
@@ -448,21 +684,25 @@ public class PacManGames2dUI implements GameEventListener, ActionHandler, GameSc
 	@Override
 	public void cheatAddLives() {
 		game().addLives((short) 3);
+		recordInput(InputLog.Event.CHEAT_ADD_LIVES, 0);
 		showFlashMessage(message(PacManGames2dApp.TEXTS, "cheat_add_lives", game().lives()));
 	}
 
 	@Override
 	public void cheatEatAllPellets() {
 		GameController.it().cheatEatAllPellets();
+		recordInput(InputLog.Event.CHEAT_EAT_ALL, 0);
 	}
 
 	@Override
 	public void cheatEnterNextLevel() {
 		GameController.it().cheatEnterNextLevel();
+		recordInput(InputLog.Event.CHEAT_NEXT_LEVEL, 0);
 	}
 
 	@Override
 	public void cheatKillAllEatableGhosts() {
 		GameController.it().cheatKillAllEatableGhosts();
+		recordInput(InputLog.Event.CHEAT_KILL_GHOSTS, 0);
 	}
 }
\ No newline at end of file
@@ -0,0 +1,149 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.ui.fx;
+
+import de.amr.games.pacman.controller.GameController;
+import de.amr.games.pacman.controller.GameState;
+import de.amr.games.pacman.lib.Direction;
+import de.amr.games.pacman.ui.fx.replay.InputLog;
+import de.amr.games.pacman.ui.fx.replay.ReplaySteering;
+import de.amr.games.pacman.ui.fx.replay.StateHash;
+import org.tinylog.Logger;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static de.amr.games.pacman.lib.Globals.RND;
+import static de.amr.games.pacman.lib.Globals.checkNotNull;
+
+/**
+ * Replays a recorded game (see {@link InputLog}) without user interface as fast as possible. After each update step,
+ * a hash of the simulation state is computed. The hashes are checked against the checkpoints stored in the log and can
+ * be written to a text file (one line per frame) to compare different runs, e.g. before and after a change of the
+ * simulation code.
+ * <p>
+ * Usage: <code>ReplayRunner --log=file [--hashes=file]</code>
+ *
+ * @author Armin Reichert
+ */
+public class ReplayRunner {
+
+	/**
+	 * @param ticks       number of replayed update steps
+	 * @param nanos       time used for replaying
+	 * @param hash        hash over the state hashes of all frames
+	 * @param checkpoints number of checked checkpoints
+	 * @param mismatches  number of checkpoints where the state differed from the recorded state
+	 */
+	public record Result(long ticks, long nanos, long hash, int checkpoints, int mismatches) {
+
+		@Override
+		public String toString() {
+			return String.format("%d ticks in %.2f sec (%.0f ticks/sec), hash: %016x, checkpoints: %d, mismatches: %d", ticks,
+					nanos / 1e9, nanos > 0 ? ticks * 1e9 / nanos : 0, hash, checkpoints, mismatches);
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		var params = HeadlessRunner.parseNamedArgs(args);
+		if (!params.containsKey("log")) {
+			Logger.error("Usage: ReplayRunner --log=file [--hashes=file]");
+			return;
+		}
+		var log = InputLog.load(Path.of(params.get("log")));
+		Logger.info("Replaying {}", log);
+		GameController.create(log.variant());
+		var runner = new ReplayRunner(log);
+		Result result;
+		if (params.containsKey("hashes")) {
+			try (var hashOut = new PrintWriter(Files.newBufferedWriter(Path.of(params.get("hashes"))))) {
+				result = runner.run(hashOut);
+			}
+		} else {
+			result = runner.run(null);
+		}
+		Logger.info(result);
+	}
+
+	private final InputLog log;
+	private final ReplaySteering steering = new ReplaySteering();
+	private int checkpoints;
+	private int mismatches;
+
+	public ReplayRunner(InputLog log) {
+		checkNotNull(log);
+		this.log = log;
+	}
+
+	/**
+	 * Replays the log using the existing game controller. The game is started the same way as in the user interface when
+	 * recording started.
+	 *
+	 * @param hashOut if not {@code null}, tick number and state hash of each frame are written to this writer
+	 * @return replay result
+	 */
+	public Result run(PrintWriter hashOut) {
+		var gc = GameController.it();
+		gc.setManualPacSteering(steering);
+		gc.setAutoControlled(false);
+		gc.setImmune(false);
+		gc.restart(GameState.INTRO);
+		gc.addCredit();
+		RND.setSeed(log.seed());
+		gc.startPlaying();
+
+		checkpoints = 0;
+		mismatches = 0;
+		var reader = log.reader();
+		long tick = 0;
+		long hash = 0;
+		long startTime = System.nanoTime();
+		while (true) {
+			while (!reader.atEnd() && reader.tick() == tick) {
+				apply(gc, reader, tick);
+				reader.next();
+			}
+			if (reader.atEnd() && reader.tick() <= tick) {
+				break;
+			}
+			gc.update();
+			++tick;
+			long frameHash = StateHash.of(gc);
+			hash = StateHash.combine(hash, frameHash);
+			if (hashOut != null) {
+				hashOut.printf("%d %016x%n", tick, frameHash);
+			}
+		}
+		return new Result(tick, System.nanoTime() - startTime, hash, checkpoints, mismatches);
+	}
+
+	private void apply(GameController gc, InputLog.Reader reader, long tick) {
+		switch (reader.event()) {
+		case STEER -> steering.setDirection(Direction.values()[(int) reader.arg()]);
+		case TIMER_EXPIRED -> gc.state().timer().expire();
+		case ADD_CREDIT -> gc.addCredit();
+		case AUTOPILOT -> gc.setAutoControlled(reader.arg() != 0);
+		case IMMUNITY -> gc.setImmune(reader.arg() != 0);
+		case CHEAT_ADD_LIVES -> gc.game().addLives((short) 3);
+		case CHEAT_EAT_ALL -> gc.cheatEatAllPellets();
+		case CHEAT_NEXT_LEVEL -> gc.cheatEnterNextLevel();
+		case CHEAT_KILL_GHOSTS -> gc.cheatKillAllEatableGhosts();
+		case CHECKPOINT -> {
+			++checkpoints;
+			if (StateHash.of(gc) != reader.arg()) {
+				if (mismatches == 0) {
+					Logger.warn("Replay diverged from recording at tick {}", tick);
+				}
+				++mismatches;
+			}
+		}
+		case END -> {
+			// handled by caller
+		}
+		}
+	}
+}
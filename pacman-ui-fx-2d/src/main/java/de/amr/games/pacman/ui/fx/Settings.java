@@ -6,6 +6,7 @@ package de.amr.games.pacman.ui.fx;
 
 import de.amr.games.pacman.lib.Direction;
 import de.amr.games.pacman.model.GameVariant;
+import de.amr.games.pacman.ui.fx.util.GameClock.OverloadPolicy;
 import javafx.scene.input.KeyCode;
 
 import java.util.Collections;
@@ -43,6 +44,11 @@ public class Settings {
 	public GameVariant variant;
 	public float zoom;
 	public Map<Direction, KeyCode> keyMap;
+	public boolean fixedTimestep;
+	public boolean simulationThread;
+	public OverloadPolicy overloadPolicy;
+	public boolean recordInput;
+	public boolean softwareRendering;
 
 	public Settings() {
 		this(Collections.emptyMap());
@@ -53,6 +59,11 @@ public class Settings {
 		variant = GameVariant.PACMAN;
 		zoom = 2;
 		keyMap = keyMap("cursor");
+		fixedTimestep = false;
+		simulationThread = false;
+		overloadPolicy = OverloadPolicy.RENDER_EVERY_TICK;
+		recordInput = false;
+		softwareRendering = false;
 		merge(pm);
 	}
 
@@ -69,10 +80,28 @@ public class Settings {
 		if (pm.containsKey("keys")) {
 			keyMap = keyMap(pm.get("keys"));
 		}
+		if (pm.containsKey("fixedTimestep")) {
+			fixedTimestep = Boolean.valueOf(pm.get("fixedTimestep"));
+		}
+		if (pm.containsKey("simulationThread")) {
+			simulationThread = Boolean.valueOf(pm.get("simulationThread"));
+		}
+		if (pm.containsKey("overloadPolicy")) {
+			overloadPolicy = OverloadPolicy.valueOf(pm.get("overloadPolicy"));
+		}
+		if (pm.containsKey("recordInput")) {
+			recordInput = Boolean.valueOf(pm.get("recordInput"));
+		}
+		if (pm.containsKey("softwareRendering")) {
+			softwareRendering = Boolean.valueOf(pm.get("softwareRendering"));
+		}
 	}
 
 	@Override
 	public String toString() {
-		return "Settings [fullScreen=" + fullScreen + ", variant=" + variant + ", zoom=" + zoom + "]";
+		return "Settings [fullScreen=" + fullScreen + ", variant=" + variant + ", zoom=" + zoom + ", fixedTimestep=" + fixedTimestep
+				+ ", simulationThread=" + simulationThread + ", overloadPolicy=" + overloadPolicy
+				+ ", recordInput=" + recordInput + ", softwareRendering=" + softwareRendering
+				+ "]";
 	}
 }
\ No newline at end of file
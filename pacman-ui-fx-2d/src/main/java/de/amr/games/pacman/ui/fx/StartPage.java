@@ -3,12 +3,15 @@ package de.amr.games.pacman.ui.fx;
 import de.amr.games.pacman.model.GameVariant;
 import de.amr.games.pacman.ui.fx.util.ResourceManager;
 import de.amr.games.pacman.ui.fx.util.Theme;
+import javafx.animation.AnimationTimer;
 import javafx.event.EventHandler;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Cursor;
 import javafx.scene.Node;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.effect.DropShadow;
+import javafx.scene.image.Image;
 import javafx.scene.input.KeyEvent;
 import javafx.scene.input.MouseButton;
 import javafx.scene.layout.*;
@@ -28,6 +31,21 @@ public class StartPage implements Page {
 	private final BorderPane content = new BorderPane();
 	private final Theme theme;
 	private final Node playButton;
+	private GameVariant gameVariant;
+	private final ProgressBar loadingProgressBar = new ProgressBar(0);
+
+	// shows the progress of the theme resources loaded in the background, hides the bar when all are loaded
+	private final AnimationTimer loadingProgressUpdate = new AnimationTimer() {
+		@Override
+		public void handle(long now) {
+			double progress = theme.loadingProgress();
+			loadingProgressBar.setProgress(progress);
+			if (progress >= 1) {
+				loadingProgressBar.setVisible(false);
+				stop();
+			}
+		}
+	};
 
 	public StartPage(Theme theme) {
 		checkNotNull(theme);
@@ -37,7 +55,11 @@ public class StartPage implements Page {
 		BorderPane.setAlignment(playButton, Pos.CENTER);
 		playButton.setTranslateY(-10);
 		root.setBackground(ResourceManager.coloredBackground(Color.BLACK));
-		root.getChildren().add(content);
+		root.getChildren().addAll(content, loadingProgressBar);
+		StackPane.setAlignment(loadingProgressBar, Pos.TOP_CENTER);
+		StackPane.setMargin(loadingProgressBar, new Insets(10));
+		loadingProgressBar.setPrefWidth(200);
+		loadingProgressUpdate.start();
 	}
 
 	@Override
@@ -51,18 +73,23 @@ public class StartPage implements Page {
 
 	public void setGameVariant(GameVariant gameVariant) {
 		checkGameVariant(gameVariant);
-		var image = gameVariant == GameVariant.MS_PACMAN
-				? theme.image("mspacman.startpage.image")
-				: theme.image("pacman.startpage.image");
-		var backgroundImage = new BackgroundImage(image,
-			BackgroundRepeat.NO_REPEAT, BackgroundRepeat.NO_REPEAT, BackgroundPosition.CENTER,
-			new BackgroundSize(
-				AUTO,	AUTO, // width, height
-				false, false, // as percentage
-				true, // contain
-				false // cover
-		));
-		content.setBackground(new Background(backgroundImage));
+		this.gameVariant = gameVariant;
+		var key = gameVariant == GameVariant.MS_PACMAN ? "mspacman.startpage.image" : "pacman.startpage.image";
+		content.setBackground(null);
+		theme.<Image>onLoaded(key, image -> {
+			if (this.gameVariant != gameVariant) {
+				return; // variant has been switched while the image was loaded
+			}
+			var backgroundImage = new BackgroundImage(image,
+				BackgroundRepeat.NO_REPEAT, BackgroundRepeat.NO_REPEAT, BackgroundPosition.CENTER,
+				new BackgroundSize(
+					AUTO,	AUTO, // width, height
+					false, false, // as percentage
+					true, // contain
+					false // cover
+			));
+			content.setBackground(new Background(backgroundImage));
+		});
 	}
 
 	public void setPlayButtonAction(Runnable action) {
@@ -81,7 +108,7 @@ public class StartPage implements Page {
 	private Node createPlayButton() {
 		var label = new Text("Play!");
 		label.setFill(theme.color("startpage.button.color"));
-		label.setFont(theme.font("startpage.button.font"));
+		theme.onLoaded("startpage.button.font", label::setFont);
 
 		var ds = new DropShadow();
 		ds.setOffsetY(3.0f);
@@ -18,6 +18,7 @@ import org.tinylog.Logger;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 
 /**
@@ -29,6 +30,7 @@ public class KeyboardSteering extends Steering implements EventHandler<KeyEvent>
 
 	protected Map<KeyCodeCombination, Direction> dirByCombination = new HashMap<>();
 	protected Direction dir;
+	private Consumer<Direction> onSteer;
 
 	/**
 	 * Default steering: unmodified cursor keys.
@@ -60,10 +62,20 @@ public class KeyboardSteering extends Steering implements EventHandler<KeyEvent>
 	public void steer(GameLevel level, Creature guy) {
 		if (dir != null) {
 			guy.setWishDir(dir);
+			if (onSteer != null) {
+				onSteer.accept(dir);
+			}
 			dir = null;
 		}
 	}
 
+	/**
+	 * @param onSteer called with each direction applied to the steered creature, e.g. for recording, may be {@code null}
+	 */
+	public void setOnSteer(Consumer<Direction> onSteer) {
+		this.onSteer = onSteer;
+	}
+
 	public void define(Direction dir, KeyCode code, Modifier... modifiers) {
 		dirByCombination.put(new KeyCodeCombination(code, modifiers), dir);
 	}
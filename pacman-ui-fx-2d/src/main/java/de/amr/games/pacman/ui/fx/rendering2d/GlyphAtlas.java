@@ -0,0 +1,170 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.ui.fx.rendering2d;
+
+import javafx.geometry.Rectangle2D;
+import javafx.geometry.VPos;
+import javafx.scene.SnapshotParameters;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import org.tinylog.Logger;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static de.amr.games.pacman.lib.Globals.TS;
+import static de.amr.games.pacman.lib.Globals.checkNotNull;
+
+/**
+ * Glyphs of a font (e.g. the arcade font) rendered once into an image with one 8x8 cell per character, like the
+ * character ROM of the arcade machine. Text is drawn by copying glyph cells instead of rasterizing the font for every frame. The glyphs are
+ * stored as opaque/transparent masks such that text has sharp pixel edges at any scaling. For each text color, a
+ * colored copy of the atlas is created on first use.
+ * <p>
+ * The glyph mask is rendered on first use, this must happen on the JavaFX application thread.
+ *
+ * @author Armin Reichert
+ */
+public class GlyphAtlas {
+
+	public static final char FIRST_CHAR = ' ';
+	public static final char LAST_CHAR = '~';
+
+	private static final int COLUMNS = 16;
+	private static final int NUM_CHARS = LAST_CHAR - FIRST_CHAR + 1;
+	private static final int ROWS = (NUM_CHARS + COLUMNS - 1) / COLUMNS;
+	private static final int WIDTH = COLUMNS * TS;
+	private static final int HEIGHT = ROWS * TS;
+
+	private final Font font;
+	private final Rectangle2D[] cells = new Rectangle2D[NUM_CHARS];
+	private final Map<Color, Image> coloredAtlases = new HashMap<>();
+	private int[] mask;
+	private PixelRaster maskRaster;
+	private Color lastColor;
+	private Image lastImage;
+
+	/**
+	 * @param font font, the font size should be one tile (8 pixels)
+	 */
+	public GlyphAtlas(Font font) {
+		checkNotNull(font);
+		this.font = font;
+		for (int i = 0; i < NUM_CHARS; ++i) {
+			cells[i] = new Rectangle2D((i % COLUMNS) * TS, (i / COLUMNS) * TS, TS, TS);
+		}
+	}
+
+	public Font font() {
+		return font;
+	}
+
+	/**
+	 * @param ch character
+	 * @return if the atlas contains a glyph for this character
+	 */
+	public boolean contains(char ch) {
+		return FIRST_CHAR <= ch && ch <= LAST_CHAR;
+	}
+
+	/**
+	 * @param text text
+	 * @return if the atlas contains glyphs for all characters of the text
+	 */
+	public boolean containsAll(String text) {
+		for (int i = 0; i < text.length(); ++i) {
+			if (!contains(text.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @param ch character
+	 * @return cell of the glyph for this character in the atlas image
+	 */
+	public Rectangle2D cell(char ch) {
+		return cells[ch - FIRST_CHAR];
+	}
+
+	/**
+	 * @param color text color
+	 * @return atlas image with glyphs in the given color
+	 */
+	public Image image(Color color) {
+		if (color != lastColor) {
+			lastImage = coloredAtlases.computeIfAbsent(color, this::createColoredAtlas);
+			lastColor = color;
+		}
+		return lastImage;
+	}
+
+	/**
+	 * Returns the glyph mask as raster with opaque white glyph pixels on a transparent background. Software renderers
+	 * can tint it into any text color without the JavaFX application thread.
+	 *
+	 * @return raster of the glyph mask
+	 */
+	public PixelRaster maskRaster() {
+		if (maskRaster == null) {
+			var raster = new PixelRaster(WIDTH, HEIGHT);
+			var pixels = raster.pixels();
+			var glyphMask = mask();
+			for (int i = 0; i < glyphMask.length; ++i) {
+				pixels[i] = glyphMask[i] != 0 ? 0xFFFFFFFF : 0;
+			}
+			maskRaster = raster;
+		}
+		return maskRaster;
+	}
+
+	private int[] mask() {
+		if (mask == null) {
+			mask = renderMask();
+		}
+		return mask;
+	}
+
+	private Image createColoredAtlas(Color color) {
+		var glyphMask = mask();
+		int argb = (int) Math.round(color.getOpacity() * 255) << 24 | (int) Math.round(color.getRed() * 255) << 16
+				| (int) Math.round(color.getGreen() * 255) << 8 | (int) Math.round(color.getBlue() * 255);
+		var pixels = new int[glyphMask.length];
+		for (int i = 0; i < glyphMask.length; ++i) {
+			pixels[i] = glyphMask[i] != 0 ? argb : 0;
+		}
+		var image = new WritableImage(WIDTH, HEIGHT);
+		image.getPixelWriter().setPixels(0, 0, WIDTH, HEIGHT, PixelFormat.getIntArgbInstance(), pixels, 0, WIDTH);
+		return image;
+	}
+
+	// Renders all glyphs with their baseline at the bottom of their cell and keeps only the pixels covered at least half
+	private int[] renderMask() {
+		var canvas = new Canvas(WIDTH, HEIGHT);
+		var g = canvas.getGraphicsContext2D();
+		g.setFont(font);
+		g.setFill(Color.WHITE);
+		g.setTextBaseline(VPos.BASELINE);
+		for (int i = 0; i < NUM_CHARS; ++i) {
+			var cell = cells[i];
+			g.fillText(String.valueOf((char) (FIRST_CHAR + i)), cell.getMinX(), cell.getMaxY());
+		}
+		var params = new SnapshotParameters();
+		params.setFill(Color.TRANSPARENT);
+		var snapshot = canvas.snapshot(params, null);
+		var pixels = new int[WIDTH * HEIGHT];
+		snapshot.getPixelReader().getPixels(0, 0, WIDTH, HEIGHT, PixelFormat.getIntArgbInstance(), pixels, 0, WIDTH);
+		for (int i = 0; i < pixels.length; ++i) {
+			pixels[i] = (pixels[i] >>> 24) >= 128 ? 1 : 0;
+		}
+		Logger.trace("Glyph atlas for font {} created", font);
+		return pixels;
+	}
+}
@@ -0,0 +1,137 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.ui.fx.rendering2d;
+
+import javafx.geometry.Rectangle2D;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static de.amr.games.pacman.lib.Globals.checkNotNull;
+
+/**
+ * Image storing a palette index (one byte) per pixel. The colors are taken from a palette when the image is rendered,
+ * so the same indexed image can be shown in different color schemes. The rendered images are cached per palette.
+ *
+ * @author Armin Reichert
+ */
+public class IndexedImage {
+
+	/**
+	 * Creates an indexed image from an image region.
+	 *
+	 * @param source source image
+	 * @param region region of the source image
+	 * @param colors colors (ARGB) of the source image, the index of a color in this array is its palette index. If a
+	 *               color occurs more than once, its first index is used.
+	 * @return indexed image of the size of the region
+	 */
+	public static IndexedImage of(Image source, Rectangle2D region, int[] colors) {
+		checkNotNull(source);
+		checkNotNull(region);
+		checkNotNull(colors);
+		if (colors.length > 256) {
+			throw new IllegalArgumentException("Too many colors: " + colors.length);
+		}
+		var indexByColor = new HashMap<Integer, Integer>();
+		for (int i = 0; i < colors.length; ++i) {
+			indexByColor.putIfAbsent(colors[i], i);
+		}
+		var image = new IndexedImage((int) region.getWidth(), (int) region.getHeight());
+		var pixels = new int[image.width * image.height];
+		source.getPixelReader().getPixels((int) region.getMinX(), (int) region.getMinY(), image.width, image.height,
+				PixelFormat.getIntArgbInstance(), pixels, 0, image.width);
+		for (int i = 0; i < pixels.length; ++i) {
+			// all fully transparent pixels are the same
+			int color = (pixels[i] >>> 24) == 0 ? 0 : pixels[i];
+			var index = indexByColor.get(color);
+			if (index == null) {
+				throw new IllegalArgumentException(String.format("Color %08x at (%d, %d) is not in the palette", color,
+						i % image.width, i / image.width));
+			}
+			image.indices[i] = (byte) index.intValue();
+		}
+		return image;
+	}
+
+	// key for the image cache, compares the palette colors
+	private record Palette(int[] colors) {
+
+		@Override
+		public boolean equals(Object other) {
+			return other instanceof Palette palette && Arrays.equals(colors, palette.colors);
+		}
+
+		@Override
+		public int hashCode() {
+			return Arrays.hashCode(colors);
+		}
+	}
+
+	private final int width;
+	private final int height;
+	private final byte[] indices;
+	private final Map<Palette, Image> images = new HashMap<>();
+
+	private IndexedImage(int width, int height) {
+		if (width <= 0 || height <= 0) {
+			throw new IllegalArgumentException("Illegal image size: " + width + "x" + height);
+		}
+		this.width = width;
+		this.height = height;
+		indices = new byte[width * height];
+	}
+
+	public int width() {
+		return width;
+	}
+
+	public int height() {
+		return height;
+	}
+
+	/**
+	 * @param x x-coordinate
+	 * @param y y-coordinate
+	 * @return palette index of the pixel
+	 */
+	public int index(int x, int y) {
+		return indices[y * width + x] & 0xff;
+	}
+
+	/**
+	 * @param palette colors (ARGB) by palette index
+	 * @return new array with the pixel colors (ARGB) in row order
+	 */
+	public int[] argb(int[] palette) {
+		checkNotNull(palette);
+		var pixels = new int[indices.length];
+		for (int i = 0; i < indices.length; ++i) {
+			pixels[i] = palette[indices[i] & 0xff];
+		}
+		return pixels;
+	}
+
+	/**
+	 * @param palette colors (ARGB) by palette index
+	 * @return image with the colors from the palette, created on first access
+	 */
+	public synchronized Image image(int[] palette) {
+		checkNotNull(palette);
+		var image = images.get(new Palette(palette));
+		if (image == null) {
+			var writableImage = new WritableImage(width, height);
+			writableImage.getPixelWriter().setPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), argb(palette), 0,
+					width);
+			images.put(new Palette(palette.clone()), writableImage);
+			image = writableImage;
+		}
+		return image;
+	}
+}
@@ -0,0 +1,167 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.ui.fx.rendering2d;
+
+import javafx.geometry.Rectangle2D;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.paint.Color;
+
+import java.util.Arrays;
+
+import static de.amr.games.pacman.lib.Globals.checkNotNull;
+
+/**
+ * Raster of ARGB pixels (one int per pixel, not premultiplied) for software rendering. Drawing into a raster needs no
+ * JavaFX thread or graphics pipeline, so it can happen on any thread.
+ *
+ * @author Armin Reichert
+ */
+public class PixelRaster {
+
+	/**
+	 * Decodes the pixels of an image. Must be called on the JavaFX application thread if the image is a writable image
+	 * that might be changed concurrently.
+	 *
+	 * @param image image
+	 * @return raster with a copy of the image pixels
+	 */
+	public static PixelRaster of(Image image) {
+		checkNotNull(image);
+		var raster = new PixelRaster((int) image.getWidth(), (int) image.getHeight());
+		raster.read(image);
+		return raster;
+	}
+
+	public static int argb(Color color) {
+		return (int) Math.round(color.getOpacity() * 255) << 24 | (int) Math.round(color.getRed() * 255) << 16
+				| (int) Math.round(color.getGreen() * 255) << 8 | (int) Math.round(color.getBlue() * 255);
+	}
+
+	private final int width;
+	private final int height;
+	private final int[] pixels;
+
+	public PixelRaster(int width, int height) {
+		if (width <= 0 || height <= 0) {
+			throw new IllegalArgumentException("Illegal raster size: " + width + "x" + height);
+		}
+		this.width = width;
+		this.height = height;
+		pixels = new int[width * height];
+	}
+
+	public int width() {
+		return width;
+	}
+
+	public int height() {
+		return height;
+	}
+
+	/**
+	 * @return the pixel array, row by row
+	 */
+	public int[] pixels() {
+		return pixels;
+	}
+
+	/**
+	 * Replaces the pixels of this raster by the pixels of an image of the same size.
+	 *
+	 * @param image image
+	 */
+	public void read(Image image) {
+		checkNotNull(image);
+		if ((int) image.getWidth() != width || (int) image.getHeight() != height) {
+			throw new IllegalArgumentException("Image size differs from raster size " + width + "x" + height);
+		}
+		image.getPixelReader().getPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), pixels, 0, width);
+	}
+
+	/**
+	 * @param argb color
+	 * @return copy of this raster with all non-transparent pixels replaced by the given color, e.g. to color a mask
+	 */
+	public PixelRaster tinted(int argb) {
+		var copy = new PixelRaster(width, height);
+		for (int i = 0; i < pixels.length; ++i) {
+			copy.pixels[i] = pixels[i] >>> 24 != 0 ? argb : 0;
+		}
+		return copy;
+	}
+
+	public void clear(int argb) {
+		Arrays.fill(pixels, argb);
+	}
+
+	/**
+	 * Fills a rectangle, parts outside the raster are clipped.
+	 */
+	public void fillRect(int x, int y, int w, int h, int argb) {
+		int x0 = Math.max(x, 0), x1 = Math.min(x + w, width);
+		int y0 = Math.max(y, 0), y1 = Math.min(y + h, height);
+		for (int row = y0; row < y1; ++row) {
+			int offset = row * width;
+			Arrays.fill(pixels, offset + x0, offset + x1, argb);
+		}
+	}
+
+	/**
+	 * Draws a region of the source raster, parts outside this raster are clipped. Fully transparent source pixels are
+	 * skipped, partially transparent source pixels are blended over the existing pixels.
+	 *
+	 * @param source source raster
+	 * @param sprite source region
+	 * @param x      target x position
+	 * @param y      target y position
+	 */
+	public void blit(PixelRaster source, Rectangle2D sprite, int x, int y) {
+		blit(source, (int) sprite.getMinX(), (int) sprite.getMinY(), (int) sprite.getWidth(), (int) sprite.getHeight(), x,
+				y);
+	}
+
+	public void blit(PixelRaster source, int sx, int sy, int sw, int sh, int x, int y) {
+		// clip against target and source
+		if (x < 0) {
+			sx -= x;
+			sw += x;
+			x = 0;
+		}
+		if (y < 0) {
+			sy -= y;
+			sh += y;
+			y = 0;
+		}
+		sw = Math.min(Math.min(sw, width - x), source.width - sx);
+		sh = Math.min(Math.min(sh, height - y), source.height - sy);
+		if (sw <= 0 || sh <= 0) {
+			return;
+		}
+		int[] src = source.pixels;
+		for (int row = 0; row < sh; ++row) {
+			int srcOffset = (sy + row) * source.width + sx;
+			int dstOffset = (y + row) * width + x;
+			for (int col = 0; col < sw; ++col) {
+				int p = src[srcOffset + col];
+				int alpha = p >>> 24;
+				if (alpha == 255) {
+					pixels[dstOffset + col] = p;
+				} else if (alpha != 0) {
+					pixels[dstOffset + col] = blend(p, pixels[dstOffset + col], alpha);
+				}
+			}
+		}
+	}
+
+	private static int blend(int src, int dst, int alpha) {
+		int inv = 255 - alpha;
+		int r = (((src >> 16) & 0xFF) * alpha + ((dst >> 16) & 0xFF) * inv) / 255;
+		int g = (((src >> 8) & 0xFF) * alpha + ((dst >> 8) & 0xFF) * inv) / 255;
+		int b = ((src & 0xFF) * alpha + (dst & 0xFF) * inv) / 255;
+		int a = alpha + ((dst >>> 24) * inv) / 255;
+		return a << 24 | r << 16 | g << 8 | b;
+	}
+}
@@ -8,34 +8,83 @@ import de.amr.games.pacman.model.actors.Animations;
 import de.amr.games.pacman.ui.fx.util.SpriteAnimation;
 import javafx.geometry.Rectangle2D;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
 /**
+ * Animations of a creature, registered under a small int key and a name. Selection and per-frame updates work with the
+ * keys, the name-based methods of the {@link Animations} interface are mapped to keys.
+ *
  * @author Armin Reichert
  */
 public abstract class SpriteAnimations implements Animations<SpriteAnimation, Rectangle2D> {
 
-	protected final Map<String, SpriteAnimation> animationsByName = new HashMap<>();
-	protected String currentAnimationName;
+	public static final int NONE = -1;
+
+	private final Map<String, Integer> keysByName = new HashMap<>();
+	private SpriteAnimation[] animations = new SpriteAnimation[0];
+	private String[] names = new String[0];
+	protected int currentKey = NONE;
 	protected SpriteAnimation currentAnimation;
 
+	/**
+	 * @param key       animation key, small non-negative number
+	 * @param name      animation name
+	 * @param animation the animation
+	 */
+	protected void register(int key, String name, SpriteAnimation animation) {
+		if (key >= animations.length) {
+			animations = Arrays.copyOf(animations, key + 1);
+			names = Arrays.copyOf(names, key + 1);
+		}
+		animations[key] = animation;
+		names[key] = name;
+		keysByName.put(name, key);
+	}
+
+	/**
+	 * @param name animation name
+	 * @return key of animation with this name
+	 */
+	public int key(String name) {
+		var key = keysByName.get(name);
+		if (key != null) {
+			return key;
+		}
+		throw new IllegalArgumentException("Illegal animation name: " + name);
+	}
+
 	@Override
 	public void select(String name, Object... args) {
-		if (!name.equals(currentAnimationName)) {
-			currentAnimationName = name;
-			currentAnimation = byName(name);
+		// only look up the key if the selection changes
+		int key = currentKey != NONE && names[currentKey].equals(name) ? currentKey : key(name);
+		select(key, args);
+	}
+
+	public void select(int key, Object... args) {
+		if (key != currentKey) {
+			currentAnimation = byKey(key);
+			currentKey = key;
 			if (currentAnimation != null) {
 				currentAnimation.setFrameIndex(0);
 			}
 		}
 	}
 
-	public SpriteAnimation byName(String name) {
-		if (animationsByName.containsKey(name)) {
-			return animationsByName.get(name);
+	public SpriteAnimation byKey(int key) {
+		if (0 <= key && key < animations.length && animations[key] != null) {
+			return animations[key];
 		}
-		throw new IllegalArgumentException("Illegal animation name: " + name);
+		throw new IllegalArgumentException("Illegal animation key: " + key);
+	}
+
+	public SpriteAnimation byName(String name) {
+		return byKey(key(name));
+	}
+
+	public int currentKey() {
+		return currentKey;
 	}
 
 	@Override
@@ -45,7 +94,7 @@ public abstract class SpriteAnimations implements Animations<SpriteAnimation, Re
 
 	@Override
 	public String currentAnimationName() {
-		return currentAnimationName;
+		return currentKey != NONE ? names[currentKey] : null;
 	}
 
 	@Override
@@ -71,7 +120,7 @@ public abstract class SpriteAnimations implements Animations<SpriteAnimation, Re
 
 	@Override
 	public final Rectangle2D currentSprite() {
-		if (currentAnimationName != null) {
+		if (currentKey != NONE) {
 			updateCurrentAnimation();
 			return currentAnimation.currentSprite();
 		}
@@ -81,4 +130,4 @@ public abstract class SpriteAnimations implements Animations<SpriteAnimation, Re
 	protected void updateCurrentAnimation() {
 		// for example to adjust to current ghost direction
 	}
-}
\ No newline at end of file
+}
@@ -20,6 +20,12 @@ import static de.amr.games.pacman.lib.Globals.checkNotNull;
 public class GhostAnimationsMsPacManGame extends SpriteAnimations
 		implements Animations<SpriteAnimation, Rectangle2D> {
 
+	public static final int NORMAL = 0;
+	public static final int FRIGHTENED = 1;
+	public static final int FLASHING = 2;
+	public static final int EYES = 3;
+	public static final int NUMBER = 4;
+
 	private final Ghost ghost;
 	private final SpritesheetMsPacManGame spritesheet;
 
@@ -60,31 +66,31 @@ public class GhostAnimationsMsPacManGame extends SpriteAnimations
 				.sprites(spritesheet.ghostNumberSprites())
 			.end();
 
-		animationsByName.put(GhostAnimations.GHOST_NORMAL,     normal);
-		animationsByName.put(GhostAnimations.GHOST_FRIGHTENED, frightened);
-		animationsByName.put(GhostAnimations.GHOST_FLASHING,   flashing);
-		animationsByName.put(GhostAnimations.GHOST_EYES,       eyes);
-		animationsByName.put(GhostAnimations.GHOST_NUMBER,     number);
+		register(NORMAL, GhostAnimations.GHOST_NORMAL, normal);
+		register(FRIGHTENED, GhostAnimations.GHOST_FRIGHTENED, frightened);
+		register(FLASHING, GhostAnimations.GHOST_FLASHING, flashing);
+		register(EYES, GhostAnimations.GHOST_EYES, eyes);
+		register(NUMBER, GhostAnimations.GHOST_NUMBER, number);
 
-		// TODO check this
+		// always running, they only advance when their sprite is accessed
 		eyes.start();
 		frightened.start();
 		flashing.start();
 	}
 
 	@Override
-	public void select(String name, Object... args) {
-		super.select(name, args);
-		if (GhostAnimations.GHOST_NUMBER.equals(name)) {
-			byName(GhostAnimations.GHOST_NUMBER).setFrameIndex((int) args[0]);
+	public void select(int key, Object... args) {
+		super.select(key, args);
+		if (key == NUMBER) {
+			byKey(NUMBER).setFrameIndex((int) args[0]);
 		}
 	}
 
 	@Override
 	public void updateCurrentAnimation() {
-		if (GhostAnimations.GHOST_NORMAL.equals(currentAnimationName)) {
+		if (currentKey == NORMAL) {
 			currentAnimation.setSprites(spritesheet.ghostNormalSprites(ghost.id(), ghost.wishDir()));
-		} else if (GhostAnimations.GHOST_EYES.equals(currentAnimationName)) {
+		} else if (currentKey == EYES) {
 			currentAnimation.setSprites(spritesheet.ghostEyesSprites(ghost.wishDir()));
 		}
 	}
@@ -17,6 +17,10 @@ import static de.amr.games.pacman.lib.Globals.checkNotNull;
  */
 public class PacAnimationsMsPacManGame extends SpriteAnimations {
 
+	public static final int MUNCHING = 0;
+	public static final int DYING = 1;
+	public static final int HUSBAND_MUNCHING = 2;
+
 	private final Pac pac;
 	private final SpritesheetMsPacManGame spritesheet;
 
@@ -45,17 +49,17 @@ public class PacAnimationsMsPacManGame extends SpriteAnimations {
 				.loop()
 			.end();
 
-		animationsByName.put(PacAnimations.MUNCHING,         munching);
-		animationsByName.put(PacAnimations.DYING,            dying);
-		animationsByName.put(PacAnimations.HUSBAND_MUNCHING, husbandMunching);
+		register(MUNCHING, PacAnimations.MUNCHING, munching);
+		register(DYING, PacAnimations.DYING, dying);
+		register(HUSBAND_MUNCHING, PacAnimations.HUSBAND_MUNCHING, husbandMunching);
 	}
 
 	@Override
 	public void updateCurrentAnimation() {
-		if (PacAnimations.MUNCHING.equals(currentAnimationName)) {
+		if (currentKey == MUNCHING) {
 			currentAnimation.setSprites(spritesheet.msPacManMunchingSprites(pac.moveDir()));
 		}
-		if (PacAnimations.HUSBAND_MUNCHING.equals(currentAnimationName)) {
+		if (currentKey == HUSBAND_MUNCHING) {
 			currentAnimation.setSprites(spritesheet.pacManMunchingSprites(pac.moveDir()));
 		}
 	}
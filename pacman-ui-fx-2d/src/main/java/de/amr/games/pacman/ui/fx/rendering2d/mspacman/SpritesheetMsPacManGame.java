@@ -5,8 +5,10 @@ See file LICENSE in repository root directory for details.
 package de.amr.games.pacman.ui.fx.rendering2d.mspacman;
 
 import de.amr.games.pacman.lib.Direction;
+import de.amr.games.pacman.ui.fx.rendering2d.IndexedImage;
 import de.amr.games.pacman.ui.fx.util.Order;
 import de.amr.games.pacman.ui.fx.util.SpriteAnimation;
+import de.amr.games.pacman.ui.fx.util.SpriteTable;
 import de.amr.games.pacman.ui.fx.util.Spritesheet;
 import javafx.geometry.Rectangle2D;
 import javafx.scene.image.Image;
@@ -22,13 +24,163 @@ public class SpritesheetMsPacManGame implements Spritesheet {
 	private static final int MAZE_IMAGE_WIDTH = 226;
 	private static final int MAZE_IMAGE_HEIGHT = 248;
 
-	private static final int SECOND_COLUMN = 228;
 	private static final int THIRD_COLUMN = 456;
 
+	private static final int MS_PACMAN_MAZE_COUNT = 6;
+
+	// palette indices of maze colors
+	public static final int MAZE_BACKGROUND = 0;
+	public static final int MAZE_FILL = 1;
+	public static final int MAZE_STROKE = 2;
+	public static final int MAZE_DOOR = 3;
+	public static final int MAZE_FOOD = 4;
+
+	private static final int TRANSPARENT = 0x00000000;
+	private static final int BLACK = 0xff000000;
+	private static final int WHITE = 0xffffffff;
+	private static final int DOOR_COLOR = 0xffffb7ff;
+
+	// fill, stroke, food and flashing stroke color of each maze
+	private static final int[][] MAZE_COLORS = {
+		{ 0xffffb7ae, 0xffff0000, 0xffdedeff, WHITE },
+		{ 0xff47b7ff, 0xffdedeff, 0xffffff00, 0xffdedeff },
+		{ 0xffde9751, 0xffdedeff, 0xffff0000, 0xffdedeff },
+		{ 0xff2121ff, 0xffffb751, 0xffdedeff, WHITE },
+		{ 0xffffb7ff, 0xffffff00, 0xff00ffff, WHITE },
+		{ 0xffffb7ae, 0xffff0000, 0xffdedeff, WHITE },
+	};
+
 	private final Image source;
+	private final Rectangle2D spritesRegion;
+	private final SpriteTable table;
+
+	// IDs of first sprite of each group
+	private final int idBonusSymbols;
+	private final int idBonusValues;
+	private final int idLivesCounter;
+	private final int idHeart;
+	private final int idBlueBag;
+	private final int idJuniorPac;
+
+	// sprite arrays used by the animations
+	private final Rectangle2D[] ghostNumberSprites;
+	private final Rectangle2D[][] msPacManMunchingSprites = new Rectangle2D[4][];
+	private final Rectangle2D[] msPacManDyingSprites;
+	private final Rectangle2D[][][] ghostsNormalSprites = new Rectangle2D[4][4][];
+	private final Rectangle2D[] ghostFrightenedSprites;
+	private final Rectangle2D[] ghostFlashingSprites;
+	private final Rectangle2D[][] ghostEyesSprites = new Rectangle2D[4][];
+	private final Rectangle2D[][] pacManMunchingSprites = new Rectangle2D[4][];
+	private final Rectangle2D[] clapperboardSprites;
+	private final Rectangle2D[] storkSprites;
+
+	// mazes are stored as indexed images and drawn with the palette of the current maze state
+	private final IndexedImage[] mazes = new IndexedImage[MS_PACMAN_MAZE_COUNT];
+	private final int[][] filledMazePalettes = new int[MS_PACMAN_MAZE_COUNT][];
+	private final int[][] emptyMazePalettes = new int[MS_PACMAN_MAZE_COUNT][];
+	private final int[][] flashingMazePalettes = new int[MS_PACMAN_MAZE_COUNT][];
+
+	public SpritesheetMsPacManGame(Image sheet) {
+		// third column contains the sprites (first two columns the maze images)
+		this(sheet, sheet, new Rectangle2D(THIRD_COLUMN, 0, sheet.getWidth() - THIRD_COLUMN, 240));
+	}
 
-	public SpritesheetMsPacManGame(Image source) {
+	/**
+	 * @param sheet         the original spritesheet image, the mazes are taken from it
+	 * @param source        image containing the sprites (third column of the sheet), for example a texture atlas
+	 * @param spritesRegion region of the sprites inside the source image
+	 */
+	public SpritesheetMsPacManGame(Image sheet, Image source, Rectangle2D spritesRegion) {
 		this.source = source;
+		this.spritesRegion = spritesRegion;
+		var builder = new SpriteTable.Builder();
+
+		int idGhostNumbers = builder.addAll(sprite(0, 8), sprite(1, 8), sprite(2, 8), sprite(3, 8));
+		idBonusSymbols = builder.addAll(spritesRightOf(3, 0, 7));
+		idBonusValues = builder.addAll(spritesRightOf(3, 1, 7));
+		int[] idMsPacManWide = new int[4];
+		int[] idMsPacManOpen = new int[4];
+		int[] idMsPacManClosed = new int[4];
+		for (int d = 0; d < 4; ++d) {
+			idMsPacManWide[d] = builder.add(sprite(0, d));
+			idMsPacManOpen[d] = builder.add(sprite(1, d));
+			idMsPacManClosed[d] = builder.add(sprite(2, d));
+		}
+		idLivesCounter = idMsPacManOpen[DIR_ORDER.index(Direction.RIGHT)];
+		int[][] idGhostNormal = new int[4][4];
+		for (int id = 0; id < 4; ++id) {
+			for (int d = 0; d < 4; ++d) {
+				idGhostNormal[id][d] = builder.addAll(sprite(2 * d, 4 + id), sprite(2 * d + 1, 4 + id));
+			}
+		}
+		int idGhostFlashing = builder.addAll(spritesRightOf(8, 4, 4)); // first two are frightened sprites
+		int idGhostEyes = builder.addAll(spritesRightOf(8, 5, 4));
+		int idPacManClosed = builder.add(sprite(2, 9));
+		int[] idPacManWide = new int[4];
+		int[] idPacManOpen = new int[4];
+		for (int d = 0; d < 4; ++d) {
+			idPacManWide[d] = builder.add(sprite(0, 9 + d));
+			idPacManOpen[d] = builder.add(sprite(1, 9 + d));
+		}
+		idHeart = builder.add(sprite(2, 10));
+		idBlueBag = builder.add(rect(488, 199, 8, 8));
+		idJuniorPac = builder.add(rect(509, 200, 8, 8));
+		int idClapperboard = builder.addAll( //
+				rect(456, 208, 32, 32), // open
+				rect(488, 208, 32, 32), // middle
+				rect(520, 208, 32, 32)); // closed
+		int idStork = builder.addAll(rect(489, 176, 32, 16), rect(521, 176, 32, 16));
+		table = builder.build();
+
+		ghostNumberSprites = table.range(idGhostNumbers, 4);
+		for (int d = 0; d < 4; ++d) {
+			int wide = idMsPacManWide[d], open = idMsPacManOpen[d], closed = idMsPacManClosed[d];
+			msPacManMunchingSprites[d] = table.rects(open, open, wide, wide, open, open, open, closed, closed);
+			pacManMunchingSprites[d] = table.rects(idPacManWide[d], idPacManOpen[d], idPacManClosed);
+			ghostEyesSprites[d] = table.range(idGhostEyes + d, 1);
+			for (int id = 0; id < 4; ++id) {
+				ghostsNormalSprites[id][d] = table.range(idGhostNormal[id][d], 2);
+			}
+		}
+		int right = idMsPacManOpen[DIR_ORDER.index(Direction.RIGHT)];
+		int left = idMsPacManOpen[DIR_ORDER.index(Direction.LEFT)];
+		int up = idMsPacManOpen[DIR_ORDER.index(Direction.UP)];
+		int down = idMsPacManOpen[DIR_ORDER.index(Direction.DOWN)];
+		// TODO not yet 100% accurate
+		msPacManDyingSprites = table.rects(down, left, up, right, down, left, up, right, down, left, up);
+		ghostFrightenedSprites = table.range(idGhostFlashing, 2);
+		ghostFlashingSprites = table.range(idGhostFlashing, 4);
+		clapperboardSprites = table.range(idClapperboard, 3);
+		storkSprites = table.range(idStork, 2);
+
+		// first column contains the filled mazes, the empty mazes in the second column are not needed
+		for (int i = 0; i < MS_PACMAN_MAZE_COUNT; ++i) {
+			int fill = MAZE_COLORS[i][0], stroke = MAZE_COLORS[i][1], food = MAZE_COLORS[i][2];
+			int flashingStroke = MAZE_COLORS[i][3];
+			filledMazePalettes[i] = new int[] { TRANSPARENT, fill, stroke, DOOR_COLOR, food };
+			emptyMazePalettes[i] = new int[] { TRANSPARENT, fill, stroke, DOOR_COLOR, TRANSPARENT };
+			flashingMazePalettes[i] = new int[] { TRANSPARENT, BLACK, flashingStroke, BLACK, TRANSPARENT };
+			var region = new Rectangle2D(0, i * MAZE_IMAGE_HEIGHT, MAZE_IMAGE_WIDTH, MAZE_IMAGE_HEIGHT);
+			mazes[i] = IndexedImage.of(sheet, region, filledMazePalettes[i]);
+		}
+	}
+
+	private Rectangle2D sprite(int tileX, int tileY) {
+		return rect(THIRD_COLUMN + r(tileX), r(tileY), raster(), raster());
+	}
+
+	// sprite coordinates are given in the original sheet, the sprites region corresponds to its third column
+	@Override
+	public Rectangle2D rect(double x, double y, double width, double height) {
+		return new Rectangle2D(spritesRegion.getMinX() - THIRD_COLUMN + x, spritesRegion.getMinY() + y, width, height);
+	}
+
+	private Rectangle2D[] spritesRightOf(int tileX, int tileY, int numSprites) {
+		var sprites = new Rectangle2D[numSprites];
+		for (int i = 0; i < numSprites; ++i) {
+			sprites[i] = sprite(tileX + i, tileY);
+		}
+		return sprites;
 	}
 
 	@Override
@@ -36,179 +188,143 @@ public class SpritesheetMsPacManGame implements Spritesheet {
 		return source;
 	}
 
+	@Override
+	public SpriteTable spriteTable() {
+		return table;
+	}
+
 	@Override
 	public int raster() {
 		return 16;
 	}
 
-	// third column contains the sprites (first two columns the maze images)
-	private Rectangle2D sprite(int tileX, int tileY) {
-		double offsetX = THIRD_COLUMN;
-		double offsetY = 0;
-		return new Rectangle2D(offsetX + r(tileX), offsetY + r(tileY), raster(), raster());
+	@Override
+	public Rectangle2D spritesRegion() {
+		return spritesRegion;
 	}
 
-	private Rectangle2D[] ghostNumberSprites;
-
 	public Rectangle2D[] ghostNumberSprites() {
-		if (ghostNumberSprites == null) {
-			ghostNumberSprites = array(sprite(0, 8), sprite(1, 8), sprite(2, 8), sprite(3, 8));
-		}
 		return ghostNumberSprites;
 	}
 
+	/**
+	 * @param symbol bonus symbol (0..6)
+	 * @return ID of bonus symbol sprite
+	 */
+	public int bonusSymbolSpriteID(int symbol) {
+		return idBonusSymbols + symbol;
+	}
+
 	public Rectangle2D bonusSymbolSprite(int symbol) {
-		return sprite(3 + symbol, 0);
+		return table.rect(bonusSymbolSpriteID(symbol));
 	}
 
-	public Rectangle2D bonusValueSprite(int symbol) {
-		return sprite(3 + symbol, 1);
+	/**
+	 * @param symbol bonus symbol (0..6)
+	 * @return ID of bonus value sprite
+	 */
+	public int bonusValueSpriteID(int symbol) {
+		return idBonusValues + symbol;
 	}
 
-	public Rectangle2D livesCounterSprite() {
-		return sprite(1, 0);
+	public Rectangle2D bonusValueSprite(int symbol) {
+		return table.rect(bonusValueSpriteID(symbol));
 	}
 
-	private Rectangle2D[][] msPacManMunchingSprites = new Rectangle2D[4][];
+	public int livesCounterSpriteID() {
+		return idLivesCounter;
+	}
 
 	public Rectangle2D[] msPacManMunchingSprites(Direction dir) {
-		int d = DIR_ORDER.index(dir);
-		if (msPacManMunchingSprites[d] == null) {
-			var wide = sprite(0, d);
-			var open = sprite(1, d);
-			var closed = sprite(2, d);
-			msPacManMunchingSprites[d] = array(open, open, wide, wide, open, open, open, closed, closed);
-		}
-		return msPacManMunchingSprites[d];
+		return msPacManMunchingSprites[DIR_ORDER.index(dir)];
 	}
 
-	private Rectangle2D[] msPacManDyingSprites;
-
 	public Rectangle2D[] msPacManDyingSprites() {
-		if (msPacManDyingSprites == null) {
-			var right = sprite(1, 0);
-			var left = sprite(1, 1);
-			var up = sprite(1, 2);
-			var down = sprite(1, 3);
-			// TODO not yet 100% accurate
-			msPacManDyingSprites = array(down, left, up, right, down, left, up, right, down, left, up);
-		}
 		return msPacManDyingSprites;
 	}
 
-	private Rectangle2D[][][] ghostsNormalSprites = new Rectangle2D[4][4][];
-
 	public Rectangle2D[] ghostNormalSprites(byte id, Direction dir) {
-		int d = DIR_ORDER.index(dir);
-		if (ghostsNormalSprites[id][d] == null) {
-			ghostsNormalSprites[id][d] = array(sprite(2 * d, 4 + id), sprite(2 * d + 1, 4 + id));
-		}
-		return ghostsNormalSprites[id][d];
+		return ghostsNormalSprites[id][DIR_ORDER.index(dir)];
 	}
 
-	private Rectangle2D[] ghostFrightenedSprites;
-
 	public Rectangle2D[] ghostFrightenedSprites() {
-		if (ghostFrightenedSprites == null) {
-			ghostFrightenedSprites = array(sprite(8, 4), sprite(9, 4));
-		}
 		return ghostFrightenedSprites;
 	}
 
-	private Rectangle2D[] ghostFlashingSprites;
-
 	public Rectangle2D[] ghostFlashingSprites() {
-		if (ghostFlashingSprites == null) {
-			ghostFlashingSprites = array(sprite(8, 4), sprite(9, 4), sprite(10, 4), sprite(11, 4));
-		}
 		return ghostFlashingSprites;
 	}
 
-	private Rectangle2D[][] ghostEyesSprites = new Rectangle2D[4][];
-
 	public Rectangle2D[] ghostEyesSprites(Direction dir) {
-		int d = DIR_ORDER.index(dir);
-		if (ghostEyesSprites[d] == null) {
-			ghostEyesSprites[d] = array(sprite(8 + d, 5));
-		}
-		return ghostEyesSprites[d];
+		return ghostEyesSprites[DIR_ORDER.index(dir)];
 	}
 
 	// Ms. Pac-Man specific:
 
-	private static final int MS_PACMAN_MAZE_COUNT = 6;
+	/**
+	 * @return number of mazes
+	 */
+	public int numMazes() {
+		return mazes.length;
+	}
 
-	private Rectangle2D[] highlightedMazeSprites = new Rectangle2D[MS_PACMAN_MAZE_COUNT];
+	/**
+	 * @param mazeNumber maze number (1..6)
+	 * @return indexed image of the maze, see {@link #MAZE_FILL} etc. for the palette indices
+	 */
+	public IndexedImage maze(int mazeNumber) {
+		return mazes[mazeNumber - 1];
+	}
 
-	public Rectangle2D highlightedMaze(int mazeNumber) {
-		if (highlightedMazeSprites[mazeNumber - 1] == null) {
-			highlightedMazeSprites[mazeNumber - 1] = new Rectangle2D(0, (mazeNumber - 1) * MAZE_IMAGE_HEIGHT,
-					MAZE_IMAGE_WIDTH, MAZE_IMAGE_HEIGHT);
-		}
-		return highlightedMazeSprites[mazeNumber - 1];
+	public int[] filledMazePalette(int mazeNumber) {
+		return filledMazePalettes[mazeNumber - 1];
 	}
 
-	private Rectangle2D[] emptyMazeSprites = new Rectangle2D[MS_PACMAN_MAZE_COUNT];
+	public int[] emptyMazePalette(int mazeNumber) {
+		return emptyMazePalettes[mazeNumber - 1];
+	}
 
-	public Rectangle2D emptyMaze(int mazeNumber) {
-		int i = mazeNumber - 1;
-		if (emptyMazeSprites[i] == null) {
-			emptyMazeSprites[i] = rect(SECOND_COLUMN, i * MAZE_IMAGE_HEIGHT, MAZE_IMAGE_WIDTH, MAZE_IMAGE_HEIGHT);
-		}
-		return emptyMazeSprites[i];
+	public int[] flashingMazePalette(int mazeNumber) {
+		return flashingMazePalettes[mazeNumber - 1];
 	}
 
-	private Rectangle2D[] filledMazeSprites = new Rectangle2D[MS_PACMAN_MAZE_COUNT];
+	public Image filledMaze(int mazeNumber) {
+		return maze(mazeNumber).image(filledMazePalette(mazeNumber));
+	}
 
-	public Rectangle2D filledMaze(int mazeNumber) {
-		int i = mazeNumber - 1;
-		if (filledMazeSprites[i] == null) {
-			filledMazeSprites[i] = rect(0, i * MAZE_IMAGE_HEIGHT, MAZE_IMAGE_WIDTH, MAZE_IMAGE_HEIGHT);
-		}
-		return filledMazeSprites[i];
+	public Image emptyMaze(int mazeNumber) {
+		return maze(mazeNumber).image(emptyMazePalette(mazeNumber));
 	}
 
-	private Rectangle2D[][] pacManMunchingSprites = new Rectangle2D[4][];
+	public Image flashingMaze(int mazeNumber) {
+		return maze(mazeNumber).image(flashingMazePalette(mazeNumber));
+	}
 
 	public Rectangle2D[] pacManMunchingSprites(Direction dir) {
-		int d = DIR_ORDER.index(dir);
-		if (pacManMunchingSprites[d] == null) {
-			pacManMunchingSprites[d] = array(sprite(0, 9 + d), sprite(1, 9 + d), sprite(2, 9));
-		}
-		return pacManMunchingSprites[d];
+		return pacManMunchingSprites[DIR_ORDER.index(dir)];
 	}
 
 	public Rectangle2D heartSprite() {
-		return sprite(2, 10);
+		return table.rect(idHeart);
 	}
 
 	public Rectangle2D blueBagSprite() {
-		return rect(488, 199, 8, 8);
+		return table.rect(idBlueBag);
 	}
 
 	public Rectangle2D juniorPacSprite() {
-		return rect(509, 200, 8, 8);
+		return table.rect(idJuniorPac);
 	}
 
-	private Rectangle2D[] clapperboardSprites;
-
 	public Rectangle2D[] clapperboardSprites() {
-		if (clapperboardSprites == null) {
-			clapperboardSprites = array( //
-					rect(456, 208, 32, 32), // open
-					rect(488, 208, 32, 32), // middle
-					rect(520, 208, 32, 32)); // closed
-		}
 		return clapperboardSprites;
 	}
 
 	public SpriteAnimation createStorkFlyingAnimation() {
 		return SpriteAnimation.begin() //
-				.sprites(//
-						rect(489, 176, 32, 16), //
-						rect(521, 176, 32, 16)) //
+				.sprites(storkSprites) //
 				.frameTicks(8) //
 				.loop() //
 				.end();
 	}
-}
\ No newline at end of file
+}
@@ -17,6 +17,16 @@ import static de.amr.games.pacman.lib.Globals.checkNotNull;
  */
 public class GhostAnimationsPacManGame extends SpriteAnimations {
 
+	public static final int NORMAL = 0;
+	public static final int FRIGHTENED = 1;
+	public static final int FLASHING = 2;
+	public static final int EYES = 3;
+	public static final int NUMBER = 4;
+	public static final int BLINKY_DAMAGED = 5;
+	public static final int BLINKY_STRETCHED = 6;
+	public static final int BLINKY_PATCHED = 7;
+	public static final int BLINKY_NAKED = 8;
+
 	private final Ghost ghost;
 	private final SpritesheetPacManGame spritesheet;
 
@@ -81,35 +91,35 @@ public class GhostAnimationsPacManGame extends SpriteAnimations {
 				.loop()
 			.end();
 
-		animationsByName.put(GhostAnimations.GHOST_NORMAL,     normal);
-		animationsByName.put(GhostAnimations.GHOST_FRIGHTENED, frightened);
-		animationsByName.put(GhostAnimations.GHOST_FLASHING,   flashing);
-		animationsByName.put(GhostAnimations.GHOST_EYES,       eyesAnimation);
-		animationsByName.put(GhostAnimations.GHOST_NUMBER,     numberAnimation);
-		animationsByName.put(GhostAnimations.BLINKY_DAMAGED,   damaged);
-		animationsByName.put(GhostAnimations.BLINKY_STRETCHED, stretched);
-		animationsByName.put(GhostAnimations.BLINKY_PATCHED,   patched);
-		animationsByName.put(GhostAnimations.BLINKY_NAKED,     naked);
+		register(NORMAL, GhostAnimations.GHOST_NORMAL, normal);
+		register(FRIGHTENED, GhostAnimations.GHOST_FRIGHTENED, frightened);
+		register(FLASHING, GhostAnimations.GHOST_FLASHING, flashing);
+		register(EYES, GhostAnimations.GHOST_EYES, eyesAnimation);
+		register(NUMBER, GhostAnimations.GHOST_NUMBER, numberAnimation);
+		register(BLINKY_DAMAGED, GhostAnimations.BLINKY_DAMAGED, damaged);
+		register(BLINKY_STRETCHED, GhostAnimations.BLINKY_STRETCHED, stretched);
+		register(BLINKY_PATCHED, GhostAnimations.BLINKY_PATCHED, patched);
+		register(BLINKY_NAKED, GhostAnimations.BLINKY_NAKED, naked);
 
-		// TODO check this
+		// always running, they only advance when their sprite is accessed
 		eyesAnimation.start();
 		frightened.start();
 		flashing.start();
 	}
 
 	@Override
-	public void select(String name, Object... args) {
-		super.select(name, args);
-		if (GhostAnimations.GHOST_NUMBER.equals(name)) {
-			byName(GhostAnimations.GHOST_NUMBER).setFrameIndex((int) args[0]);
+	public void select(int key, Object... args) {
+		super.select(key, args);
+		if (key == NUMBER) {
+			byKey(NUMBER).setFrameIndex((int) args[0]);
 		}
 	}
 
 	@Override
 	public void updateCurrentAnimation() {
-		if (GhostAnimations.GHOST_NORMAL.equals(currentAnimationName)) {
+		if (currentKey == NORMAL) {
 			currentAnimation.setSprites(spritesheet.ghostNormalSprites(ghost.id(), ghost.wishDir()));
-		} else if (GhostAnimations.GHOST_EYES.equals(currentAnimationName)) {
+		} else if (currentKey == EYES) {
 			currentAnimation.setSprites(spritesheet.ghostEyesSprites(ghost.wishDir()));
 		}
 	}
@@ -17,6 +17,10 @@ import static de.amr.games.pacman.lib.Globals.checkNotNull;
  */
 public class PacAnimationsPacManGame extends SpriteAnimations {
 
+	public static final int MUNCHING = 0;
+	public static final int DYING = 1;
+	public static final int BIG_PACMAN = 2;
+
 	private final Pac pac;
 	private final SpritesheetPacManGame spritesheet;
 
@@ -45,14 +49,14 @@ public class PacAnimationsPacManGame extends SpriteAnimations {
 				.loop()
 			.end();
 
-		animationsByName.put(PacAnimations.MUNCHING,   munching);
-		animationsByName.put(PacAnimations.DYING,      dying);
-		animationsByName.put(PacAnimations.BIG_PACMAN, bigPacMan);
+		register(MUNCHING, PacAnimations.MUNCHING, munching);
+		register(DYING, PacAnimations.DYING, dying);
+		register(BIG_PACMAN, PacAnimations.BIG_PACMAN, bigPacMan);
 	}
 
 	@Override
 	public void updateCurrentAnimation() {
-		if (PacAnimations.MUNCHING.equals(currentAnimationName)) {
+		if (currentKey == MUNCHING) {
 			currentAnimation.setSprites(spritesheet.pacMunchingSprites(pac.moveDir()));
 		}
 	}
@@ -6,6 +6,7 @@ package de.amr.games.pacman.ui.fx.rendering2d.pacman;
 
 import de.amr.games.pacman.lib.Direction;
 import de.amr.games.pacman.ui.fx.util.Order;
+import de.amr.games.pacman.ui.fx.util.SpriteTable;
 import de.amr.games.pacman.ui.fx.util.Spritesheet;
 import javafx.geometry.Rectangle2D;
 import javafx.scene.image.Image;
@@ -19,9 +20,101 @@ public class SpritesheetPacManGame implements Spritesheet {
 			Direction.RIGHT, Direction.LEFT, Direction.UP, Direction.DOWN);
 
 	private final Image source;
+	private final Rectangle2D spritesRegion;
+	private final SpriteTable table;
+
+	// IDs of first sprite of each group
+	private final int idGhostNumbers;
+	private final int idBonusSymbols;
+	private final int idBonusValues;
+	private final int idLivesCounter;
+
+	// sprite arrays used by the animations
+	private final Rectangle2D[] ghostNumberSprites;
+	private final Rectangle2D[][] pacMunchingSprites = new Rectangle2D[4][];
+	private final Rectangle2D[] pacDyingSprites;
+	private final Rectangle2D[][][] ghostNormalSprites = new Rectangle2D[4][4][];
+	private final Rectangle2D[] ghostFrightenedSprites;
+	private final Rectangle2D[] ghostFlashingSprites;
+	private final Rectangle2D[][] ghostEyesSprites = new Rectangle2D[4][];
+	private final Rectangle2D[] bigPacManSprites;
+	private final Rectangle2D[] blinkyDamagedSprites;
+	private final Rectangle2D[] blinkyStretchedSprites;
+	private final Rectangle2D[] blinkyPatchedSprites;
+	private final Rectangle2D[] blinkyNakedSprites;
 
 	public SpritesheetPacManGame(Image source) {
+		this(source, new Rectangle2D(0, 0, source.getWidth(), source.getHeight()));
+	}
+
+	/**
+	 * @param source        image containing the spritesheet, for example a texture atlas
+	 * @param spritesRegion region of the spritesheet inside the source image
+	 */
+	public SpritesheetPacManGame(Image source, Rectangle2D spritesRegion) {
 		this.source = source;
+		this.spritesRegion = spritesRegion;
+		var builder = new SpriteTable.Builder();
+
+		idGhostNumbers = builder.addAll(rect(0, 132, 16, 8), rect(16, 132, 16, 8), rect(32, 132, 16, 8),
+				rect(48, 132, 16, 8));
+		idBonusSymbols = builder.addAll(tilesRightOf(2, 3, 8));
+		idBonusValues = builder.addAll( //
+				rect(0, 148, 16, 8), // 100
+				rect(16, 148, 16, 8), // 300
+				rect(32, 148, 16, 8), // 500
+				rect(48, 148, 16, 8), // 700
+				rect(64, 148, 18, 8), // 1000
+				rect(62, 164, 20, 8), // 2000
+				rect(62, 180, 20, 8), // 3000
+				rect(62, 196, 20, 8)); // 5000
+		idLivesCounter = builder.add(rect(129, 15, 16, 16));
+
+		double m = 0.5; // margin
+		double size = 16 - 2 * m;
+		int idPacClosed = builder.add(rect(32 + m, 0 + m, size, size));
+		int[] idPacWide = new int[4];
+		int[] idPacMiddle = new int[4];
+		for (int d = 0; d < 4; ++d) {
+			idPacWide[d] = builder.add(rect(0 + m, d * 16 + m, size, size));
+			idPacMiddle[d] = builder.add(rect(16 + m, d * 16 + m, size, size));
+		}
+		int idPacDying = builder.add(rect(48 + m, m, size, size));
+		for (int i = 1; i < 11; ++i) {
+			builder.add(rect(48 + i * 16 + m, m, size, size));
+		}
+		int[][] idGhostNormal = new int[4][4];
+		for (int id = 0; id < 4; ++id) {
+			for (int d = 0; d < 4; ++d) {
+				idGhostNormal[id][d] = builder.addAll(tilesRightOf(2 * d, 4 + id, 2));
+			}
+		}
+		int idGhostFlashing = builder.addAll(tilesRightOf(8, 4, 4)); // first two are frightened sprites
+		int idGhostEyes = builder.addAll(tilesRightOf(8, 5, 4));
+		int idBigPacMan = builder.addAll(rect(32, 16, 32, 32), rect(64, 16, 32, 32), rect(96, 16, 32, 32));
+		int idBlinkyDamaged = builder.addAll(tile(8, 7), tile(9, 7));
+		int idBlinkyStretched = builder.addAll(tilesRightOf(8, 6, 5));
+		int idBlinkyPatched = builder.addAll(tilesRightOf(10, 7, 2));
+		int idBlinkyNaked = builder.addAll(rect(r(8), r(8), r(2), r(1)), rect(r(10), r(8), r(2), r(1)));
+		table = builder.build();
+
+		ghostNumberSprites = table.range(idGhostNumbers, 4);
+		for (int d = 0; d < 4; ++d) {
+			pacMunchingSprites[d] = table.rects(idPacClosed, idPacClosed, idPacMiddle[d], idPacMiddle[d], idPacWide[d],
+					idPacWide[d], idPacMiddle[d], idPacMiddle[d]);
+			ghostEyesSprites[d] = table.range(idGhostEyes + d, 1);
+			for (int id = 0; id < 4; ++id) {
+				ghostNormalSprites[id][d] = table.range(idGhostNormal[id][d], 2);
+			}
+		}
+		pacDyingSprites = table.range(idPacDying, 11);
+		ghostFrightenedSprites = table.range(idGhostFlashing, 2);
+		ghostFlashingSprites = table.range(idGhostFlashing, 4);
+		bigPacManSprites = table.range(idBigPacMan, 3);
+		blinkyDamagedSprites = table.range(idBlinkyDamaged, 2);
+		blinkyStretchedSprites = table.range(idBlinkyStretched, 5);
+		blinkyPatchedSprites = table.range(idBlinkyPatched, 2);
+		blinkyNakedSprites = table.range(idBlinkyNaked, 2);
 	}
 
 	@Override
@@ -29,141 +122,106 @@ public class SpritesheetPacManGame implements Spritesheet {
 		return source;
 	}
 
+	@Override
+	public Rectangle2D spritesRegion() {
+		return spritesRegion;
+	}
+
+	// sprite coordinates are relative to the sprites region
+	@Override
+	public Rectangle2D rect(double x, double y, double width, double height) {
+		return new Rectangle2D(spritesRegion.getMinX() + x, spritesRegion.getMinY() + y, width, height);
+	}
+
+	@Override
+	public SpriteTable spriteTable() {
+		return table;
+	}
+
 	@Override
 	public int raster() {
 		return 16;
 	}
 
-	private Rectangle2D[] ghostNumberSprites;
-
 	public Rectangle2D[] ghostNumberSprites() {
-		if (ghostNumberSprites == null) {
-			ghostNumberSprites = array(rect(0, 132, 16, 8), rect(16, 132, 16, 8), rect(32, 132, 16, 8), rect(48, 132, 16, 8));
-		}
 		return ghostNumberSprites;
 	}
 
+	/**
+	 * @param symbol bonus symbol (0..7)
+	 * @return ID of bonus symbol sprite
+	 */
+	public int bonusSymbolSpriteID(int symbol) {
+		return idBonusSymbols + symbol;
+	}
+
 	public Rectangle2D bonusSymbolSprite(int symbol) {
-		return tile(2 + symbol, 3);
+		return table.rect(bonusSymbolSpriteID(symbol));
+	}
+
+	/**
+	 * @param symbol bonus symbol (0..7)
+	 * @return ID of bonus value sprite
+	 */
+	public int bonusValueSpriteID(int symbol) {
+		return idBonusValues + symbol;
 	}
 
 	public Rectangle2D bonusValueSprite(int symbol) {
-		switch (symbol) {
-		case 0:
-			return rect(0, 148, 16, 8); // 100
-		case 1:
-			return rect(16, 148, 16, 8); // 300
-		case 2:
-			return rect(32, 148, 16, 8); // 500
-		case 3:
-			return rect(48, 148, 16, 8); // 700
-		case 4:
-			return rect(64, 148, 18, 8); // 1000
-		case 5:
-			return rect(62, 164, 20, 8); // 2000
-		case 6:
-			return rect(62, 180, 20, 8); // 3000
-		case 7:
-			return rect(62, 196, 20, 8); // 5000
-		default:
-			return null;
-		}
+		return 0 <= symbol && symbol < 8 ? table.rect(bonusValueSpriteID(symbol)) : null;
 	}
 
 	public Rectangle2D ghostFacingRight(int ghostID) {
-		return tile(2 * DIR_ORDER.index(Direction.RIGHT), 4 + ghostID);
+		return ghostNormalSprites[ghostID][DIR_ORDER.index(Direction.RIGHT)][0];
 	}
 
-	public Rectangle2D livesCounterSprite() {
-		return rect(129, 15, 16, 16);
+	public int livesCounterSpriteID() {
+		return idLivesCounter;
 	}
 
-	private Rectangle2D[][] pacMunchingSprites = new Rectangle2D[4][];
-
 	public Rectangle2D[] pacMunchingSprites(Direction dir) {
-		int d = DIR_ORDER.index(dir);
-		if (pacMunchingSprites[d] == null) {
-			double m = 0.5; // margin
-			double size = 16 - 2 * m;
-			var wide = rect(0 + m, d * 16 + m, size, size);
-			var middle = rect(16 + m, d * 16 + m, size, size);
-			var closed = rect(32 + m, 0 + m, size, size);
-			pacMunchingSprites[d] = array(closed, closed, middle, middle, wide, wide, middle, middle);
-		}
-		return pacMunchingSprites[d];
+		return pacMunchingSprites[DIR_ORDER.index(dir)];
 	}
 
-	private Rectangle2D[] pacDyingSprites;
-
 	public Rectangle2D[] pacDyingSprites() {
-		if (pacDyingSprites == null) {
-			double m = 0.5; // margin
-			double size = 16 - 2 * m;
-			pacDyingSprites = new Rectangle2D[11];
-			for (int i = 0; i < 11; ++i) {
-				pacDyingSprites[i] = new Rectangle2D(48 + i * 16 + m, m, size, size);
-			}
-		}
 		return pacDyingSprites;
 	}
 
-	private Rectangle2D[][][] ghostNormalSprites = new Rectangle2D[4][4][];
-
 	public Rectangle2D[] ghostNormalSprites(byte id, Direction dir) {
-		int d = DIR_ORDER.index(dir);
-		if (ghostNormalSprites[id][d] == null) {
-			ghostNormalSprites[id][d] = tilesRightOf(2 * d, 4 + id, 2);
-		}
-		return ghostNormalSprites[id][d];
+		return ghostNormalSprites[id][DIR_ORDER.index(dir)];
 	}
 
-	private Rectangle2D[] ghostFrightenedSprites;
-
 	public Rectangle2D[] ghostFrightenedSprites() {
-		if (ghostFrightenedSprites == null) {
-			ghostFrightenedSprites = array(tile(8, 4), tile(9, 4));
-		}
 		return ghostFrightenedSprites;
 	}
 
-	private Rectangle2D[] ghostFlashingSprites;
-
 	public Rectangle2D[] ghostFlashingSprites() {
-		if (ghostFlashingSprites == null) {
-			ghostFlashingSprites = tilesRightOf(8, 4, 4);
-		}
 		return ghostFlashingSprites;
 	}
 
-	private Rectangle2D[][] ghostEyesSprites = new Rectangle2D[4][];
-
 	public Rectangle2D[] ghostEyesSprites(Direction dir) {
-		int d = DIR_ORDER.index(dir);
-		if (ghostEyesSprites[d] == null) {
-			ghostEyesSprites[d] = array(tile(8 + d, 5));
-		}
-		return ghostEyesSprites[d];
+		return ghostEyesSprites[DIR_ORDER.index(dir)];
 	}
 
 	// Pac-Man specific:
 
 	public Rectangle2D[] bigPacManSprites() {
-		return array(rect(32, 16, 32, 32), rect(64, 16, 32, 32), rect(96, 16, 32, 32));
+		return bigPacManSprites;
 	}
 
 	public Rectangle2D[] blinkyDamagedSprites() {
-		return array(tile(8, 7), tile(9, 7));
+		return blinkyDamagedSprites;
 	}
 
 	public Rectangle2D[] blinkyStretchedSprites() {
-		return tilesRightOf(8, 6, 5);
+		return blinkyStretchedSprites;
 	}
 
 	public Rectangle2D[] blinkyPatchedSprites() {
-		return tilesRightOf(10, 7, 2);
+		return blinkyPatchedSprites;
 	}
 
 	public Rectangle2D[] blinkyNakedSprites() {
-		return array(rect(r(8), r(8), r(2), r(1)), rect(r(10), r(8), r(2), r(1)));
+		return blinkyNakedSprites;
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,264 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.ui.fx.replay;
+
+import de.amr.games.pacman.model.GameVariant;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static de.amr.games.pacman.lib.Globals.checkNotNull;
+
+/**
+ * Recorded input of a game: game variant, seed of the random generator and the sequence of inputs, each stamped with
+ * the number of the update step (tick) before which it was given.
+ * <p>
+ * Binary format: magic number, version, variant ordinal, seed, followed by the events. Each event is stored as tick
+ * distance to the previous event (variable length), event ordinal and argument (only for events having one). A
+ * direction change costs two or three bytes.
+ *
+ * @author Armin Reichert
+ */
+public class InputLog {
+
+	public enum Event {
+		/** Steering decision, argument is the direction ordinal. */
+		STEER,
+		/** The timer of the current game state was expired by a game scene. */
+		TIMER_EXPIRED,
+		ADD_CREDIT,
+		/** Autopilot switched, argument is 1 for on, 0 for off. */
+		AUTOPILOT,
+		/** Immunity switched, argument is 1 for on, 0 for off. */
+		IMMUNITY,
+		CHEAT_ADD_LIVES,
+		CHEAT_EAT_ALL,
+		CHEAT_NEXT_LEVEL,
+		CHEAT_KILL_GHOSTS,
+		/** Hash of the game state, argument is the hash value. */
+		CHECKPOINT,
+		END;
+
+		private static final Event[] VALUES = values();
+
+		private boolean hasByteArg() {
+			return this == STEER || this == AUTOPILOT || this == IMMUNITY;
+		}
+	}
+
+	private static final int MAGIC = 0x504D494C; // "PMIL"
+	private static final int VERSION = 1;
+
+	/**
+	 * @param path file path
+	 * @return input log read from the given file
+	 * @throws IOException if the file cannot be read or is not an input log
+	 */
+	public static InputLog load(Path path) throws IOException {
+		try (var in = new DataInputStream(Files.newInputStream(path))) {
+			if (in.readInt() != MAGIC) {
+				throw new IOException("Not an input log: " + path);
+			}
+			int version = in.readUnsignedByte();
+			if (version != VERSION) {
+				throw new IOException("Unsupported input log version " + version);
+			}
+			var variant = GameVariant.values()[in.readUnsignedByte()];
+			long seed = in.readLong();
+			return new InputLog(variant, seed, in.readAllBytes());
+		}
+	}
+
+	/**
+	 * Creates the events part of a log.
+	 */
+	public static class Writer {
+
+		private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+		private final DataOutputStream out = new DataOutputStream(bytes);
+		private long lastTick;
+		private boolean finished;
+
+		/**
+		 * Appends an event. Ticks must not decrease.
+		 *
+		 * @param tick  tick of the event
+		 * @param event event
+		 * @param arg   event argument, ignored for events without argument
+		 */
+		public void write(long tick, Event event, long arg) {
+			if (finished) {
+				throw new IllegalStateException("Input log already finished");
+			}
+			if (tick < lastTick) {
+				throw new IllegalArgumentException("Tick " + tick + " is before last tick " + lastTick);
+			}
+			try {
+				writeVarLong(tick - lastTick);
+				out.writeByte(event.ordinal());
+				if (event.hasByteArg()) {
+					out.writeByte((int) arg);
+				} else if (event == Event.CHECKPOINT) {
+					out.writeLong(arg);
+				}
+			} catch (IOException x) {
+				throw new UncheckedIOException(x); // cannot happen with byte array stream
+			}
+			lastTick = tick;
+			if (event == Event.END) {
+				finished = true;
+			}
+		}
+
+		private void writeVarLong(long value) throws IOException {
+			while ((value & ~0x7FL) != 0) {
+				out.writeByte((int) (value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			out.writeByte((int) value);
+		}
+
+		public int size() {
+			return bytes.size();
+		}
+
+		/**
+		 * Appends the end event and returns the complete log.
+		 *
+		 * @param variant game variant
+		 * @param seed    random generator seed
+		 * @param tick    tick at which recording ended
+		 * @return the log
+		 */
+		public InputLog finish(GameVariant variant, long seed, long tick) {
+			write(tick, Event.END, 0);
+			return new InputLog(variant, seed, bytes.toByteArray());
+		}
+	}
+
+	/**
+	 * Iterates over the events of a log.
+	 */
+	public class Reader {
+
+		private final DataInputStream in = new DataInputStream(new ByteArrayInputStream(events));
+		private long tick;
+		private Event event;
+		private long arg;
+
+		private Reader() {
+			next();
+		}
+
+		/**
+		 * Moves to the next event. After the end event, the reader stays at the end event.
+		 */
+		public void next() {
+			if (event == Event.END) {
+				return;
+			}
+			try {
+				tick += readVarLong();
+				event = Event.VALUES[in.readUnsignedByte()];
+				if (event.hasByteArg()) {
+					arg = in.readUnsignedByte();
+				} else if (event == Event.CHECKPOINT) {
+					arg = in.readLong();
+				} else {
+					arg = 0;
+				}
+			} catch (EOFException x) {
+				// truncated log, e.g. written by a crashed game
+				event = Event.END;
+				arg = 0;
+			} catch (IOException x) {
+				throw new UncheckedIOException(x);
+			}
+		}
+
+		private long readVarLong() throws IOException {
+			long value = 0;
+			int shift = 0;
+			int b;
+			do {
+				b = in.readUnsignedByte();
+				value |= (long) (b & 0x7F) << shift;
+				shift += 7;
+			} while ((b & 0x80) != 0);
+			return value;
+		}
+
+		public long tick() {
+			return tick;
+		}
+
+		public Event event() {
+			return event;
+		}
+
+		public long arg() {
+			return arg;
+		}
+
+		public boolean atEnd() {
+			return event == Event.END;
+		}
+	}
+
+	private final GameVariant variant;
+	private final long seed;
+	private final byte[] events;
+
+	private InputLog(GameVariant variant, long seed, byte[] events) {
+		checkNotNull(variant);
+		checkNotNull(events);
+		this.variant = variant;
+		this.seed = seed;
+		this.events = events;
+	}
+
+	public GameVariant variant() {
+		return variant;
+	}
+
+	public long seed() {
+		return seed;
+	}
+
+	/**
+	 * @return new reader positioned at the first event
+	 */
+	public Reader reader() {
+		return new Reader();
+	}
+
+	/**
+	 * Saves this log to the given file.
+	 *
+	 * @param path file path
+	 * @throws IOException if the file cannot be written
+	 */
+	public void save(Path path) throws IOException {
+		try (var out = new DataOutputStream(Files.newOutputStream(path))) {
+			out.writeInt(MAGIC);
+			out.writeByte(VERSION);
+			out.writeByte(variant.ordinal());
+			out.writeLong(seed);
+			out.write(events);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "InputLog [variant=" + variant + ", seed=" + seed + ", bytes=" + events.length + "]";
+	}
+}
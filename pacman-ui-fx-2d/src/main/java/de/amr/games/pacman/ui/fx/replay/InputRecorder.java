@@ -0,0 +1,84 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.ui.fx.replay;
+
+import de.amr.games.pacman.controller.GameController;
+import de.amr.games.pacman.lib.TickTimer;
+import de.amr.games.pacman.model.GameModel;
+import de.amr.games.pacman.model.GameVariant;
+import de.amr.games.pacman.ui.fx.replay.InputLog.Event;
+
+import static de.amr.games.pacman.lib.Globals.checkNotNull;
+
+/**
+ * Records the input of a game into an {@link InputLog}. The owner calls {@link #beforeUpdate(GameController)} and
+ * {@link #afterUpdate(GameController)} around each update of the game controller and {@link #record(Event, long)} for
+ * each input given by the user. Besides the user input, the recorder detects state timers expired by game scenes (end
+ * of cut scenes and animations) and writes a state hash checkpoint every second.
+ *
+ * @author Armin Reichert
+ */
+public class InputRecorder {
+
+	/** Number of ticks between two state hash checkpoints. */
+	public static final int CHECKPOINT_INTERVAL = GameModel.FPS;
+
+	private final InputLog.Writer writer = new InputLog.Writer();
+	private final GameVariant variant;
+	private final long seed;
+	private long tick;
+	private TickTimer expiredTimer;
+
+	/**
+	 * @param variant game variant
+	 * @param seed    seed the random generator has been set to when the recorded game started
+	 */
+	public InputRecorder(GameVariant variant, long seed) {
+		checkNotNull(variant);
+		this.variant = variant;
+		this.seed = seed;
+	}
+
+	/**
+	 * @return number of update steps recorded so far
+	 */
+	public long tick() {
+		return tick;
+	}
+
+	public void record(Event event) {
+		record(event, 0);
+	}
+
+	public void record(Event event, long arg) {
+		writer.write(tick, event, arg);
+	}
+
+	public void beforeUpdate(GameController gc) {
+		var timer = gc.state().timer();
+		if (timer.hasExpired()) {
+			if (timer != expiredTimer) {
+				record(Event.TIMER_EXPIRED);
+				expiredTimer = timer;
+			}
+		} else {
+			expiredTimer = null;
+		}
+	}
+
+	public void afterUpdate(GameController gc) {
+		++tick;
+		if (tick % CHECKPOINT_INTERVAL == 0) {
+			record(Event.CHECKPOINT, StateHash.of(gc));
+		}
+	}
+
+	/**
+	 * @return the complete log, no more events can be recorded
+	 */
+	public InputLog finish() {
+		return writer.finish(variant, seed, tick);
+	}
+}
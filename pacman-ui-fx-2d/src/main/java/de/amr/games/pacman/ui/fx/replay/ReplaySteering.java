@@ -0,0 +1,33 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.ui.fx.replay;
+
+import de.amr.games.pacman.controller.Steering;
+import de.amr.games.pacman.lib.Direction;
+import de.amr.games.pacman.model.GameLevel;
+import de.amr.games.pacman.model.actors.Creature;
+
+/**
+ * Steers Pac-Man with directions taken from an input log. Like the keyboard steering, a direction is applied at the
+ * next steering call and then cleared.
+ *
+ * @author Armin Reichert
+ */
+public class ReplaySteering extends Steering {
+
+	private Direction dir;
+
+	public void setDirection(Direction dir) {
+		this.dir = dir;
+	}
+
+	@Override
+	public void steer(GameLevel level, Creature guy) {
+		if (dir != null) {
+			guy.setWishDir(dir);
+			dir = null;
+		}
+	}
+}
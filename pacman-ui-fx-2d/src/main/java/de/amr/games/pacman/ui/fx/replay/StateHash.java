@@ -0,0 +1,82 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.ui.fx.replay;
+
+import de.amr.games.pacman.controller.GameController;
+import de.amr.games.pacman.model.GameLevel;
+import de.amr.games.pacman.model.actors.Creature;
+
+/**
+ * Computes a 64-bit hash (FNV-1a) of the simulation state: game state, score, lives, level, positions and directions of
+ * all creatures, ghost states and eaten food. Two runs of the same input log must produce the same sequence of hashes.
+ *
+ * @author Armin Reichert
+ */
+public class StateHash {
+
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private StateHash() {
+	}
+
+	/**
+	 * @param gc game controller
+	 * @return hash of the current simulation state
+	 */
+	public static long of(GameController gc) {
+		var game = gc.game();
+		long h = FNV_OFFSET_BASIS;
+		h = mix(h, gc.state().ordinal());
+		h = mix(h, game.score().points());
+		h = mix(h, game.lives());
+		var level = game.level();
+		if (level.isPresent()) {
+			h = mixLevel(h, level.get());
+		}
+		return h;
+	}
+
+	/**
+	 * Combines a hash value with another one, e.g. to compute a single hash for a sequence of frames.
+	 *
+	 * @param h     hash value
+	 * @param value value to add
+	 * @return combined hash value
+	 */
+	public static long combine(long h, long value) {
+		h = mix(h, (int) value);
+		return mix(h, (int) (value >>> 32));
+	}
+
+	private static long mixLevel(long h, GameLevel level) {
+		h = mix(h, level.number());
+		h = mixCreature(h, level.pac());
+		for (byte id = 0; id < 4; ++id) {
+			var ghost = level.ghost(id);
+			h = mixCreature(h, ghost);
+			h = mix(h, ghost.state() != null ? ghost.state().ordinal() : -1);
+		}
+		var world = level.world();
+		long eaten = world.tiles().filter(world::hasEatenFoodAt).count();
+		return mix(h, (int) eaten);
+	}
+
+	private static long mixCreature(long h, Creature creature) {
+		h = mix(h, Float.floatToIntBits(creature.position().x()));
+		h = mix(h, Float.floatToIntBits(creature.position().y()));
+		h = mix(h, creature.moveDir() != null ? creature.moveDir().ordinal() : -1);
+		return mix(h, creature.wishDir() != null ? creature.wishDir().ordinal() : -1);
+	}
+
+	private static long mix(long h, int value) {
+		for (int i = 0; i < 4; ++i) {
+			h ^= value & 0xFF;
+			h *= FNV_PRIME;
+			value >>>= 8;
+		}
+		return h;
+	}
+}
@@ -58,6 +58,14 @@ public interface GameScene extends GameEventListener {
 	 */
 	boolean is3D();
 
+	/**
+	 * @return if this scene is rendered exclusively from the render snapshot (see {@link GameSceneContext#snapshot()})
+	 *         and therefore can be rendered while the simulation is running on another thread
+	 */
+	default boolean rendersFromSnapshot() {
+		return false;
+	}
+
 	/**
 	 * Called when scene variants for 2D and 3D exist and variant changes between 2D and 3D.
 	 */
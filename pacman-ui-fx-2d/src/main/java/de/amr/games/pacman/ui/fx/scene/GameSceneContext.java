@@ -4,6 +4,8 @@ import de.amr.games.pacman.controller.GameController;
 import de.amr.games.pacman.model.GameModel;
 import de.amr.games.pacman.ui.fx.ActionHandler;
 import de.amr.games.pacman.ui.fx.SoundHandler;
+import de.amr.games.pacman.ui.fx.util.GameClock;
+import de.amr.games.pacman.ui.fx.util.ScaledImageCache;
 import de.amr.games.pacman.ui.fx.util.Spritesheet;
 import de.amr.games.pacman.ui.fx.util.Theme;
 import javafx.scene.media.AudioClip;
@@ -21,6 +23,18 @@ public interface GameSceneContext {
 
   SoundHandler soundHandler();
 
+  GameClock clock();
+
+  /**
+   * @return cache of pre-scaled images used for drawing sprites
+   */
+  ScaledImageCache scaledImages();
+
+  /**
+   * @return snapshot of the game state to be rendered in the current frame
+   */
+  RenderSnapshot snapshot();
+
   default AudioClip clip(String key) {
     return soundHandler().audioClip(game().variant(), key);
   }
@@ -0,0 +1,553 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.ui.fx.scene;
+
+import de.amr.games.pacman.controller.GameController;
+import de.amr.games.pacman.controller.GameState;
+import de.amr.games.pacman.model.GameLevel;
+import de.amr.games.pacman.model.GameModel;
+import de.amr.games.pacman.model.GameVariant;
+import de.amr.games.pacman.model.actors.Bonus;
+import de.amr.games.pacman.model.actors.Creature;
+import de.amr.games.pacman.model.actors.Entity;
+import de.amr.games.pacman.model.actors.MovingBonus;
+import de.amr.games.pacman.model.world.World;
+import de.amr.games.pacman.ui.fx.rendering2d.SpriteAnimations;
+import javafx.geometry.Rectangle2D;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * State of the play scene at the end of a simulation step, everything needed to render a frame without accessing the
+ * game model. Snapshots are filled by the simulation and handed to the renderer through a
+ * {@link de.amr.games.pacman.ui.fx.util.TripleBuffer}, so instances are reused and must not be kept by the renderer
+ * beyond the current frame.
+ * <p>
+ * A snapshot can be stored in a fixed-size binary layout of {@link #ENCODED_SIZE} bytes (see
+ * {@link #writeTo(ByteBuffer, int)}), e.g. to keep the last seconds of a game for rewinding.
+ *
+ * @author Armin Reichert
+ */
+public class RenderSnapshot {
+
+	/**
+	 * Position, velocity and current sprite of an entity.
+	 */
+	public static class Actor {
+
+		private static final int ENCODED_SIZE = 36;
+
+		private boolean visible;
+		private float x;
+		private float y;
+		private float vx;
+		private float vy;
+		private Rectangle2D sprite;
+
+		private void capture(Entity entity, Rectangle2D sprite) {
+			visible = entity.isVisible();
+			x = entity.position().x();
+			y = entity.position().y();
+			vx = entity.velocity().x();
+			vy = entity.velocity().y();
+			this.sprite = sprite;
+		}
+
+		private void capture(Creature creature) {
+			Rectangle2D sprite = null;
+			// WebFX does not allow Class::isInstance and Class::cast, so we do it the old way.
+			if (creature.animations().isPresent() && creature.animations().get() instanceof SpriteAnimations sa) {
+				sprite = sa.currentSprite();
+			}
+			capture(creature, sprite);
+		}
+
+		private void clear() {
+			visible = false;
+			sprite = null;
+		}
+
+		private void writeTo(ByteBuffer buf, int offset) {
+			buf.put(offset, (byte) ((visible ? 1 : 0) | (sprite != null ? 2 : 0)));
+			buf.putFloat(offset + 4, x);
+			buf.putFloat(offset + 8, y);
+			buf.putFloat(offset + 12, vx);
+			buf.putFloat(offset + 16, vy);
+			if (sprite != null) {
+				buf.putFloat(offset + 20, (float) sprite.getMinX());
+				buf.putFloat(offset + 24, (float) sprite.getMinY());
+				buf.putFloat(offset + 28, (float) sprite.getWidth());
+				buf.putFloat(offset + 32, (float) sprite.getHeight());
+			}
+		}
+
+		private void readFrom(ByteBuffer buf, int offset) {
+			byte flags = buf.get(offset);
+			visible = (flags & 1) != 0;
+			x = buf.getFloat(offset + 4);
+			y = buf.getFloat(offset + 8);
+			vx = buf.getFloat(offset + 12);
+			vy = buf.getFloat(offset + 16);
+			if ((flags & 2) != 0) {
+				float minX = buf.getFloat(offset + 20);
+				float minY = buf.getFloat(offset + 24);
+				float width = buf.getFloat(offset + 28);
+				float height = buf.getFloat(offset + 32);
+				if (sprite == null || sprite.getMinX() != minX || sprite.getMinY() != minY || sprite.getWidth() != width
+						|| sprite.getHeight() != height) {
+					sprite = new Rectangle2D(minX, minY, width, height);
+				}
+			} else {
+				sprite = null;
+			}
+		}
+
+		public boolean isVisible() {
+			return visible;
+		}
+
+		public float x() {
+			return x;
+		}
+
+		public float y() {
+			return y;
+		}
+
+		public float vx() {
+			return vx;
+		}
+
+		public float vy() {
+			return vy;
+		}
+
+		/**
+		 * @return sprite selected by the actor's animations, may be {@code null}
+		 */
+		public Rectangle2D sprite() {
+			return sprite;
+		}
+	}
+
+	/**
+	 * Eaten food and energizer tiles of the current level, kept up to date incrementally. Scanning all tiles on every
+	 * update step would cost more than capturing everything else, so the tiles are only scanned when a new level is
+	 * started or when food was eaten in another way than by Pac-Man at his current tile (e.g. by the "eat all pellets"
+	 * cheat). The tracker must see every update step to stay on this fast path, so a single tracker is shared by all
+	 * snapshots of a buffer.
+	 */
+	public static class FoodTracker {
+
+		private final BitSet eatenFood = new BitSet(NUM_TILES);
+		private final BitSet energizers = new BitSet(NUM_TILES);
+		private World world;
+		private int uneatenFoodCount;
+
+		private void update(GameLevel level) {
+			var currentWorld = level.world();
+			int uneaten = currentWorld.uneatenFoodCount();
+			if (currentWorld != world || uneaten > uneatenFoodCount) {
+				scan(currentWorld);
+			} else if (uneaten < uneatenFoodCount) {
+				var tile = level.pac().tile();
+				boolean inside = tile.x() >= 0 && tile.x() < currentWorld.numCols() && tile.y() >= 0
+						&& tile.y() < currentWorld.numRows();
+				int index = tile.y() * currentWorld.numCols() + tile.x();
+				if (uneatenFoodCount - uneaten == 1 && inside && currentWorld.hasEatenFoodAt(tile) && !eatenFood.get(index)) {
+					eatenFood.set(index);
+				} else {
+					scan(currentWorld);
+				}
+			}
+			uneatenFoodCount = uneaten;
+		}
+
+		private void scan(World currentWorld) {
+			int numCols = currentWorld.numCols();
+			if (currentWorld != world) {
+				world = currentWorld;
+				energizers.clear();
+				currentWorld.energizerTiles().forEach(tile -> energizers.set(tile.y() * numCols + tile.x()));
+			}
+			eatenFood.clear();
+			currentWorld.tiles().filter(currentWorld::hasEatenFoodAt)
+					.forEach(tile -> eatenFood.set(tile.y() * numCols + tile.x()));
+		}
+	}
+
+	private static final GameVariant[] VARIANTS = GameVariant.values();
+	private static final GameState[] GAME_STATES = GameState.values();
+	private static final int NUM_TILES = GameModel.TILES_X * GameModel.TILES_Y;
+	private static final int BITSET_WORDS = (NUM_TILES + 63) / 64;
+	private static final int MAX_ENCODED_LEVEL_COUNTER = 8;
+
+	private static final int OFFSET_LEVEL_COUNTER = 76;
+	private static final int OFFSET_EATEN_FOOD = OFFSET_LEVEL_COUNTER + MAX_ENCODED_LEVEL_COUNTER;
+	private static final int OFFSET_ENERGIZERS = OFFSET_EATEN_FOOD + 8 * BITSET_WORDS;
+	private static final int OFFSET_ACTORS = OFFSET_ENERGIZERS + 8 * BITSET_WORDS;
+
+	/** Number of bytes used by the binary layout. */
+	public static final int ENCODED_SIZE = OFFSET_ACTORS + 6 * Actor.ENCODED_SIZE;
+
+	private final Actor pac = new Actor();
+	private final Actor[] ghosts = { new Actor(), new Actor(), new Actor(), new Actor() };
+	private final Actor bonus = new Actor();
+	private final BitSet eatenFood = new BitSet(GameModel.TILES_X * GameModel.TILES_Y);
+	private final BitSet energizers = new BitSet(GameModel.TILES_X * GameModel.TILES_Y);
+	private byte[] levelCounter = new byte[8];
+	private int levelCounterSize;
+
+	private long frame;
+	private GameVariant variant;
+	private GameState gameState;
+	private boolean levelPresent;
+	private int levelNumber;
+	private int mazeNumber;
+	private boolean demoLevel;
+	private int numCols;
+	private int scorePoints;
+	private int scoreLevelNumber;
+	private int highScorePoints;
+	private int highScoreLevelNumber;
+	private int lives;
+	private int credit;
+	private boolean mazeFlashing;
+	private boolean mazeFlashingOn;
+	private boolean energizersOff;
+	private byte bonusSymbol;
+	private byte bonusState;
+	private float bonusDy;
+	private long stateTimerTick;
+	private int huntingPhase;
+	private long huntingTimerTick;
+
+	/**
+	 * Fills this snapshot from the current game state.
+	 *
+	 * @param gc          game controller
+	 * @param foodTracker tracks the eaten food, must be called with the same tracker after each update step
+	 */
+	public void capture(GameController gc, FoodTracker foodTracker) {
+		var game = gc.game();
+		++frame;
+		variant = game.variant();
+		gameState = gc.state();
+		stateTimerTick = gameState.timer().tick();
+		credit = gc.credit();
+		lives = game.lives();
+		scorePoints = game.score().points();
+		scoreLevelNumber = game.score().levelNumber();
+		highScorePoints = game.highScore().points();
+		highScoreLevelNumber = game.highScore().levelNumber();
+		levelCounterSize = 0;
+		for (byte symbol : game.levelCounter()) {
+			if (levelCounterSize == levelCounter.length) {
+				levelCounter = Arrays.copyOf(levelCounter, 2 * levelCounter.length);
+			}
+			levelCounter[levelCounterSize++] = symbol;
+		}
+		var level = game.level();
+		levelPresent = level.isPresent();
+		if (levelPresent) {
+			foodTracker.update(level.get());
+			captureLevel(level.get(), foodTracker);
+		} else {
+			pac.clear();
+			bonus.clear();
+			for (var ghost : ghosts) {
+				ghost.clear();
+			}
+		}
+	}
+
+	private void captureLevel(GameLevel level, FoodTracker foodTracker) {
+		var world = level.world();
+		levelNumber = level.number();
+		mazeNumber = level.game().mazeNumber(levelNumber);
+		demoLevel = level.isDemoLevel();
+		numCols = world.numCols();
+		mazeFlashing = world.mazeFlashing().isRunning();
+		mazeFlashingOn = world.mazeFlashing().on();
+		energizersOff = world.energizerBlinking().off();
+		huntingPhase = level.huntingPhase();
+		huntingTimerTick = level.huntingTimer().tick();
+		eatenFood.clear();
+		eatenFood.or(foodTracker.eatenFood);
+		energizers.clear();
+		energizers.or(foodTracker.energizers);
+		pac.capture(level.pac());
+		for (byte id = 0; id < 4; ++id) {
+			ghosts[id].capture(level.ghost(id));
+		}
+		level.bonus().ifPresentOrElse(this::captureBonus, bonus::clear);
+	}
+
+	private void captureBonus(Bonus b) {
+		bonus.capture(b.entity(), null);
+		bonusSymbol = b.symbol();
+		bonusState = b.state();
+		bonusDy = b instanceof MovingBonus movingBonus ? movingBonus.dy() : 0;
+	}
+
+	/**
+	 * Stores this snapshot at the given position of the buffer using the fixed binary layout. Does not allocate and does
+	 * not change the position of the buffer. The level counter is stored with at most 8 symbols.
+	 *
+	 * @param buf    buffer
+	 * @param offset start index, the next {@link #ENCODED_SIZE} bytes are written
+	 */
+	public void writeTo(ByteBuffer buf, int offset) {
+		buf.putLong(offset, frame);
+		buf.put(offset + 8, (byte) (variant != null ? variant.ordinal() : -1));
+		buf.put(offset + 9, (byte) (gameState != null ? gameState.ordinal() : -1));
+		buf.put(offset + 10, (byte) ((levelPresent ? 1 : 0) | (demoLevel ? 2 : 0) | (mazeFlashing ? 4 : 0)
+				| (mazeFlashingOn ? 8 : 0) | (energizersOff ? 16 : 0)));
+		int encodedLevelCounterSize = Math.min(levelCounterSize, MAX_ENCODED_LEVEL_COUNTER);
+		buf.put(offset + 11, (byte) encodedLevelCounterSize);
+		buf.putInt(offset + 12, levelNumber);
+		buf.putInt(offset + 16, mazeNumber);
+		buf.putInt(offset + 20, numCols);
+		buf.putInt(offset + 24, scorePoints);
+		buf.putInt(offset + 28, scoreLevelNumber);
+		buf.putInt(offset + 32, highScorePoints);
+		buf.putInt(offset + 36, highScoreLevelNumber);
+		buf.putInt(offset + 40, lives);
+		buf.putInt(offset + 44, credit);
+		buf.putInt(offset + 48, huntingPhase);
+		buf.putLong(offset + 52, stateTimerTick);
+		buf.putLong(offset + 60, huntingTimerTick);
+		buf.put(offset + 68, bonusSymbol);
+		buf.put(offset + 69, bonusState);
+		buf.putFloat(offset + 72, bonusDy);
+		// keep the most recent symbols, like the level counter display does
+		int first = levelCounterSize - encodedLevelCounterSize;
+		for (int i = 0; i < encodedLevelCounterSize; ++i) {
+			buf.put(offset + OFFSET_LEVEL_COUNTER + i, levelCounter[first + i]);
+		}
+		writeBits(eatenFood, buf, offset + OFFSET_EATEN_FOOD);
+		writeBits(energizers, buf, offset + OFFSET_ENERGIZERS);
+		pac.writeTo(buf, offset + OFFSET_ACTORS);
+		for (int i = 0; i < 4; ++i) {
+			ghosts[i].writeTo(buf, offset + OFFSET_ACTORS + (i + 1) * Actor.ENCODED_SIZE);
+		}
+		bonus.writeTo(buf, offset + OFFSET_ACTORS + 5 * Actor.ENCODED_SIZE);
+	}
+
+	/**
+	 * Fills this snapshot from data stored by {@link #writeTo(ByteBuffer, int)}.
+	 *
+	 * @param buf    buffer
+	 * @param offset start index
+	 */
+	public void readFrom(ByteBuffer buf, int offset) {
+		frame = buf.getLong(offset);
+		int variantIndex = buf.get(offset + 8);
+		variant = variantIndex >= 0 ? VARIANTS[variantIndex] : null;
+		int stateIndex = buf.get(offset + 9);
+		gameState = stateIndex >= 0 ? GAME_STATES[stateIndex] : null;
+		byte flags = buf.get(offset + 10);
+		levelPresent = (flags & 1) != 0;
+		demoLevel = (flags & 2) != 0;
+		mazeFlashing = (flags & 4) != 0;
+		mazeFlashingOn = (flags & 8) != 0;
+		energizersOff = (flags & 16) != 0;
+		levelCounterSize = buf.get(offset + 11);
+		levelNumber = buf.getInt(offset + 12);
+		mazeNumber = buf.getInt(offset + 16);
+		numCols = buf.getInt(offset + 20);
+		scorePoints = buf.getInt(offset + 24);
+		scoreLevelNumber = buf.getInt(offset + 28);
+		highScorePoints = buf.getInt(offset + 32);
+		highScoreLevelNumber = buf.getInt(offset + 36);
+		lives = buf.getInt(offset + 40);
+		credit = buf.getInt(offset + 44);
+		huntingPhase = buf.getInt(offset + 48);
+		stateTimerTick = buf.getLong(offset + 52);
+		huntingTimerTick = buf.getLong(offset + 60);
+		bonusSymbol = buf.get(offset + 68);
+		bonusState = buf.get(offset + 69);
+		bonusDy = buf.getFloat(offset + 72);
+		for (int i = 0; i < levelCounterSize; ++i) {
+			levelCounter[i] = buf.get(offset + OFFSET_LEVEL_COUNTER + i);
+		}
+		readBits(eatenFood, buf, offset + OFFSET_EATEN_FOOD);
+		readBits(energizers, buf, offset + OFFSET_ENERGIZERS);
+		pac.readFrom(buf, offset + OFFSET_ACTORS);
+		for (int i = 0; i < 4; ++i) {
+			ghosts[i].readFrom(buf, offset + OFFSET_ACTORS + (i + 1) * Actor.ENCODED_SIZE);
+		}
+		bonus.readFrom(buf, offset + OFFSET_ACTORS + 5 * Actor.ENCODED_SIZE);
+	}
+
+	private static void writeBits(BitSet bits, ByteBuffer buf, int offset) {
+		for (int w = 0; w < BITSET_WORDS; ++w) {
+			long word = 0;
+			int end = (w + 1) * 64;
+			for (int i = bits.nextSetBit(w * 64); i >= 0 && i < end; i = bits.nextSetBit(i + 1)) {
+				word |= 1L << (i - w * 64);
+			}
+			buf.putLong(offset + 8 * w, word);
+		}
+	}
+
+	private static void readBits(BitSet bits, ByteBuffer buf, int offset) {
+		bits.clear();
+		for (int w = 0; w < BITSET_WORDS; ++w) {
+			long word = buf.getLong(offset + 8 * w);
+			while (word != 0) {
+				int bit = Long.numberOfTrailingZeros(word);
+				bits.set(w * 64 + bit);
+				word &= word - 1;
+			}
+		}
+	}
+
+	/**
+	 * @return number of snapshots captured into this instance, can be used to detect new data
+	 */
+	public long frame() {
+		return frame;
+	}
+
+	public GameVariant variant() {
+		return variant;
+	}
+
+	public GameState gameState() {
+		return gameState;
+	}
+
+	/**
+	 * @return tick of the game state timer
+	 */
+	public long stateTimerTick() {
+		return stateTimerTick;
+	}
+
+	public int huntingPhase() {
+		return huntingPhase;
+	}
+
+	public long huntingTimerTick() {
+		return huntingTimerTick;
+	}
+
+	public boolean isLevelPresent() {
+		return levelPresent;
+	}
+
+	public int levelNumber() {
+		return levelNumber;
+	}
+
+	public int mazeNumber() {
+		return mazeNumber;
+	}
+
+	public boolean isDemoLevel() {
+		return demoLevel;
+	}
+
+	public int scorePoints() {
+		return scorePoints;
+	}
+
+	public int scoreLevelNumber() {
+		return scoreLevelNumber;
+	}
+
+	public int highScorePoints() {
+		return highScorePoints;
+	}
+
+	public int highScoreLevelNumber() {
+		return highScoreLevelNumber;
+	}
+
+	public int lives() {
+		return lives;
+	}
+
+	public int credit() {
+		return credit;
+	}
+
+	public boolean hasCredit() {
+		return credit > 0;
+	}
+
+	public boolean isMazeFlashing() {
+		return mazeFlashing;
+	}
+
+	public boolean isMazeFlashingOn() {
+		return mazeFlashingOn;
+	}
+
+	public boolean isEnergizersOff() {
+		return energizersOff;
+	}
+
+	public boolean hasEatenFoodAt(int x, int y) {
+		return eatenFood.get(y * numCols + x);
+	}
+
+	public boolean isEnergizerTile(int x, int y) {
+		return energizers.get(y * numCols + x);
+	}
+
+	/**
+	 * @return tile indices (row * numCols + col) of eaten food
+	 */
+	public BitSet eatenFood() {
+		return eatenFood;
+	}
+
+	/**
+	 * @return tile indices (row * numCols + col) of energizers
+	 */
+	public BitSet energizers() {
+		return energizers;
+	}
+
+	public int numCols() {
+		return numCols;
+	}
+
+	public int levelCounterSize() {
+		return levelCounterSize;
+	}
+
+	public byte levelCounterSymbol(int i) {
+		return levelCounter[i];
+	}
+
+	public Actor pac() {
+		return pac;
+	}
+
+	public Actor ghost(byte id) {
+		return ghosts[id];
+	}
+
+	public Actor bonus() {
+		return bonus;
+	}
+
+	public byte bonusSymbol() {
+		return bonusSymbol;
+	}
+
+	public byte bonusState() {
+		return bonusState;
+	}
+
+	public float bonusDy() {
+		return bonusDy;
+	}
+}
@@ -0,0 +1,78 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.ui.fx.scene;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Ring buffer keeping the most recent render snapshots in their binary layout (see
+ * {@link RenderSnapshot#writeTo(ByteBuffer, int)}). The memory is allocated once, recording a frame just copies a few
+ * hundred bytes.
+ * <p>
+ * Not thread-safe, recording and reading must not happen concurrently.
+ *
+ * @author Armin Reichert
+ */
+public class RewindBuffer {
+
+	private final ByteBuffer buffer;
+	private final int capacity;
+	private long recorded;
+
+	/**
+	 * @param capacity number of frames kept
+	 */
+	public RewindBuffer(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Rewind buffer capacity must be positive but is " + capacity);
+		}
+		this.capacity = capacity;
+		buffer = ByteBuffer.allocate(capacity * RenderSnapshot.ENCODED_SIZE);
+	}
+
+	public int capacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return number of frames available for rewinding
+	 */
+	public int size() {
+		return (int) Math.min(recorded, capacity);
+	}
+
+	/**
+	 * Stores the given snapshot as most recent frame, overwriting the oldest frame if the buffer is full.
+	 *
+	 * @param snapshot snapshot
+	 */
+	public void record(RenderSnapshot snapshot) {
+		snapshot.writeTo(buffer, slotOffset(recorded));
+		++recorded;
+	}
+
+	/**
+	 * Reads a stored frame.
+	 *
+	 * @param age    age of the frame, 0 is the most recent frame
+	 * @param target snapshot receiving the frame data
+	 * @return {@code false} if no frame of this age is stored
+	 */
+	public boolean read(int age, RenderSnapshot target) {
+		if (age < 0 || age >= size()) {
+			return false;
+		}
+		target.readFrom(buffer, slotOffset(recorded - 1 - age));
+		return true;
+	}
+
+	public void clear() {
+		recorded = 0;
+	}
+
+	private int slotOffset(long frame) {
+		return (int) (frame % capacity) * RenderSnapshot.ENCODED_SIZE;
+	}
+}
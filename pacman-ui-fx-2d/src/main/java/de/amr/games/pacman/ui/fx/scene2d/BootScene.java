@@ -9,7 +9,7 @@ import de.amr.games.pacman.ui.fx.PacManGames2dApp;
 import de.amr.games.pacman.ui.fx.rendering2d.ArcadePalette;
 import javafx.geometry.Rectangle2D;
 
-import static de.amr.games.pacman.lib.Globals.RND;
+import static de.amr.games.pacman.ui.fx.util.Ufx.EFFECTS_RND;
 
 /**
  * @author Armin Reichert
@@ -55,12 +55,10 @@ public class BootScene extends GameScene2D {
 
 	private void paintRandomHexCodes() {
 		clearCanvas();
-		g.setFill(ArcadePalette.PALE);
-		g.setFont(sceneFont(8));
 		for (int row = 0; row < GameModel.TILES_Y; ++row) {
 			for (int col = 0; col < GameModel.TILES_X; ++col) {
-				var hexCode = Integer.toHexString(RND.nextInt(16));
-				g.fillText(hexCode, s(t(col)), s(t(row + 1)));
+				char hexDigit = Character.forDigit(EFFECTS_RND.nextInt(16), 16);
+				drawArcadeChar(hexDigit, ArcadePalette.PALE, t(col), t(row + 1));
 			}
 		}
 	}
@@ -68,10 +66,10 @@ public class BootScene extends GameScene2D {
 	private void paintRandomSprites() {
 		clearCanvas();
 		for (int row = 0; row < GameModel.TILES_Y / 2; ++row) {
-			if (RND.nextInt(100) > 10) {
+			if (EFFECTS_RND.nextInt(100) > 10) {
 				var region1 = randomSpritesheetTile();
 				var region2 = randomSpritesheetTile();
-				var splitX = GameModel.TILES_X / 8 + RND.nextInt(GameModel.TILES_X / 4);
+				var splitX = GameModel.TILES_X / 8 + EFFECTS_RND.nextInt(GameModel.TILES_X / 4);
 				for (int col = 0; col < GameModel.TILES_X / 2; ++col) {
 					var region = col < splitX ? region1 : region2;
 					drawSprite(region, region.getWidth() * col, region.getHeight() * row);
@@ -81,10 +79,14 @@ public class BootScene extends GameScene2D {
 	}
 
 	private Rectangle2D randomSpritesheetTile() {
-		var source = context.spritesheet().source();
-		var raster = context.spritesheet().raster();
-		double x = RND.nextDouble() * (source.getWidth() - raster);
-		double y = RND.nextDouble() * (source.getHeight() - raster);
+		var spritesheet = context.spritesheet();
+		var region = spritesheet.spritesRegion();
+		if (region == null) {
+			region = new Rectangle2D(0, 0, spritesheet.source().getWidth(), spritesheet.source().getHeight());
+		}
+		var raster = spritesheet.raster();
+		double x = region.getMinX() + EFFECTS_RND.nextDouble() * (region.getWidth() - raster);
+		double y = region.getMinY() + EFFECTS_RND.nextDouble() * (region.getHeight() - raster);
 		return new Rectangle2D(x, y, raster, raster);
 	}
 
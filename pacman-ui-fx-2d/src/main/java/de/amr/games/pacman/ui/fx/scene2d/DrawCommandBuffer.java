@@ -0,0 +1,277 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.ui.fx.scene2d;
+
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.paint.Paint;
+import javafx.scene.text.Font;
+
+import java.util.Arrays;
+
+/**
+ * Records image and text draw calls of a frame and issues them to the graphics context in one go. When flushing, the
+ * commands are grouped by their state (source image resp. font and fill color), so that the graphics context state
+ * changes as rarely as possible. Inside a group the recording order is kept, but commands with different state may be
+ * drawn in a different order than recorded, so this must only be used for content where such commands do not overlap.
+ * <p>
+ * The buffer keeps the commands of the previous frame. If a frame records exactly the same commands, the canvas
+ * content can be kept instead of being redrawn.
+ * <p>
+ * Memory is allocated when the buffer grows only, recording and flushing a frame creates no garbage.
+ *
+ * @author Armin Reichert
+ */
+public class DrawCommandBuffer {
+
+	private static final int COORDS = 8;
+
+	private static class Commands {
+		Object[] states = new Object[64]; // image or font
+		Paint[] fills = new Paint[64]; // null for image commands
+		String[] texts = new String[64]; // null for image commands
+		double[] coords = new double[64 * COORDS];
+		int size;
+
+		void ensureCapacity(int capacity) {
+			if (capacity > states.length) {
+				int newLength = Math.max(capacity, 2 * states.length);
+				states = Arrays.copyOf(states, newLength);
+				fills = Arrays.copyOf(fills, newLength);
+				texts = Arrays.copyOf(texts, newLength);
+				coords = Arrays.copyOf(coords, newLength * COORDS);
+			}
+		}
+
+		void clear() {
+			Arrays.fill(states, 0, size, null);
+			Arrays.fill(fills, 0, size, null);
+			Arrays.fill(texts, 0, size, null);
+			size = 0;
+		}
+
+		boolean sameAs(Commands other) {
+			if (size != other.size) {
+				return false;
+			}
+			for (int i = 0; i < size; ++i) {
+				if (states[i] != other.states[i] || fills[i] != other.fills[i]
+						|| (texts[i] != other.texts[i] && (texts[i] == null || !texts[i].equals(other.texts[i])))) {
+					return false;
+				}
+			}
+			return Arrays.equals(coords, 0, size * COORDS, other.coords, 0, size * COORDS);
+		}
+	}
+
+	private Commands commands = new Commands();
+	private Commands previousCommands = new Commands();
+	private boolean recording;
+
+	// grouping
+	private Object[] groupStates = new Object[16];
+	private Paint[] groupFills = new Paint[16];
+	private int[] groupCounts = new int[16];
+	private int numGroups;
+	private int[] commandGroups = new int[64];
+	private int[] order = new int[64];
+
+	// metrics of last flushed frame
+	private int commandCount;
+	private int stateChanges;
+	private int unsortedStateChanges;
+	private long reusedFrames;
+
+	public boolean isRecording() {
+		return recording;
+	}
+
+	/**
+	 * Starts recording the commands of a new frame.
+	 */
+	public void begin() {
+		var swap = previousCommands;
+		previousCommands = commands;
+		commands = swap;
+		commands.clear();
+		recording = true;
+	}
+
+	/**
+	 * Ends recording.
+	 *
+	 * @return {@code true} if the recorded commands are the same as in the previous frame
+	 */
+	public boolean end() {
+		recording = false;
+		return commands.sameAs(previousCommands);
+	}
+
+	public void addImage(Image image, double sx, double sy, double sw, double sh, double dx, double dy, double dw,
+			double dh) {
+		int i = commands.size;
+		commands.ensureCapacity(i + 1);
+		commands.states[i] = image;
+		int c = i * COORDS;
+		var coords = commands.coords;
+		coords[c] = sx;
+		coords[c + 1] = sy;
+		coords[c + 2] = sw;
+		coords[c + 3] = sh;
+		coords[c + 4] = dx;
+		coords[c + 5] = dy;
+		coords[c + 6] = dw;
+		coords[c + 7] = dh;
+		commands.size = i + 1;
+	}
+
+	public void addText(String text, Font font, Paint fill, double x, double y) {
+		int i = commands.size;
+		commands.ensureCapacity(i + 1);
+		commands.states[i] = font;
+		commands.fills[i] = fill;
+		commands.texts[i] = text;
+		int c = i * COORDS;
+		Arrays.fill(commands.coords, c, c + COORDS, 0);
+		commands.coords[c] = x;
+		commands.coords[c + 1] = y;
+		commands.size = i + 1;
+	}
+
+	/**
+	 * Counts a frame where the recorded commands have not been issued because the canvas already shows them.
+	 */
+	public void reuse() {
+		commandCount = 0;
+		stateChanges = 0;
+		++reusedFrames;
+	}
+
+	/**
+	 * Issues the recorded commands grouped by state.
+	 *
+	 * @param g graphics context
+	 */
+	public void flush(GraphicsContext g) {
+		int size = commands.size;
+		groupCommands();
+		commandCount = size;
+		stateChanges = 0;
+		Object state = null;
+		Paint fill = null;
+		for (int n = 0; n < size; ++n) {
+			int i = order[n];
+			int c = i * COORDS;
+			var coords = commands.coords;
+			if (commands.texts[i] != null) {
+				var font = (Font) commands.states[i];
+				if (font != state) {
+					g.setFont(font);
+					state = font;
+					++stateChanges;
+				}
+				if (commands.fills[i] != fill) {
+					fill = commands.fills[i];
+					g.setFill(fill);
+					++stateChanges;
+				}
+				g.fillText(commands.texts[i], coords[c], coords[c + 1]);
+			} else {
+				var image = (Image) commands.states[i];
+				if (image != state) {
+					state = image;
+					++stateChanges;
+				}
+				g.drawImage(image, coords[c], coords[c + 1], coords[c + 2], coords[c + 3], coords[c + 4], coords[c + 5],
+						coords[c + 6], coords[c + 7]);
+			}
+		}
+	}
+
+	// Stable counting sort by group of equal state, groups ordered by first occurrence
+	private void groupCommands() {
+		int size = commands.size;
+		if (order.length < size) {
+			order = new int[Math.max(size, 2 * order.length)];
+			commandGroups = new int[order.length];
+		}
+		numGroups = 0;
+		unsortedStateChanges = 0;
+		Object lastState = null;
+		Paint lastFill = null;
+		for (int i = 0; i < size; ++i) {
+			var state = commands.states[i];
+			var fill = commands.fills[i];
+			if (state != lastState) {
+				++unsortedStateChanges;
+				lastState = state;
+			}
+			if (fill != null && fill != lastFill) {
+				++unsortedStateChanges;
+				lastFill = fill;
+			}
+			int group = findGroup(state, fill);
+			commandGroups[i] = group;
+			++groupCounts[group];
+		}
+		// group start positions
+		int start = 0;
+		for (int group = 0; group < numGroups; ++group) {
+			int count = groupCounts[group];
+			groupCounts[group] = start;
+			start += count;
+		}
+		for (int i = 0; i < size; ++i) {
+			order[groupCounts[commandGroups[i]]++] = i;
+		}
+		Arrays.fill(groupStates, 0, numGroups, null);
+		Arrays.fill(groupFills, 0, numGroups, null);
+	}
+
+	private int findGroup(Object state, Paint fill) {
+		for (int group = 0; group < numGroups; ++group) {
+			if (groupStates[group] == state && groupFills[group] == fill) {
+				return group;
+			}
+		}
+		if (numGroups == groupStates.length) {
+			groupStates = Arrays.copyOf(groupStates, 2 * numGroups);
+			groupFills = Arrays.copyOf(groupFills, 2 * numGroups);
+			groupCounts = Arrays.copyOf(groupCounts, 2 * numGroups);
+		}
+		groupStates[numGroups] = state;
+		groupFills[numGroups] = fill;
+		groupCounts[numGroups] = 0;
+		return numGroups++;
+	}
+
+	/**
+	 * @return number of commands issued in the last frame
+	 */
+	public int commandCount() {
+		return commandCount;
+	}
+
+	/**
+	 * @return number of graphics context state changes (image, font, fill) in the last frame
+	 */
+	public int stateChanges() {
+		return stateChanges;
+	}
+
+	/**
+	 * @return number of state changes the last frame would have needed when drawn in recording order
+	 */
+	public int unsortedStateChanges() {
+		return unsortedStateChanges;
+	}
+
+	/**
+	 * @return number of frames where the canvas content could be kept
+	 */
+	public long reusedFrames() {
+		return reusedFrames;
+	}
+}
@@ -0,0 +1,91 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.ui.fx.scene2d;
+
+import de.amr.games.pacman.ui.fx.rendering2d.GlyphAtlas;
+import de.amr.games.pacman.ui.fx.util.Spritesheet;
+import javafx.geometry.Rectangle2D;
+import javafx.scene.image.Image;
+import javafx.scene.paint.Color;
+
+import java.util.BitSet;
+
+/**
+ * Target of the draw calls of a 2D scene. Positions and sizes are given in UNSCALED arcade screen pixels, each target
+ * maps them to its own pixels. A scene describing its content only by these calls (like {@link PlayScene2D}) can be
+ * drawn into its canvases as well as into a {@link de.amr.games.pacman.ui.fx.rendering2d.PixelRaster} by the software
+ * renderer, both get the same content.
+ *
+ * @author Armin Reichert
+ */
+public interface DrawTarget {
+
+	/**
+	 * Draws a sprite at the given position (upper left corner).
+	 *
+	 * @param source sprite sheet source
+	 * @param sprite sprite sheet region, nothing is drawn if {@code null}
+	 * @param x      x position
+	 * @param y      y position
+	 */
+	void drawSprite(Image source, Rectangle2D sprite, double x, double y);
+
+	/**
+	 * Draws a sprite of a spritesheet at the given position (upper left corner).
+	 *
+	 * @param spritesheet spritesheet
+	 * @param spriteID    sprite ID (see {@link de.amr.games.pacman.ui.fx.util.SpriteTable})
+	 * @param x           x position
+	 * @param y           y position
+	 */
+	void drawSprite(Spritesheet spritesheet, int spriteID, double x, double y);
+
+	/**
+	 * Draws a complete image at the given position (upper left corner).
+	 *
+	 * @param image image
+	 * @param x     x position
+	 * @param y     y position
+	 */
+	void drawImage(Image image, double x, double y);
+
+	/**
+	 * Draws a text by copying glyphs from a glyph atlas, one tile per character. Characters not contained in the atlas
+	 * are skipped.
+	 *
+	 * @param text   text
+	 * @param color  text color
+	 * @param glyphs glyph atlas of the font
+	 * @param x      x position
+	 * @param y      y position of baseline
+	 */
+	void drawText(String text, Color color, GlyphAtlas glyphs, double x, double y);
+
+	/**
+	 * Fills a rectangle.
+	 *
+	 * @param x      x position
+	 * @param y      y position
+	 * @param width  width
+	 * @param height height
+	 * @param color  fill color
+	 */
+	void fillRect(double x, double y, double width, double height, Color color);
+
+	/**
+	 * Draws the filled maze with the eaten food removed. Each target keeps its own {@link MazeLayer} for this.
+	 *
+	 * @param source    image containing the filled maze
+	 * @param region    region of the filled maze inside the source image or {@code null} for the complete image
+	 * @param eatenFood tiles of eaten food (index = row * numCols + col, rows counted from top of world)
+	 * @param numCols   number of tile columns
+	 * @param topRow    first world row covered by the maze image
+	 * @param bgColor   color used to clear food tiles
+	 * @param x         x position
+	 * @param y         y position
+	 */
+	void drawMaze(Image source, Rectangle2D region, BitSet eatenFood, int numCols, int topRow, Color bgColor, double x,
+			double y);
+}
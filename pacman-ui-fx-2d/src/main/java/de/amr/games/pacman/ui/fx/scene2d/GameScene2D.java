@@ -5,19 +5,23 @@ See file LICENSE in repository root directory for details.
 package de.amr.games.pacman.ui.fx.scene2d;
 
 import de.amr.games.pacman.controller.GameController;
-import de.amr.games.pacman.lib.Score;
 import de.amr.games.pacman.model.GameModel;
 import de.amr.games.pacman.model.GameVariant;
 import de.amr.games.pacman.model.IllegalGameVariantException;
 import de.amr.games.pacman.model.actors.*;
 import de.amr.games.pacman.ui.fx.PacManGames2dApp;
 import de.amr.games.pacman.ui.fx.rendering2d.ArcadePalette;
+import de.amr.games.pacman.ui.fx.rendering2d.GlyphAtlas;
 import de.amr.games.pacman.ui.fx.rendering2d.SpriteAnimations;
 import de.amr.games.pacman.ui.fx.rendering2d.mspacman.ClapperBoardAnimation;
 import de.amr.games.pacman.ui.fx.rendering2d.mspacman.SpritesheetMsPacManGame;
 import de.amr.games.pacman.ui.fx.rendering2d.pacman.SpritesheetPacManGame;
 import de.amr.games.pacman.ui.fx.scene.GameScene;
 import de.amr.games.pacman.ui.fx.scene.GameSceneContext;
+import de.amr.games.pacman.ui.fx.scene.RenderSnapshot;
+import de.amr.games.pacman.ui.fx.util.NumberText;
+import de.amr.games.pacman.ui.fx.util.Spritesheet;
+import de.amr.games.pacman.ui.fx.util.TextureAtlas;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleBooleanProperty;
@@ -29,9 +33,10 @@ import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.image.Image;
 import javafx.scene.paint.Color;
 import javafx.scene.text.Font;
-import javafx.scene.text.FontWeight;
 import org.tinylog.Logger;
 
+import java.util.BitSet;
+
 import static de.amr.games.pacman.lib.Globals.*;
 
 /**
@@ -47,15 +52,42 @@ public abstract class GameScene2D implements GameScene {
 		return tiles * TS;
 	}
 
+	/**
+	 * Canvas layers, from bottom to top. The background and HUD layers are only repainted when their content has
+	 * changed, the actors layer is cleared and repainted in every frame.
+	 */
+	public enum Layer {
+		BACKGROUND, ACTORS, HUD
+	}
+
 	public final BooleanProperty infoVisiblePy = new SimpleBooleanProperty(this, "infoVisible", false);
 
 	protected GameSceneContext context;
 	protected Canvas canvas;
 	protected GraphicsContext g;
+	private final Canvas[] layerCanvases = new Canvas[Layer.values().length];
+	private final boolean[] layerDirty = new boolean[Layer.values().length];
+	private final LayerState backgroundState = new LayerState();
+	private final LayerState hudState = new LayerState();
+	private Color drawnBgColor;
+	private final DrawCommandBuffer actorsCommands = new DrawCommandBuffer();
+	private final DrawCommandBuffer hudCommands = new DrawCommandBuffer();
+	private DrawCommandBuffer recordingCommands;
+	private boolean sceneInfoDrawn;
+	private final Runnable hudDrawing = this::drawHUD;
+	private final Runnable sceneContentDrawing = this::drawSceneContent;
+	private final DrawTarget canvasTarget = new CanvasDrawTarget();
 	protected double scaling = 1;
 	protected boolean scoreVisible;
 	protected boolean creditVisible;
 
+	// HUD text lines, strings are only created when the displayed values change
+	protected final NumberText scoreText = new NumberText("", 2, 7);
+	protected final NumberText scoreLevelText = new NumberText("L", 1, 0);
+	protected final NumberText highScoreText = new NumberText("", 2, 7);
+	protected final NumberText highScoreLevelText = new NumberText("L", 1, 0);
+	protected final NumberText creditText = new NumberText("CREDIT ", 1, 2);
+
 	protected GameScene2D() {
 		infoVisiblePy.bind(PacManGames2dApp.PY_SHOW_DEBUG_INFO); // should probably be elsewhere
 	}
@@ -75,16 +107,86 @@ public abstract class GameScene2D implements GameScene {
 		return canvas;
 	}
 
+	/**
+	 * Uses a single canvas for all layers. The complete scene is repainted in every frame.
+	 *
+	 * @param canvas canvas
+	 */
 	public void setCanvas(Canvas canvas) {
-		checkNotNull(canvas);
-		this.canvas = canvas;
-		this.g = canvas.getGraphicsContext2D();
+		setCanvases(canvas, canvas, canvas);
+	}
+
+	/**
+	 * Uses separate canvases for the layers. The canvases are stacked with the background canvas at the bottom.
+	 *
+	 * @param background background layer (maze)
+	 * @param actors     actors layer, transparent
+	 * @param hud        HUD layer (scores, credit, counters), transparent
+	 */
+	public void setCanvases(Canvas background, Canvas actors, Canvas hud) {
+		checkNotNull(background);
+		checkNotNull(actors);
+		checkNotNull(hud);
+		layerCanvases[Layer.BACKGROUND.ordinal()] = background;
+		layerCanvases[Layer.ACTORS.ordinal()] = actors;
+		layerCanvases[Layer.HUD.ordinal()] = hud;
+		this.canvas = actors;
+		this.g = actors.getGraphicsContext2D();
+		if (isLayered()) {
+			// remove content left by previous scene
+			for (var layer : Layer.values()) {
+				selectLayer(layer);
+				clearCanvas();
+			}
+			selectLayer(Layer.ACTORS);
+		}
+		invalidateLayers();
+	}
+
+	/**
+	 * @return if the layers are drawn into separate canvases
+	 */
+	public boolean isLayered() {
+		return layerCanvases[Layer.BACKGROUND.ordinal()] != layerCanvases[Layer.ACTORS.ordinal()];
+	}
+
+	/**
+	 * Lets the following draw calls target the given layer.
+	 *
+	 * @param layer layer
+	 */
+	protected void selectLayer(Layer layer) {
+		var layerCanvas = layerCanvases[layer.ordinal()];
+		if (layerCanvas != null && layerCanvas != canvas) {
+			canvas = layerCanvas;
+			g = layerCanvas.getGraphicsContext2D();
+		}
+	}
+
+	/**
+	 * Marks the given layer such that it gets repainted in the next frame.
+	 *
+	 * @param layer layer
+	 */
+	public void invalidate(Layer layer) {
+		layerDirty[layer.ordinal()] = true;
+	}
+
+	public void invalidateLayers() {
+		for (var layer : Layer.values()) {
+			invalidate(layer);
+		}
+		backgroundState.reset();
+		hudState.reset();
 	}
 
 	public void setScaling(double scaling) {
 		if (scaling <= 0) {
 			throw new IllegalArgumentException("Scaling value must be positive but is " + scaling);
 		}
+		if (scaling != this.scaling) {
+			invalidateLayers();
+		}
 		this.scaling = scaling;
 	}
 
@@ -96,6 +198,7 @@ public abstract class GameScene2D implements GameScene {
 	@Override
 	public void setCreditVisible(boolean creditVisible) {
 		this.creditVisible = creditVisible;
+		invalidate(Layer.HUD);
 	}
 
 	@Override
@@ -106,6 +209,7 @@ public abstract class GameScene2D implements GameScene {
 	@Override
 	public void setScoreVisible(boolean scoreVisible) {
 		this.scoreVisible = scoreVisible;
+		invalidate(Layer.HUD);
 	}
 
 	protected double s(double value) {
@@ -118,7 +222,7 @@ public abstract class GameScene2D implements GameScene {
 
 	@Override
 	public Node root() {
-		return canvas;
+		return layerCanvases[Layer.ACTORS.ordinal()];
 	}
 
 	@Override
@@ -127,26 +231,163 @@ public abstract class GameScene2D implements GameScene {
 	}
 
 	public void draw() {
-		clearCanvas();
 		if (context == null) {
+			selectLayer(Layer.ACTORS);
+			clearCanvas();
 			Logger.error("Cannot render game scene {}, no context exists", getClass().getSimpleName());
 			return; // TODO may this happen?
 		}
+		if (!isLayered()) {
+			clearCanvas();
+			drawBackground();
+			drawSceneContent();
+			drawHUD();
+			if (infoVisiblePy.get()) {
+				drawSceneInfo();
+			}
+			return;
+		}
+		updateLayerDirtyFlags();
+		if (layerDirty[Layer.BACKGROUND.ordinal()]) {
+			selectLayer(Layer.BACKGROUND);
+			clearCanvas();
+			drawBackground();
+			layerDirty[Layer.BACKGROUND.ordinal()] = false;
+		}
+		if (layerDirty[Layer.HUD.ordinal()]) {
+			selectLayer(Layer.HUD);
+			clearCanvas();
+			if (isDrawBatchingEnabled()) {
+				record(hudCommands, hudDrawing);
+				hudCommands.flush(g);
+			} else {
+				drawHUD();
+			}
+			layerDirty[Layer.HUD.ordinal()] = false;
+		}
+		selectLayer(Layer.ACTORS);
+		boolean infoVisible = infoVisiblePy.get();
+		if (isDrawBatchingEnabled()) {
+			boolean unchanged = record(actorsCommands, sceneContentDrawing);
+			if (unchanged && !layerDirty[Layer.ACTORS.ordinal()] && !infoVisible && !sceneInfoDrawn) {
+				actorsCommands.reuse();
+			} else {
+				clearCanvas();
+				actorsCommands.flush(g);
+				if (infoVisible) {
+					drawSceneInfo();
+				}
+			}
+		} else {
+			clearCanvas();
+			drawSceneContent();
+			if (infoVisible) {
+				drawSceneInfo();
+			}
+		}
+		sceneInfoDrawn = infoVisible;
+		layerDirty[Layer.ACTORS.ordinal()] = false;
+	}
+
+	/**
+	 * If batching is enabled, image and text draw calls of the HUD and actors layer are recorded and issued grouped by
+	 * source image and text state (see {@link DrawCommandBuffer}). Scenes enabling batching must only use
+	 * {@link #drawSprite(Image, Rectangle2D, double, double)}, {@link #drawImage(Image, double, double)} and
+	 * {@link #drawText(String, Color, Font, double, double)} for drawing these layers and must not rely on the drawing
+	 * order of overlapping sprites from different source images.
+	 *
+	 * @return if draw batching is used by this scene
+	 */
+	protected boolean isDrawBatchingEnabled() {
+		return false;
+	}
+
+	/**
+	 * @return draw command buffer of the actors layer, provides the draw metrics of the last frame
+	 */
+	public DrawCommandBuffer actorsDrawCommands() {
+		return actorsCommands;
+	}
+
+	private boolean record(DrawCommandBuffer commands, Runnable drawing) {
+		commands.begin();
+		recordingCommands = commands;
+		try {
+			drawing.run();
+		} finally {
+			recordingCommands = null;
+		}
+		return commands.end();
+	}
+
+	private void issueImage(Image image, double sx, double sy, double sw, double sh, double dx, double dy, double dw,
+			double dh) {
+		if (recordingCommands != null) {
+			recordingCommands.addImage(image, sx, sy, sw, sh, dx, dy, dw, dh);
+		} else {
+			g.drawImage(image, sx, sy, sw, sh, dx, dy, dw, dh);
+		}
+	}
+
+	private void updateLayerDirtyFlags() {
+		var bgColor = PY_CANVAS_BG_COLOR.get();
+		if (!bgColor.equals(drawnBgColor)) {
+			drawnBgColor = bgColor;
+			invalidate(Layer.BACKGROUND);
+		}
+		backgroundState.begin();
+		addBackgroundState(backgroundState);
+		if (backgroundState.changed()) {
+			invalidate(Layer.BACKGROUND);
+		}
+		hudState.begin();
+		addHUDState(hudState);
+		if (hudState.changed()) {
+			invalidate(Layer.HUD);
+		}
+	}
+
+	/**
+	 * Draws the background layer, e.g. the maze. Only called if the background state has changed.
+	 */
+	protected void drawBackground() {
+	}
+
+	/**
+	 * Adds the values the background layer content depends on.
+	 *
+	 * @param state background layer state of current frame
+	 */
+	protected void addBackgroundState(LayerState state) {
+	}
+
+	/**
+	 * Draws the HUD layer (scores, credit etc.). Only called if the HUD state has changed.
+	 */
+	protected void drawHUD() {
 		if (scoreVisible) {
-			drawScore(game().score(), "SCORE", t(1), t(1));
-			drawScore(game().highScore(), "HIGH SCORE", t(14), t(1));
+			drawScores();
 		}
 		if (creditVisible) {
-			drawCredit(GameController.it().credit(), t(2), t(36) - 1);
-		}
-		drawSceneContent();
-		if (infoVisiblePy.get()) {
-			drawSceneInfo();
+			drawCredit(credit(), t(2), t(36) - 1);
 		}
 	}
 
 	/**
-	 * Draws the scene content, e.g. the maze and the guys.
+	 * Adds the values the HUD layer content depends on.
+	 *
+	 * @param state HUD layer state of current frame
+	 */
+	protected void addHUDState(LayerState state) {
+		var score = game().score();
+		var highScore = game().highScore();
+		state.add(score.points()).add(score.levelNumber());
+		state.add(highScore.points()).add(highScore.levelNumber());
+		state.add(credit());
+	}
+
+	/**
+	 * Draws the scene content, e.g. the guys. This is drawn into the actors layer which is cleared in every frame.
 	 */
 	protected abstract void drawSceneContent();
 
@@ -156,18 +397,41 @@ public abstract class GameScene2D implements GameScene {
 	protected void drawSceneInfo() {
 	}
 
+	/**
+	 * Clears the canvas of the selected layer. The background layer is filled with the background color, the upper layers
+	 * become transparent.
+	 */
 	protected void clearCanvas() {
-		g.setFill(PY_CANVAS_BG_COLOR.get());
-		g.fillRect(0, 0, canvas.getWidth(), canvas.getHeight());
+		if (canvas == layerCanvases[Layer.BACKGROUND.ordinal()]) {
+			g.setFill(PY_CANVAS_BG_COLOR.get());
+			g.fillRect(0, 0, canvas.getWidth(), canvas.getHeight());
+		} else {
+			g.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+		}
+	}
+
+	protected int credit() {
+		return GameController.it().credit();
 	}
 
-	protected void drawScore(Score score, String title, double x, double y) {
-		var pointsText = String.format("%02d", score.points());
-		var font = sceneFont(8);
-		drawText(title, ArcadePalette.PALE, font, x, y);
-		drawText(String.format("%7s", pointsText), ArcadePalette.PALE, font, x, y + TS + 1);
-		if (score.points() != 0) {
-			drawText("L" + score.levelNumber(), ArcadePalette.PALE, font,x + t(8),y + TS + 1);
+	protected void drawScores() {
+		var score = game().score();
+		var highScore = game().highScore();
+		drawScore(canvasTarget, score.points(), score.levelNumber(), "SCORE", t(1), t(1), scoreText, scoreLevelText);
+		drawScore(canvasTarget, highScore.points(), highScore.levelNumber(), "HIGH SCORE", t(14), t(1), highScoreText,
+				highScoreLevelText);
+	}
+
+	/**
+	 * Draws a score using the given text lines which only create new strings when the values change.
+	 */
+	protected void drawScore(DrawTarget target, int points, int levelNumber, String title, double x, double y,
+			NumberText pointsText, NumberText levelText) {
+		var glyphs = glyphAtlas();
+		target.drawText(title, ArcadePalette.PALE, glyphs, x, y);
+		target.drawText(pointsText.text(points), ArcadePalette.PALE, glyphs, x, y + TS + 1);
+		if (points != 0) {
+			target.drawText(levelText.text(levelNumber), ArcadePalette.PALE, glyphs, x + t(8), y + TS + 1);
 		}
 	}
 
@@ -175,73 +439,116 @@ public abstract class GameScene2D implements GameScene {
 		drawLevelCounter(game().variant(), game().levelCounter(), t(24), t(34));
 	}
 
+	protected void drawLevelCounter(DrawTarget target, RenderSnapshot snapshot) {
+		var spritesheet = spritesheet(snapshot.variant());
+		double x = t(24);
+		for (int i = 0; i < snapshot.levelCounterSize(); ++i) {
+			target.drawSprite(spritesheet, bonusSymbolSpriteID(snapshot.levelCounterSymbol(i), snapshot.variant()), x, t(34));
+			x -= TS * 2;
+		}
+	}
+
 	private void drawLevelCounter(GameVariant variant, Iterable<Byte> levelSymbols, double xr, double yr) {
 		double x = xr;
 		for (var symbol : levelSymbols) {
-			drawSprite(bonusSymbolSprite(symbol, variant), x, yr);
+			drawSprite(bonusSymbolSpriteID(symbol, variant), x, yr);
 			x -= TS * 2;
 		}
 	}
 
-	private Rectangle2D bonusSymbolSprite(byte symbol, GameVariant variant) {
+	/**
+	 * @param variant game variant
+	 * @return spritesheet of the given game variant (the context provides the one of the current game)
+	 */
+	protected Spritesheet spritesheet(GameVariant variant) {
+		switch (variant) {
+			case MS_PACMAN: return context.theme().get("mspacman.spritesheet");
+			case PACMAN:    return context.theme().get("pacman.spritesheet");
+			default:        throw new IllegalGameVariantException(variant);
+		}
+	}
+
+	private int bonusSymbolSpriteID(byte symbol, GameVariant variant) {
+		switch (variant) {
+			case MS_PACMAN: return ((SpritesheetMsPacManGame) spritesheet(variant)).bonusSymbolSpriteID(symbol);
+			case PACMAN:    return ((SpritesheetPacManGame)   spritesheet(variant)).bonusSymbolSpriteID(symbol);
+			default:        throw new IllegalGameVariantException(variant);
+		}
+	}
+
+	// -1 if there is no sprite for the symbol
+	private int bonusValueSpriteID(byte symbol, GameVariant variant) {
 		switch (variant) {
-			case MS_PACMAN: return ((SpritesheetMsPacManGame) context.spritesheet()).bonusSymbolSprite(symbol);
-			case PACMAN:    return ((SpritesheetPacManGame)   context.spritesheet()).bonusSymbolSprite(symbol);
+			case MS_PACMAN: return ((SpritesheetMsPacManGame) spritesheet(variant)).bonusValueSpriteID(symbol);
+			case PACMAN:    return 0 <= symbol && symbol < 8
+					? ((SpritesheetPacManGame) spritesheet(variant)).bonusValueSpriteID(symbol) : -1;
 			default:        throw new IllegalGameVariantException(variant);
 		}
 	}
 
-	private Rectangle2D livesCounterSprite(GameVariant variant) {
+	private int livesCounterSpriteID(GameVariant variant) {
 		switch (variant) {
-			case MS_PACMAN: return ((SpritesheetMsPacManGame) context.spritesheet()).livesCounterSprite();
-			case PACMAN:    return ((SpritesheetPacManGame)   context.spritesheet()).livesCounterSprite();
+			case MS_PACMAN: return ((SpritesheetMsPacManGame) spritesheet(variant)).livesCounterSpriteID();
+			case PACMAN:    return ((SpritesheetPacManGame)   spritesheet(variant)).livesCounterSpriteID();
 			default:        throw new IllegalGameVariantException(variant);
 		}
 	}
 
-	protected void drawLivesCounter(int numLivesDisplayed) {
+	protected void drawLivesCounter(DrawTarget target, GameVariant variant, int numLivesDisplayed) {
 		if (numLivesDisplayed <= 0) {
 			return;
 		}
 		var x = TS * 2;
 		var y = TS * (GameModel.TILES_Y - 2);
 		int maxLives = 5;
+		var spritesheet = spritesheet(variant);
+		int spriteID = livesCounterSpriteID(variant);
 		for (int i = 0; i < Math.min(numLivesDisplayed, maxLives); ++i) {
-			drawSprite(livesCounterSprite(game().variant()), x + TS * (2 * i), y);
+			target.drawSprite(spritesheet, spriteID, x + TS * (2 * i), y);
 		}
 		// text indicating that more lives are available than displayed
 		int excessLives = numLivesDisplayed - maxLives;
 		if (excessLives > 0) {
-			drawText("+" + excessLives, ArcadePalette.YELLOW,
-					Font.font("Serif", FontWeight.BOLD, s(8)), x + TS * 10, y + TS);
-		}
-	}
-
-	protected void drawBonus(Bonus bonus) {
-		switch (game().variant()) {
-			case MS_PACMAN -> {
-				var ss = (SpritesheetMsPacManGame) context.spritesheet();
-				if (bonus instanceof MovingBonus movingBonus) {
-					//TODO reconsider this way of implementing the jumping bonus
-					g.save();
-					g.translate(0, movingBonus.dy());
-					if (bonus.state() == Bonus.STATE_EDIBLE) {
-						drawEntitySprite(bonus.entity(), ss.bonusSymbolSprite(bonus.symbol()));
-					} else if (bonus.state() == Bonus.STATE_EATEN) {
-						drawEntitySprite(bonus.entity(), ss.bonusValueSprite(bonus.symbol()));
-					}
-					g.restore();
-				}
-			}
-			case PACMAN -> {
-				var ss = (SpritesheetPacManGame) context.spritesheet();
-				if (bonus.state() == Bonus.STATE_EDIBLE) {
-					drawEntitySprite(bonus.entity(), ss.bonusSymbolSprite(bonus.symbol()));
-				} else if (bonus.state() == Bonus.STATE_EATEN) {
-					drawEntitySprite(bonus.entity(), ss.bonusValueSprite(bonus.symbol()));
-				}
-			}
-			default -> throw new IllegalGameVariantException(game().variant());
+			target.drawText("+" + excessLives, ArcadePalette.YELLOW, context.theme().get("font.serif.glyphs"),
+					x + TS * 10, y + TS);
+		}
+	}
+
+	protected void drawBonus(DrawTarget target, RenderSnapshot snapshot, double alpha) {
+		var variant = snapshot.variant();
+		int spriteID = -1;
+		if (snapshot.bonusState() == Bonus.STATE_EDIBLE) {
+			spriteID = bonusSymbolSpriteID(snapshot.bonusSymbol(), variant);
+		} else if (snapshot.bonusState() == Bonus.STATE_EATEN) {
+			spriteID = bonusValueSpriteID(snapshot.bonusSymbol(), variant);
+		}
+		var bonus = snapshot.bonus();
+		if (spriteID != -1 && bonus.isVisible()) {
+			var table = spritesheet(variant).spriteTable();
+			double lag = 1 - alpha;
+			double x = bonus.x() - lag * bonus.vx() + HTS - table.width(spriteID) / 2.0;
+			// bonus offset is given in canvas pixels
+			double y = bonus.y() - lag * bonus.vy() + HTS - table.height(spriteID) / 2.0 + snapshot.bonusDy() / scaling;
+			target.drawSprite(spritesheet(variant), spriteID, x, y);
+		}
+	}
+
+	/**
+	 * Draws the actor's sprite over its bounding box (if visible), interpolated like
+	 * {@link #drawEntitySprite(Entity, Rectangle2D)}.
+	 *
+	 * @param target draw target
+	 * @param source sprite sheet source
+	 * @param actor  actor state from render snapshot
+	 * @param alpha  interpolation factor for the actor position (1 = position at end of last update)
+	 */
+	protected void drawActor(DrawTarget target, Image source, RenderSnapshot.Actor actor, double alpha) {
+		var sprite = actor.sprite();
+		if (sprite != null && actor.isVisible()) {
+			double lag = 1 - alpha;
+			double x = actor.x() - lag * actor.vx() + HTS - sprite.getWidth() / 2;
+			double y = actor.y() - lag * actor.vy() + HTS - sprite.getHeight() / 2;
+			target.drawSprite(source, sprite, x, y);
 		}
 	}
 
@@ -253,29 +560,12 @@ public abstract class GameScene2D implements GameScene {
 			if (pa instanceof SpriteAnimations sa) {
 				drawEntitySprite(pac, sa.currentSprite());
 				if (infoVisiblePy.get()) {
-					drawPacInfo(pac, sa);
+					drawCreatureInfo(pac);
 				}
 			}
 		});
 	}
 
-	private void drawPacInfo(Pac pac, SpriteAnimations animations) {
-		g.setFill(Color.WHITE);
-		g.setFont(Font.font("Monospaced", s(6)));
-		var text = animations.currentAnimationName() + " " + animations.currentAnimation().frameIndex();
-		g.fillText(text, s(pac.position().x() + 8), s(pac.position().y()));
-		// indicate wish direction
-		float r = 2;
-		var pacCenter = pac.center();
-		var indicatorCenter = pac.center().plus(pac.wishDir().vector().toFloatVec().scaled(1.5f * TS));
-		var indicatorTopLeft = indicatorCenter.minus(r, r);
-		g.setStroke(Color.WHITE);
-		g.strokeLine(s(pacCenter.x()), s(pacCenter.y()), s(indicatorCenter.x()), s(indicatorCenter.y()));
-		g.setFill(Color.GREEN);
-		g.fillOval(s(indicatorTopLeft.x()), s(indicatorTopLeft.y()), s(2 * r), s(2 * r));
-
-	}
-
 	protected void drawGhost(Ghost ghost) {
 		if (!ghost.isVisible()) {
 			return;
@@ -285,21 +575,49 @@ public abstract class GameScene2D implements GameScene {
 			if (ga instanceof SpriteAnimations sa) {
 				drawEntitySprite(ghost, sa.currentSprite());
 				if (infoVisiblePy.get()) {
-					drawGhostInfo(ghost, sa);
+					drawCreatureInfo(ghost);
 				}
 			}
 		});
 	}
 
-	private void drawGhostInfo(Ghost ghost, SpriteAnimations sa) {
-		g.setFill(Color.WHITE);
-		g.setFont(Font.font("Monospaced", s(6)));
-		var text = sa.currentAnimationName() + " " + sa.currentAnimation().frameIndex();
-		g.fillText(text, s(ghost.position().x() + 8), s(ghost.position().y()));
+	/**
+	 * Draws the current animation name and frame index next to the creature. For Pac-Man, the wish direction is
+	 * indicated too.
+	 *
+	 * @param creature Pac-Man or a ghost
+	 */
+	protected void drawCreatureInfo(Creature creature) {
+		if (!creature.isVisible()) {
+			return;
+		}
+		creature.animations().ifPresent(animations -> {
+			if (animations instanceof SpriteAnimations sa) {
+				g.setFill(Color.WHITE);
+				g.setFont(Font.font("Monospaced", s(6)));
+				var text = sa.currentAnimationName() + " " + sa.currentAnimation().frameIndex();
+				g.fillText(text, s(creature.position().x() + 8), s(creature.position().y()));
+			}
+		});
+		if (creature instanceof Pac pac) {
+			drawWishDirIndicator(pac);
+		}
+	}
+
+	private void drawWishDirIndicator(Pac pac) {
+		float r = 2;
+		var pacCenter = pac.center();
+		var indicatorCenter = pac.center().plus(pac.wishDir().vector().toFloatVec().scaled(1.5f * TS));
+		var indicatorTopLeft = indicatorCenter.minus(r, r);
+		g.setStroke(Color.WHITE);
+		g.strokeLine(s(pacCenter.x()), s(pacCenter.y()), s(indicatorCenter.x()), s(indicatorCenter.y()));
+		g.setFill(Color.GREEN);
+		g.fillOval(s(indicatorTopLeft.x()), s(indicatorTopLeft.y()), s(2 * r), s(2 * r));
 	}
 
 	/**
-	 * Draws a sprite using the current scene scaling.
+	 * Draws a sprite using the current scene scaling. If a pre-scaled copy of the source is available for the current
+	 * scaling, the sprite is copied 1:1 from that copy to the nearest pixel position.
 	 *
 	 * @param source sprite sheet source
 	 * @param sprite sprite sheet region ("sprite")
@@ -308,12 +626,51 @@ public abstract class GameScene2D implements GameScene {
 	 */
 	protected void drawSprite(Image source, Rectangle2D sprite, double x, double y) {
 		if (sprite != null) {
-			g.drawImage(source,
-					sprite.getMinX(), sprite.getMinY(), sprite.getWidth(), sprite.getHeight(),
-					s(x), s(y), s(sprite.getWidth()), s(sprite.getHeight()));
+			var scaled = context.scaledImages().find(source, sprite, scaling);
+			if (scaled != null) {
+				int sx = scaled.scaledX(sprite.getMinX());
+				int sy = scaled.scaledY(sprite.getMinY());
+				int sw = scaled.scaledX(sprite.getMaxX()) - sx;
+				int sh = scaled.scaledY(sprite.getMaxY()) - sy;
+				issueImage(scaled.image(), sx, sy, sw, sh, Math.round(s(x)), Math.round(s(y)), sw, sh);
+			} else {
+				issueImage(source,
+						sprite.getMinX(), sprite.getMinY(), sprite.getWidth(), sprite.getHeight(),
+						s(x), s(y), s(sprite.getWidth()), s(sprite.getHeight()));
+			}
+		}
+	}
+
+	/**
+	 * Draws a complete image using the current scene scaling (see {@link #drawSprite(Image, Rectangle2D, double, double)}).
+	 *
+	 * @param image image
+	 * @param x     UNSCALED x position
+	 * @param y     UNSCALED y position
+	 */
+	protected void drawImage(Image image, double x, double y) {
+		var scaled = context.scaledImages().find(image, imageBounds(image), scaling);
+		if (scaled != null) {
+			var scaledImage = scaled.image();
+			double w = scaledImage.getWidth(), h = scaledImage.getHeight();
+			issueImage(scaledImage, 0, 0, w, h, Math.round(s(x)), Math.round(s(y)), w, h);
+		} else {
+			double w = image.getWidth(), h = image.getHeight();
+			issueImage(image, 0, 0, w, h, s(x), s(y), s(w), s(h));
 		}
 	}
 
+	private Image lastBoundsImage;
+	private Rectangle2D lastBounds;
+
+	private Rectangle2D imageBounds(Image image) {
+		if (image != lastBoundsImage) {
+			lastBounds = new Rectangle2D(0, 0, image.getWidth(), image.getHeight());
+			lastBoundsImage = image;
+		}
+		return lastBounds;
+	}
+
 	/**
 	 * Draws a sprite centered over a one "square tile" large box (bounding box of creature). The position specifies the
 	 * left-upper corner of the bounding box. Note that the sprites for Pac-Man and the ghosts are 16 pixels wide but the
@@ -340,19 +697,38 @@ public abstract class GameScene2D implements GameScene {
 	}
 
 	/**
-	 * Draws the sprite over the bounding box of the given entity (if visible).
+	 * Draws a sprite of the current spritesheet at the given position (upper left corner).
+	 * @param spriteID sprite ID (see {@link de.amr.games.pacman.ui.fx.util.SpriteTable})
+	 * @param x x coordinate of upper left corner
+	 * @param y y coordinate of upper left corner
+	 */
+	protected void drawSprite(int spriteID, double x, double y) {
+		var spritesheet = context.spritesheet();
+		drawSprite(spritesheet.source(), spritesheet.sprite(spriteID), x, y);
+	}
+
+	/**
+	 * Draws the sprite over the bounding box of the given entity (if visible). If the game clock runs in fixed timestep
+	 * mode, the position is interpolated between the last two update steps.
 	 *
 	 * @param entity an entity like Pac-Man or a ghost
 	 * @param sprite the sprite
 	 */
 	protected void drawEntitySprite(Entity entity, Rectangle2D sprite) {
 		if (entity.isVisible()) {
-			drawSpriteOverBoundingBox(sprite, entity.position().x(), entity.position().y());
+			double lag = 1 - context.clock().getInterpolationAlpha();
+			double x = entity.position().x() - lag * entity.velocity().x();
+			double y = entity.position().y() - lag * entity.velocity().y();
+			drawSpriteOverBoundingBox(sprite, x, y);
 		}
 	}
 
 	protected void drawCredit(int credit, double x, double y) {
- 		drawText(String.format("CREDIT %2d", credit), ArcadePalette.PALE, sceneFont(8), x, y);
+		drawCredit(canvasTarget, credit, x, y);
+	}
+
+	protected void drawCredit(DrawTarget target, int credit, double x, double y) {
+		target.drawText(creditText.text(credit), ArcadePalette.PALE, glyphAtlas(), x, y);
 	}
 
 	protected void drawMidwayCopyright(double x, double y) {
@@ -360,8 +736,10 @@ public abstract class GameScene2D implements GameScene {
 	}
 
 	protected void drawMsPacManCopyright(double x, double y) {
-		Image logo = context.theme().get("mspacman.logo.midway");
-		g.drawImage(logo, s(x), s(y + 2), s(TS * 4 - 2), s(TS * 4));
+		TextureAtlas atlas = context.theme().get("atlas");
+		var logo = atlas.region("mspacman.logo.midway");
+		g.drawImage(atlas.image(), logo.getMinX(), logo.getMinY(), logo.getWidth(), logo.getHeight(),
+				s(x), s(y + 2), s(TS * 4 - 2), s(TS * 4));
 		g.setFill(ArcadePalette.RED);
 		g.setFont(sceneFont(8));
 		g.fillText("©", s(x + TS * 5), s(y + TS * 2 + 2)); // (c) symbol
@@ -386,12 +764,124 @@ public abstract class GameScene2D implements GameScene {
 		}
 	}
 
+	/**
+	 * Draws a text. Text in the arcade font with a size of one tile is drawn using the glyph atlas.
+	 *
+	 * @param text  text
+	 * @param color text color
+	 * @param font  font
+	 * @param x     UNSCALED x position
+	 * @param y     UNSCALED y position of baseline
+	 */
 	protected void drawText(String text, Color color, Font font, double x, double y) {
+		if (font == sceneFont(8) && glyphAtlas().containsAll(text)) {
+			drawArcadeText(text, color, x, y);
+			return;
+		}
+		if (recordingCommands != null) {
+			recordingCommands.addText(text, font, color, s(x), s(y));
+			return;
+		}
 		g.setFont(font);
 		g.setFill(color);
 		g.fillText(text, s(x), s(y));
 	}
 
+	protected GlyphAtlas glyphAtlas() {
+		return context.theme().get("font.arcade.glyphs");
+	}
+
+	/**
+	 * Draws a text in the arcade font by copying the glyphs from the glyph atlas. Characters not contained in the atlas
+	 * are skipped.
+	 *
+	 * @param text  text
+	 * @param color text color
+	 * @param x     UNSCALED x position
+	 * @param y     UNSCALED y position of baseline
+	 */
+	protected void drawArcadeText(String text, Color color, double x, double y) {
+		drawGlyphs(text, color, glyphAtlas(), x, y);
+	}
+
+	private void drawGlyphs(String text, Color color, GlyphAtlas atlas, double x, double y) {
+		var image = glyphAtlasImage(atlas, color);
+		for (int i = 0; i < text.length(); ++i) {
+			char ch = text.charAt(i);
+			if (ch != ' ' && atlas.contains(ch)) {
+				drawSprite(image, atlas.cell(ch), x + i * TS, y - TS);
+			}
+		}
+	}
+
+	/**
+	 * Draws a single character in the arcade font (see {@link #drawArcadeText(String, Color, double, double)}).
+	 */
+	protected void drawArcadeChar(char ch, Color color, double x, double y) {
+		var atlas = glyphAtlas();
+		if (atlas.contains(ch)) {
+			drawSprite(glyphAtlasImage(atlas, color), atlas.cell(ch), x, y - TS);
+		}
+	}
+
+	private Image glyphAtlasImage(GlyphAtlas atlas, Color color) {
+		var image = atlas.image(color);
+		var scaledImages = context.scaledImages();
+		if (scaledImages.find(image, atlas.cell(GlyphAtlas.FIRST_CHAR), scaling) == null) {
+			scaledImages.prepare(scaling, image, null);
+		}
+		return image;
+	}
+
+	/**
+	 * @return draw target for the canvas of the selected layer
+	 */
+	protected DrawTarget canvasTarget() {
+		return canvasTarget;
+	}
+
+	/**
+	 * Draws into the canvas of the selected layer using the drawing methods of this class. Rectangles and the maze are
+	 * drawn directly into the canvas (not batched), so they should only be used for the background layer.
+	 */
+	private class CanvasDrawTarget implements DrawTarget {
+
+		private final MazeLayer mazeLayer = new MazeLayer();
+
+		@Override
+		public void drawSprite(Image source, Rectangle2D sprite, double x, double y) {
+			GameScene2D.this.drawSprite(source, sprite, x, y);
+		}
+
+		@Override
+		public void drawSprite(Spritesheet spritesheet, int spriteID, double x, double y) {
+			GameScene2D.this.drawSprite(spritesheet.source(), spritesheet.sprite(spriteID), x, y);
+		}
+
+		@Override
+		public void drawImage(Image image, double x, double y) {
+			GameScene2D.this.drawImage(image, x, y);
+		}
+
+		@Override
+		public void drawText(String text, Color color, GlyphAtlas glyphs, double x, double y) {
+			drawGlyphs(text, color, glyphs, x, y);
+		}
+
+		@Override
+		public void fillRect(double x, double y, double width, double height, Color color) {
+			g.setFill(color);
+			g.fillRect(s(x), s(y), s(width), s(height));
+		}
+
+		@Override
+		public void drawMaze(Image source, Rectangle2D region, BitSet eatenFood, int numCols, int topRow, Color bgColor,
+				double x, double y) {
+			var image = mazeLayer.update(source, region, eatenFood, numCols, topRow, bgColor);
+			g.drawImage(image, s(x), s(y), s(image.getWidth()), s(image.getHeight()));
+		}
+	}
+
 	protected void drawTileGrid(int tilesX, int tilesY) {
 		g.setStroke(ArcadePalette.PALE);
 		g.setLineWidth(0.2);
@@ -0,0 +1,60 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.ui.fx.scene2d;
+
+import java.util.Arrays;
+
+/**
+ * The values the content of a canvas layer depends on. In each frame, the scene adds the current values and the layer
+ * is repainted only if they differ from the values of the last frame.
+ *
+ * @author Armin Reichert
+ */
+public class LayerState {
+
+	private int[] values = new int[16];
+	private int[] previousValues = new int[16];
+	private int size;
+	private int previousSize;
+	private boolean invalid = true;
+
+	/**
+	 * Starts collecting the values for the current frame.
+	 */
+	public void begin() {
+		var swap = previousValues;
+		previousValues = values;
+		values = swap;
+		previousSize = invalid ? -1 : size;
+		size = 0;
+		invalid = false;
+	}
+
+	public LayerState add(int value) {
+		if (size == values.length) {
+			values = Arrays.copyOf(values, 2 * size);
+		}
+		values[size++] = value;
+		return this;
+	}
+
+	public LayerState add(boolean value) {
+		return add(value ? 1 : 0);
+	}
+
+	/**
+	 * @return if the values collected since {@link #begin()} differ from the values of the previous frame
+	 */
+	public boolean changed() {
+		return size != previousSize || !Arrays.equals(values, 0, size, previousValues, 0, size);
+	}
+
+	/**
+	 * Forgets the previous values, the next call of {@link #changed()} will return {@code true}.
+	 */
+	public void reset() {
+		invalid = true;
+	}
+}
@@ -0,0 +1,126 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.ui.fx.scene2d;
+
+import javafx.geometry.Rectangle2D;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Objects;
+
+import static de.amr.games.pacman.lib.Globals.TS;
+import static de.amr.games.pacman.lib.Globals.checkNotNull;
+
+/**
+ * Unscaled offscreen image of the filled maze with the eaten food removed. The image is created when the maze changes
+ * and afterwards only the tiles of newly eaten food are cleared, so drawing the maze costs a single image draw per
+ * frame. If food reappears (new level, rewinding), the image is recreated.
+ *
+ * @author Armin Reichert
+ */
+public class MazeLayer {
+
+	private final BitSet clearedTiles = new BitSet();
+	private WritableImage image;
+	private Image source;
+	private Rectangle2D region;
+	private Color bgColor;
+	private int[] bgPixels = new int[0];
+	private long version;
+
+	/**
+	 * Brings the layer up-to-date and returns its image. The complete source image is used as the filled maze.
+	 *
+	 * @see #update(Image, Rectangle2D, BitSet, int, int, Color)
+	 */
+	public Image update(Image source, BitSet eatenFood, int numCols, int topRow, Color bgColor) {
+		return update(source, null, eatenFood, numCols, topRow, bgColor);
+	}
+
+	/**
+	 * Brings the layer up-to-date and returns its image.
+	 *
+	 * @param source    image containing the filled maze
+	 * @param region    region of the filled maze inside the source image or {@code null} for the complete image
+	 * @param eatenFood tiles of eaten food (index = row * numCols + col, rows counted from top of world)
+	 * @param numCols   number of tile columns
+	 * @param topRow    first world row covered by the maze image
+	 * @param bgColor   color used to clear food tiles
+	 * @return maze image of the same size as the source region
+	 */
+	public Image update(Image source, Rectangle2D region, BitSet eatenFood, int numCols, int topRow, Color bgColor) {
+		checkNotNull(source);
+		checkNotNull(eatenFood);
+		checkNotNull(bgColor);
+		if (image == null || source != this.source || !Objects.equals(region, this.region) || !bgColor.equals(this.bgColor)
+				|| !isSubsetOf(clearedTiles, eatenFood)) {
+			create(source, region, bgColor);
+		}
+		if (!eatenFood.equals(clearedTiles)) {
+			for (int i = eatenFood.nextSetBit(0); i >= 0; i = eatenFood.nextSetBit(i + 1)) {
+				if (!clearedTiles.get(i)) {
+					clearTile(i % numCols, i / numCols - topRow);
+					clearedTiles.set(i);
+				}
+			}
+		}
+		return image;
+	}
+
+	/**
+	 * @return number that changes whenever the content of the image changes
+	 */
+	public long version() {
+		return version;
+	}
+
+	private void create(Image source, Rectangle2D region, Color bgColor) {
+		int srcX = region != null ? (int) region.getMinX() : 0;
+		int srcY = region != null ? (int) region.getMinY() : 0;
+		int width = (int) (region != null ? region.getWidth() : source.getWidth());
+		int height = (int) (region != null ? region.getHeight() : source.getHeight());
+		if (image == null || image.getWidth() != width || image.getHeight() != height) {
+			image = new WritableImage(width, height);
+		}
+		image.getPixelWriter().setPixels(0, 0, width, height, source.getPixelReader(), srcX, srcY);
+		if (!bgColor.equals(this.bgColor)) {
+			bgPixels = new int[TS * TS];
+			Arrays.fill(bgPixels, argb(bgColor));
+		}
+		this.source = source;
+		this.region = region;
+		this.bgColor = bgColor;
+		clearedTiles.clear();
+		++version;
+	}
+
+	private void clearTile(int col, int row) {
+		int x = col * TS;
+		int y = row * TS;
+		if (x < 0 || y < 0 || x + TS > image.getWidth() || y + TS > image.getHeight()) {
+			return;
+		}
+		image.getPixelWriter().setPixels(x, y, TS, TS, PixelFormat.getIntArgbInstance(), bgPixels, 0, TS);
+		++version;
+	}
+
+	private static boolean isSubsetOf(BitSet subset, BitSet set) {
+		for (int i = subset.nextSetBit(0); i >= 0; i = subset.nextSetBit(i + 1)) {
+			if (!set.get(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int argb(Color color) {
+		return (int) Math.round(color.getOpacity() * 255) << 24 | (int) Math.round(color.getRed() * 255) << 16
+				| (int) Math.round(color.getGreen() * 255) << 8 | (int) Math.round(color.getBlue() * 255);
+	}
+}
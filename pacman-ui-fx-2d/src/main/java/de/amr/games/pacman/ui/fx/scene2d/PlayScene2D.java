@@ -7,19 +7,18 @@ package de.amr.games.pacman.ui.fx.scene2d;
 import de.amr.games.pacman.controller.GameController;
 import de.amr.games.pacman.controller.GameState;
 import de.amr.games.pacman.event.GameStateChangeEvent;
-import de.amr.games.pacman.lib.Vector2i;
 import de.amr.games.pacman.model.GameLevel;
 import de.amr.games.pacman.model.GameModel;
 import de.amr.games.pacman.model.GameVariant;
 import de.amr.games.pacman.model.actors.Ghost;
-import de.amr.games.pacman.model.world.World;
 import de.amr.games.pacman.ui.fx.input.Keyboard;
 import de.amr.games.pacman.ui.fx.rendering2d.ArcadePalette;
 import de.amr.games.pacman.ui.fx.rendering2d.mspacman.SpritesheetMsPacManGame;
+import de.amr.games.pacman.ui.fx.scene.RenderSnapshot;
+import de.amr.games.pacman.ui.fx.util.NumberText;
+import de.amr.games.pacman.ui.fx.util.TextureAtlas;
 import javafx.scene.paint.Color;
 
-import java.util.stream.Stream;
-
 import static de.amr.games.pacman.lib.Globals.HTS;
 import static de.amr.games.pacman.lib.Globals.TS;
 import static de.amr.games.pacman.model.actors.GhostState.ENTERING_HOUSE;
@@ -28,11 +27,16 @@ import static de.amr.games.pacman.ui.fx.PacManGames2dApp.*;
 
 /**
  * 2D play scene.
+ * <p>
+ * The scene content is drawn from a render snapshot into a {@link DrawTarget}. The canvas layers use the canvas target
+ * of the scene, the software renderer (see {@link SoftwareRenderView}) draws the same content into a pixel raster.
  *
  * @author Armin Reichert
  */
 public class PlayScene2D extends GameScene2D {
 
+	private final NumberText levelTestText = new NumberText("TEST    L", 1, 0);
+
 	@Override
 	public void init() {
 		setCreditVisible(!GameController.it().hasCredit());
@@ -62,98 +66,202 @@ public class PlayScene2D extends GameScene2D {
 	}
 
 	@Override
-	protected void drawSceneContent() {
-		var theme = context.theme();
-		game().level().ifPresent(level -> {
-			if (game().variant() == GameVariant.MS_PACMAN) {
-				int mazeNumber = game().mazeNumber(level.number());
-				drawMsPacManMaze(level, mazeNumber);
-			} else {
-				drawPacManMaze(level);
-			}
-			if (state() == GameState.LEVEL_TEST) {
-				drawText(String.format("TEST    L%d", level.number()),
-						ArcadePalette.YELLOW, sceneFont(8), t(8.5), t(21));
-			} else if (state() == GameState.GAME_OVER || !GameController.it().hasCredit()) {
-				drawText("GAME  OVER", ArcadePalette.RED, sceneFont(8), t(9), t(21));
-			} else if (state() == GameState.READY) {
-				drawText("READY!", ArcadePalette.YELLOW, sceneFont(8), t(11), t(21));
+	public boolean rendersFromSnapshot() {
+		return true;
+	}
+
+	@Override
+	protected boolean isDrawBatchingEnabled() {
+		return true;
+	}
+
+	@Override
+	protected int credit() {
+		return context.snapshot().credit();
+	}
+
+	@Override
+	protected void addBackgroundState(LayerState state) {
+		var snapshot = context.snapshot();
+		state.add(snapshot.isLevelPresent());
+		if (snapshot.isLevelPresent()) {
+			state.add(snapshot.variant().ordinal()).add(snapshot.levelNumber()).add(snapshot.mazeNumber());
+			// food is only eaten during a level, so the number of eaten pellets determines which ones are eaten
+			state.add(snapshot.eatenFood().cardinality());
+			state.add(snapshot.isMazeFlashing()).add(snapshot.isMazeFlashingOn()).add(snapshot.isEnergizersOff());
+		}
+	}
+
+	@Override
+	protected void drawBackground() {
+		drawBackground(canvasTarget(), context.snapshot());
+	}
+
+	/**
+	 * Draws the maze.
+	 *
+	 * @param target   draw target
+	 * @param snapshot snapshot to draw
+	 */
+	public void drawBackground(DrawTarget target, RenderSnapshot snapshot) {
+		if (!snapshot.isLevelPresent()) {
+			return;
+		}
+		if (snapshot.variant() == GameVariant.MS_PACMAN) {
+			drawMsPacManMaze(target, snapshot);
+		} else {
+			drawPacManMaze(target, snapshot);
+		}
+	}
+
+	@Override
+	protected void addHUDState(LayerState state) {
+		var snapshot = context.snapshot();
+		state.add(snapshot.scorePoints()).add(snapshot.scoreLevelNumber());
+		state.add(snapshot.highScorePoints()).add(snapshot.highScoreLevelNumber());
+		state.add(snapshot.credit());
+		state.add(snapshot.isLevelPresent());
+		if (snapshot.isLevelPresent()) {
+			state.add(snapshot.variant().ordinal()).add(displayedLives(snapshot));
+			state.add(snapshot.levelCounterSize());
+			for (int i = 0; i < snapshot.levelCounterSize(); ++i) {
+				state.add(snapshot.levelCounterSymbol(i));
 			}
-			level.bonus().ifPresent(this::drawBonus);
-			drawPac(level.pac());
-			Stream.of(GameModel.ORANGE_GHOST, GameModel.CYAN_GHOST, GameModel.PINK_GHOST, GameModel.RED_GHOST)
-					.map(level::ghost).forEach(this::drawGhost);
+		}
+	}
+
+	@Override
+	protected void drawHUD() {
+		drawHUD(canvasTarget(), context.snapshot());
+	}
+
+	/**
+	 * Draws scores, credit, lives counter and level counter.
+	 *
+	 * @param target   draw target
+	 * @param snapshot snapshot to draw
+	 */
+	public void drawHUD(DrawTarget target, RenderSnapshot snapshot) {
+		if (isScoreVisible()) {
+			drawScore(target, snapshot.scorePoints(), snapshot.scoreLevelNumber(), "SCORE", t(1), t(1), scoreText,
+					scoreLevelText);
+			drawScore(target, snapshot.highScorePoints(), snapshot.highScoreLevelNumber(), "HIGH SCORE", t(14), t(1),
+					highScoreText, highScoreLevelText);
+		}
+		if (isCreditVisible()) {
+			drawCredit(target, snapshot.credit(), t(2), t(36) - 1);
+		}
+		if (snapshot.isLevelPresent()) {
 			if (!isCreditVisible()) {
-				boolean hideOne = level.pac().isVisible() || GameController.it().state() == GameState.GHOST_DYING;
-				int lives = hideOne ? game().lives() - 1 : game().lives();
-				drawLivesCounter(lives);
+				drawLivesCounter(target, snapshot.variant(), displayedLives(snapshot));
 			}
-			drawLevelCounter();
-		});
+			drawLevelCounter(target, snapshot);
+		}
+	}
+
+	private int displayedLives(RenderSnapshot snapshot) {
+		boolean hideOne = snapshot.pac().isVisible() || snapshot.gameState() == GameState.GHOST_DYING;
+		return hideOne ? snapshot.lives() - 1 : snapshot.lives();
+	}
+
+	@Override
+	protected void drawSceneContent() {
+		drawSceneContent(canvasTarget(), context.snapshot(), context.clock().getInterpolationAlpha());
 	}
 
-	// TODO put all images into a single sprite sheet
-	private void drawPacManMaze(GameLevel level) {
-		var theme = context.theme();
-		var world = level.world();
+	/**
+	 * Draws the state text, the bonus and the actors.
+	 *
+	 * @param target   draw target
+	 * @param snapshot snapshot to draw
+	 * @param alpha    interpolation factor for actor positions (1 = position at end of last update)
+	 */
+	public void drawSceneContent(DrawTarget target, RenderSnapshot snapshot, double alpha) {
+		if (!snapshot.isLevelPresent()) {
+			return;
+		}
+		var state = snapshot.gameState();
+		if (state == GameState.LEVEL_TEST) {
+			target.drawText(levelTestText.text(snapshot.levelNumber()), ArcadePalette.YELLOW, glyphAtlas(), t(8.5), t(21));
+		} else if (state == GameState.GAME_OVER || !snapshot.hasCredit()) {
+			target.drawText("GAME  OVER", ArcadePalette.RED, glyphAtlas(), t(9), t(21));
+		} else if (state == GameState.READY) {
+			target.drawText("READY!", ArcadePalette.YELLOW, glyphAtlas(), t(11), t(21));
+		}
+		drawBonus(target, snapshot, alpha);
+		var source = spritesheet(snapshot.variant()).source();
+		drawActor(target, source, snapshot.pac(), alpha);
+		drawActor(target, source, snapshot.ghost(GameModel.ORANGE_GHOST), alpha);
+		drawActor(target, source, snapshot.ghost(GameModel.CYAN_GHOST), alpha);
+		drawActor(target, source, snapshot.ghost(GameModel.PINK_GHOST), alpha);
+		drawActor(target, source, snapshot.ghost(GameModel.RED_GHOST), alpha);
+	}
+
+	private void drawPacManMaze(DrawTarget target, RenderSnapshot snapshot) {
+		TextureAtlas atlas = context.theme().get("atlas");
 		double x = 0, y = t(3);
-		if (world.mazeFlashing().isRunning()) {
-			var image = world.mazeFlashing().on()
-					? theme.image("pacman.flashingMaze")
-					: theme.image("pacman.emptyMaze");
-			g.drawImage(image, s(x), s(y), s(image.getWidth()), s(image.getHeight()));
+		if (snapshot.isMazeFlashing()) {
+			var region = snapshot.isMazeFlashingOn()
+					? atlas.region("pacman.flashingMaze")
+					: atlas.region("pacman.emptyMaze");
+			target.drawSprite(atlas.image(), region, x, y);
 		} else {
-			var image = theme.image("pacman.fullMaze");
-			g.drawImage(image, s(x), s(y), s(image.getWidth()), s(image.getHeight()));
-			world.tiles().filter(world::hasEatenFoodAt).forEach(tile -> hideTileContent(world, tile));
-			if (world.energizerBlinking().off()) {
-				world.energizerTiles().forEach(tile -> hideTileContent(world, tile));
-			}
+			target.drawMaze(atlas.image(), atlas.region("pacman.fullMaze"), snapshot.eatenFood(), snapshot.numCols(), 3,
+					PY_CANVAS_BG_COLOR.get(), x, y);
+			hideEnergizers(target, snapshot);
 		}
 	}
 
-	private void drawMsPacManMaze(GameLevel level, int mazeNumber) {
-		var theme = context.theme();
-		var world = level.world();
+	private void drawMsPacManMaze(DrawTarget target, RenderSnapshot snapshot) {
+		int mazeNumber = snapshot.mazeNumber();
 		double x = 0, y = t(3);
-		var ss = (SpritesheetMsPacManGame) context.spritesheet();
-		if (world.mazeFlashing().isRunning()) {
-			if (world.mazeFlashing().on()) {
-				var source = theme.image("mspacman.flashingMazes");
-				var flashingMazeSprite = ss.highlightedMaze(mazeNumber);
-				drawSprite(source, flashingMazeSprite, x - 3 /* don't tell your mommy */, y);
-			} else {
-				drawSprite(ss.source(), ss.emptyMaze(mazeNumber), x, y);
-			}
+		var ss = (SpritesheetMsPacManGame) spritesheet(GameVariant.MS_PACMAN);
+		if (snapshot.isMazeFlashing()) {
+			// flashing is a palette swap of the maze image
+			var image = snapshot.isMazeFlashingOn() ? ss.flashingMaze(mazeNumber) : ss.emptyMaze(mazeNumber);
+			target.drawImage(image, x, y);
 		} else {
-			// draw filled maze and hide eaten food (including energizers)
-			drawSprite(ss.filledMaze(mazeNumber), x, y);
-			world.tiles().filter(world::hasEatenFoodAt).forEach(tile -> hideTileContent(world, tile));
-			// energizer animation
-			if (world.energizerBlinking().off()) {
-				world.energizerTiles().forEach(tile -> hideTileContent(world, tile));
+			// filled maze with eaten food (including energizers) removed
+			target.drawMaze(ss.filledMaze(mazeNumber), null, snapshot.eatenFood(), snapshot.numCols(), 3,
+					PY_CANVAS_BG_COLOR.get(), x, y);
+			hideEnergizers(target, snapshot);
+		}
+	}
+
+	// energizer animation, eaten food is already removed from the maze layer
+	private void hideEnergizers(DrawTarget target, RenderSnapshot snapshot) {
+		if (snapshot.isEnergizersOff()) {
+			var energizers = snapshot.energizers();
+			for (int i = energizers.nextSetBit(0); i >= 0; i = energizers.nextSetBit(i + 1)) {
+				hideTileContent(target, snapshot, i % snapshot.numCols(), i / snapshot.numCols());
 			}
 		}
 	}
 
-	private void hideTileContent(World world, Vector2i tile) {
-		g.setFill(PY_CANVAS_BG_COLOR.get());
-		double r = world.isEnergizerTile(tile) ? 4.5 : 2;
-		double cx = t(tile.x()) + HTS;
-		double cy = t(tile.y()) + HTS ;
-		g.fillRect(s(cx-r), s(cy-r), s(2*r), s(2*r));
+	private void hideTileContent(DrawTarget target, RenderSnapshot snapshot, int tileX, int tileY) {
+		double r = snapshot.isEnergizerTile(tileX, tileY) ? 4.5 : 2;
+		double cx = t(tileX) + HTS;
+		double cy = t(tileY) + HTS ;
+		target.fillRect(cx-r, cy-r, 2*r, 2*r, PY_CANVAS_BG_COLOR.get());
 	}
 
 	@Override
 	protected void drawSceneInfo() {
 		drawTileGrid(GameModel.TILES_X, GameModel.TILES_Y);
-		game().level().ifPresent(level -> level.upwardsBlockedTiles().forEach(tile -> {
+		// debug info is taken from the game model, not from the snapshot
+		context.clock().runExclusive(() -> game().level().ifPresent(this::drawLevelInfo));
+	}
+
+	private void drawLevelInfo(GameLevel level) {
+		level.upwardsBlockedTiles().forEach(tile -> {
 			// "No Trespassing" symbol
 			g.setFill(Color.RED);
 			g.fillOval(s(t(tile.x())), s(t(tile.y() - 1)), s(TS), s(TS));
 			g.setFill(Color.WHITE);
 			g.fillRect(s(t(tile.x()) + 1), s(t(tile.y()) - HTS - 1), s(TS - 2), s(2));
-		}));
+		});
+		drawCreatureInfo(level.pac());
+		level.ghosts().forEach(this::drawCreatureInfo);
 	}
 
 	@Override
@@ -0,0 +1,156 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.ui.fx.scene2d;
+
+import de.amr.games.pacman.ui.fx.rendering2d.GlyphAtlas;
+import de.amr.games.pacman.ui.fx.rendering2d.PixelRaster;
+import de.amr.games.pacman.ui.fx.util.Spritesheet;
+import javafx.application.Platform;
+import javafx.geometry.Rectangle2D;
+import javafx.scene.image.Image;
+import javafx.scene.paint.Color;
+import org.tinylog.Logger;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import static de.amr.games.pacman.lib.Globals.TS;
+import static de.amr.games.pacman.lib.Globals.checkNotNull;
+
+/**
+ * Draw target rendering into an unscaled {@link PixelRaster}. Positions are rounded to whole pixels. Drawing does not
+ * need the JavaFX application thread if the used images and glyph atlases have been prepared on that thread before:
+ * <ul>
+ * <li>{@link #prepareImage(Image)} decodes an image into a raster. Images not prepared are decoded on first use, on
+ * another thread this is only safe for images that are not changed anymore.</li>
+ * <li>{@link #prepareGlyphs(GlyphAtlas)} gets the glyph mask which is rendered by JavaFX. Text colors are created from
+ * the mask on first use on any thread.</li>
+ * </ul>
+ * <p>
+ * A target must only be used by one thread at a time.
+ *
+ * @author Armin Reichert
+ */
+public class RasterDrawTarget implements DrawTarget {
+
+	private final Map<Image, PixelRaster> decodedImages = new IdentityHashMap<>();
+	private final Map<GlyphAtlas, PixelRaster> glyphMasks = new IdentityHashMap<>();
+	private final Map<GlyphAtlas, Map<Color, PixelRaster>> glyphRasters = new IdentityHashMap<>();
+	private final MazeLayer mazeLayer = new MazeLayer();
+	private PixelRaster mazeRaster;
+	private long mazeRasterVersion = -1;
+	private PixelRaster raster;
+
+	/**
+	 * @param raster raster receiving the following draw calls
+	 */
+	public void setRaster(PixelRaster raster) {
+		checkNotNull(raster);
+		this.raster = raster;
+	}
+
+	public PixelRaster raster() {
+		return raster;
+	}
+
+	/**
+	 * Decodes an image used by later draw calls. Must be called on the JavaFX application thread.
+	 *
+	 * @param image image
+	 */
+	public void prepareImage(Image image) {
+		checkNotNull(image);
+		decoded(image);
+	}
+
+	/**
+	 * Gets the glyph mask of a glyph atlas used by later text draw calls. Must be called on the JavaFX application
+	 * thread.
+	 *
+	 * @param glyphs glyph atlas
+	 */
+	public void prepareGlyphs(GlyphAtlas glyphs) {
+		checkNotNull(glyphs);
+		glyphMasks.computeIfAbsent(glyphs, GlyphAtlas::maskRaster);
+	}
+
+	@Override
+	public void drawSprite(Image source, Rectangle2D sprite, double x, double y) {
+		if (sprite != null) {
+			raster.blit(decoded(source), sprite, round(x), round(y));
+		}
+	}
+
+	@Override
+	public void drawSprite(Spritesheet spritesheet, int spriteID, double x, double y) {
+		var table = spritesheet.spriteTable();
+		raster.blit(decoded(spritesheet.source()), table.x(spriteID), table.y(spriteID), table.width(spriteID),
+				table.height(spriteID), round(x), round(y));
+	}
+
+	@Override
+	public void drawImage(Image image, double x, double y) {
+		var decoded = decoded(image);
+		raster.blit(decoded, 0, 0, decoded.width(), decoded.height(), round(x), round(y));
+	}
+
+	@Override
+	public void drawText(String text, Color color, GlyphAtlas glyphs, double x, double y) {
+		var glyphRaster = glyphRaster(glyphs, color);
+		if (glyphRaster == null) {
+			return;
+		}
+		for (int i = 0; i < text.length(); ++i) {
+			char ch = text.charAt(i);
+			if (ch != ' ' && glyphs.contains(ch)) {
+				raster.blit(glyphRaster, glyphs.cell(ch), round(x + i * TS), round(y - TS));
+			}
+		}
+	}
+
+	@Override
+	public void fillRect(double x, double y, double width, double height, Color color) {
+		raster.fillRect(round(x), round(y), round(width), round(height), PixelRaster.argb(color));
+	}
+
+	@Override
+	public void drawMaze(Image source, Rectangle2D region, BitSet eatenFood, int numCols, int topRow, Color bgColor,
+			double x, double y) {
+		var image = mazeLayer.update(source, region, eatenFood, numCols, topRow, bgColor);
+		if (mazeLayer.version() != mazeRasterVersion) {
+			if (mazeRaster == null || mazeRaster.width() != (int) image.getWidth()
+					|| mazeRaster.height() != (int) image.getHeight()) {
+				mazeRaster = PixelRaster.of(image);
+			} else {
+				mazeRaster.read(image);
+			}
+			mazeRasterVersion = mazeLayer.version();
+		}
+		raster.blit(mazeRaster, 0, 0, mazeRaster.width(), mazeRaster.height(), round(x), round(y));
+	}
+
+	private PixelRaster decoded(Image image) {
+		return decodedImages.computeIfAbsent(image, PixelRaster::of);
+	}
+
+	private PixelRaster glyphRaster(GlyphAtlas glyphs, Color color) {
+		if (!glyphMasks.containsKey(glyphs)) {
+			if (!Platform.isFxApplicationThread()) {
+				Logger.error("Glyphs of font {} have not been prepared", glyphs.font());
+				return null;
+			}
+			prepareGlyphs(glyphs);
+		}
+		var mask = glyphMasks.get(glyphs);
+		return glyphRasters.computeIfAbsent(glyphs, atlas -> new HashMap<>()).computeIfAbsent(color,
+				c -> mask.tinted(PixelRaster.argb(c)));
+	}
+
+	private static int round(double value) {
+		return (int) Math.round(value);
+	}
+}
@@ -0,0 +1,209 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.ui.fx.scene2d;
+
+import de.amr.games.pacman.ui.fx.PacManGames2dApp;
+import de.amr.games.pacman.ui.fx.rendering2d.GlyphAtlas;
+import de.amr.games.pacman.ui.fx.rendering2d.PixelRaster;
+import de.amr.games.pacman.ui.fx.rendering2d.mspacman.SpritesheetMsPacManGame;
+import de.amr.games.pacman.ui.fx.scene.GameSceneContext;
+import de.amr.games.pacman.ui.fx.scene.RenderSnapshot;
+import de.amr.games.pacman.ui.fx.util.Spritesheet;
+import de.amr.games.pacman.ui.fx.util.TextureAtlas;
+import de.amr.games.pacman.ui.fx.util.TripleBuffer;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelBuffer;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static de.amr.games.pacman.lib.Globals.checkNotNull;
+
+/**
+ * Shows the play scene rendered on a worker thread. The worker draws the content of a {@link PlayScene2D} (its own
+ * instance, so no scene state is shared with the JavaFX thread) into an unscaled {@link PixelRaster} using a
+ * {@link RasterDrawTarget}. The JavaFX thread only hands a copy of the render snapshot to the worker and copies the last
+ * finished frame into a {@link PixelBuffer} that is shown by an image view scaled without smoothing. A frame is
+ * therefore shown one frame later than with canvas rendering.
+ * <p>
+ * If the worker is still busy with the previous frame, no new frame is requested and the last one is shown again.
+ *
+ * @author Armin Reichert
+ */
+public class SoftwareRenderView {
+
+	public static final int WIDTH = PacManGames2dApp.CANVAS_WIDTH_UNSCALED;
+	public static final int HEIGHT = PacManGames2dApp.CANVAS_HEIGHT_UNSCALED;
+
+	private final PlayScene2D scene = new PlayScene2D();
+	private final RasterDrawTarget target = new RasterDrawTarget();
+	private final TripleBuffer<PixelRaster> frames = new TripleBuffer<>(() -> new PixelRaster(WIDTH, HEIGHT));
+	private final IntBuffer pixels;
+	private final PixelBuffer<IntBuffer> pixelBuffer;
+	private final ImageView imageView;
+	private final ExecutorService worker;
+	private final AtomicBoolean busy = new AtomicBoolean();
+	private PixelRaster presentedFrame;
+
+	// frame request, written by JavaFX thread while worker is idle
+	private final ByteBuffer snapshotData = ByteBuffer.allocate(RenderSnapshot.ENCODED_SIZE);
+	private final RenderSnapshot workerSnapshot = new RenderSnapshot();
+	private int bgColor;
+	private boolean scoreVisible;
+	private boolean creditVisible;
+	private double alpha;
+	private double scaling = 1;
+
+	// metrics
+	private volatile long renderNanos;
+	private long framesRendered;
+	private long framesSkipped;
+
+	/**
+	 * Must be called on the JavaFX application thread.
+	 *
+	 * @param context game scene context providing theme and spritesheets
+	 */
+	public SoftwareRenderView(GameSceneContext context) {
+		checkNotNull(context);
+		scene.setContext(context);
+		prepare(target, context);
+		pixels = ByteBuffer.allocateDirect(WIDTH * HEIGHT * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+		pixelBuffer = new PixelBuffer<>(WIDTH, HEIGHT, pixels, PixelFormat.getIntArgbPreInstance());
+		imageView = new ImageView(new WritableImage(pixelBuffer));
+		imageView.setSmooth(false);
+		imageView.setPreserveRatio(false);
+		worker = Executors.newSingleThreadExecutor(runnable -> {
+			var thread = new Thread(runnable, "Software Renderer");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Decodes the spritesheet and maze images and gets the glyph masks drawn by the play scene such that the target can
+	 * draw them on any thread. Must be called on the JavaFX application thread.
+	 *
+	 * @param target  raster draw target
+	 * @param context game scene context providing theme and spritesheets
+	 */
+	public static void prepare(RasterDrawTarget target, GameSceneContext context) {
+		var theme = context.theme();
+		GlyphAtlas arcadeGlyphs = theme.get("font.arcade.glyphs");
+		GlyphAtlas serifGlyphs = theme.get("font.serif.glyphs");
+		TextureAtlas atlas = theme.get("atlas");
+		Spritesheet pacManSpritesheet = theme.get("pacman.spritesheet");
+		SpritesheetMsPacManGame ss = theme.get("mspacman.spritesheet");
+		target.prepareGlyphs(arcadeGlyphs);
+		target.prepareGlyphs(serifGlyphs);
+		target.prepareImage(atlas.image());
+		target.prepareImage(pacManSpritesheet.source());
+		target.prepareImage(ss.source());
+		for (int mazeNumber = 1; mazeNumber <= ss.numMazes(); ++mazeNumber) {
+			target.prepareImage(ss.filledMaze(mazeNumber));
+			target.prepareImage(ss.emptyMaze(mazeNumber));
+			target.prepareImage(ss.flashingMaze(mazeNumber));
+		}
+	}
+
+	public ImageView root() {
+		return imageView;
+	}
+
+	public void setScaling(double scaling) {
+		this.scaling = scaling;
+		imageView.setFitWidth(WIDTH * scaling);
+		imageView.setFitHeight(HEIGHT * scaling);
+	}
+
+	/**
+	 * Shows the last finished frame and requests rendering of the given snapshot. Must be called on the JavaFX
+	 * application thread.
+	 *
+	 * @param snapshot      snapshot to render
+	 * @param scene         scene providing score and credit visibility
+	 * @param bgColor       background color
+	 * @param alpha         interpolation factor for actor positions
+	 */
+	public void render(RenderSnapshot snapshot, GameScene2D scene, Color bgColor, double alpha) {
+		present();
+		if (!busy.compareAndSet(false, true)) {
+			++framesSkipped;
+			return;
+		}
+		snapshot.writeTo(snapshotData, 0);
+		this.bgColor = PixelRaster.argb(bgColor);
+		this.scoreVisible = scene.isScoreVisible();
+		this.creditVisible = scene.isCreditVisible();
+		this.alpha = alpha;
+		worker.execute(this::renderFrame);
+	}
+
+	// worker thread
+	private void renderFrame() {
+		try {
+			long start = System.nanoTime();
+			workerSnapshot.readFrom(snapshotData, 0);
+			var frame = frames.writeBuffer();
+			// pixels of an opaque background need no premultiplication
+			frame.clear(bgColor | 0xFF000000);
+			target.setRaster(frame);
+			// the scaling converts the bonus offset which is given in canvas pixels
+			scene.setScaling(scaling);
+			scene.setScoreVisible(scoreVisible);
+			scene.setCreditVisible(creditVisible);
+			scene.drawBackground(target, workerSnapshot);
+			scene.drawSceneContent(target, workerSnapshot, alpha);
+			scene.drawHUD(target, workerSnapshot);
+			frames.publish();
+			renderNanos = System.nanoTime() - start;
+		} finally {
+			busy.set(false);
+		}
+	}
+
+	private void present() {
+		var frame = frames.readBuffer();
+		if (frame == presentedFrame) {
+			return;
+		}
+		presentedFrame = frame;
+		pixelBuffer.updateBuffer(pb -> {
+			pixels.clear();
+			pixels.put(frame.pixels());
+			pixels.clear();
+			return null;
+		});
+		++framesRendered;
+	}
+
+	/**
+	 * @return time in milliseconds the worker needed for the last frame
+	 */
+	public double renderMillis() {
+		return renderNanos / 1e6;
+	}
+
+	/**
+	 * @return number of frames presented
+	 */
+	public long framesRendered() {
+		return framesRendered;
+	}
+
+	/**
+	 * @return number of frame requests dropped because the worker was busy
+	 */
+	public long framesSkipped() {
+		return framesSkipped;
+	}
+}
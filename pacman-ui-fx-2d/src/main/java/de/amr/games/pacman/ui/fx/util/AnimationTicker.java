@@ -0,0 +1,36 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.ui.fx.util;
+
+/**
+ * Common time base of all sprite animations: counts the ticks of the game clock. The clock calls {@link #tick()} after
+ * each simulation step. A running {@link SpriteAnimation} remembers the tick of its last frame change and catches up
+ * when it is accessed, so there is no work per animation and tick, animations are deterministic and pause together
+ * with the game clock.
+ *
+ * @author Armin Reichert
+ */
+public class AnimationTicker {
+
+	// only incremented by the thread running the simulation
+	private static volatile long ticks;
+
+	private AnimationTicker() {
+	}
+
+	/**
+	 * Advances the time of all sprite animations by one tick.
+	 */
+	public static void tick() {
+		ticks = ticks + 1;
+	}
+
+	/**
+	 * @return number of ticks since start
+	 */
+	public static long now() {
+		return ticks;
+	}
+}
@@ -0,0 +1,143 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.ui.fx.util;
+
+import java.util.Arrays;
+
+/**
+ * Histogram of phase durations (e.g. update or render phase of a frame). Durations are counted in preallocated buckets,
+ * recording does not allocate. At the end of each measurement window, {@link #roll()} computes a snapshot with the
+ * percentiles of that window and starts a new window.
+ * <p>
+ * Bucket resolution is 10 microseconds below 1 millisecond, 100 microseconds below 10 milliseconds and 1 millisecond
+ * below 100 milliseconds. Longer durations are counted in a single overflow bucket. Percentiles are reported as the
+ * upper bound of the bucket containing them (but never larger than the maximum).
+ * <p>
+ * Recording and rolling must not run concurrently: call them on the same thread or while holding the same lock.
+ * Snapshots can be read from any thread.
+ *
+ * @author Armin Reichert
+ */
+public class FrameTimeHistogram {
+
+	/**
+	 * Percentiles and maximum of a measurement window. All durations are in nanoseconds.
+	 */
+	public record Snapshot(long count, long p50, long p95, long p99, long max) {
+
+		public static final Snapshot EMPTY = new Snapshot(0, 0, 0, 0, 0);
+
+		@Override
+		public String toString() {
+			return String.format("n=%d p50=%.2fms p95=%.2fms p99=%.2fms max=%.2fms", count, p50 / 1e6, p95 / 1e6, p99 / 1e6,
+					max / 1e6);
+		}
+	}
+
+	private static final long MICROS_1 = 1_000;
+	private static final long MICROS_10 = 10 * MICROS_1;
+	private static final long MICROS_100 = 100 * MICROS_1;
+	private static final long MILLIS_1 = 1_000_000;
+	private static final long MILLIS_10 = 10 * MILLIS_1;
+	private static final long MILLIS_100 = 100 * MILLIS_1;
+
+	private static final int FINE_BUCKETS = (int) (MILLIS_1 / MICROS_10); // 100
+	private static final int MEDIUM_BUCKETS = (int) ((MILLIS_10 - MILLIS_1) / MICROS_100); // 90
+	private static final int COARSE_BUCKETS = (int) ((MILLIS_100 - MILLIS_10) / MILLIS_1); // 90
+	private static final int NUM_BUCKETS = FINE_BUCKETS + MEDIUM_BUCKETS + COARSE_BUCKETS + 1;
+
+	private static int bucketIndex(long nanos) {
+		if (nanos < MILLIS_1) {
+			return (int) (Math.max(nanos, 0) / MICROS_10);
+		}
+		if (nanos < MILLIS_10) {
+			return FINE_BUCKETS + (int) ((nanos - MILLIS_1) / MICROS_100);
+		}
+		if (nanos < MILLIS_100) {
+			return FINE_BUCKETS + MEDIUM_BUCKETS + (int) ((nanos - MILLIS_10) / MILLIS_1);
+		}
+		return NUM_BUCKETS - 1;
+	}
+
+	private static long bucketUpperBound(int index) {
+		if (index < FINE_BUCKETS) {
+			return (index + 1) * MICROS_10;
+		}
+		index -= FINE_BUCKETS;
+		if (index < MEDIUM_BUCKETS) {
+			return MILLIS_1 + (index + 1) * MICROS_100;
+		}
+		index -= MEDIUM_BUCKETS;
+		if (index < COARSE_BUCKETS) {
+			return MILLIS_10 + (index + 1) * MILLIS_1;
+		}
+		return Long.MAX_VALUE;
+	}
+
+	private final String name;
+	private final long[] counts = new long[NUM_BUCKETS];
+	private long count;
+	private long max;
+	private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+	public FrameTimeHistogram(String name) {
+		this.name = name;
+	}
+
+	public String name() {
+		return name;
+	}
+
+	/**
+	 * Records a duration in the current window.
+	 *
+	 * @param nanos duration in nanoseconds
+	 */
+	public void record(long nanos) {
+		counts[bucketIndex(nanos)]++;
+		count++;
+		if (nanos > max) {
+			max = nanos;
+		}
+	}
+
+	/**
+	 * @return snapshot of the last completed window
+	 */
+	public Snapshot snapshot() {
+		return snapshot;
+	}
+
+	/**
+	 * Completes the current window: computes and publishes its snapshot and clears all buckets.
+	 *
+	 * @return snapshot of the completed window
+	 */
+	public Snapshot roll() {
+		snapshot = count == 0 ? Snapshot.EMPTY
+				: new Snapshot(count, percentile(0.50), percentile(0.95), percentile(0.99), max);
+		Arrays.fill(counts, 0);
+		count = 0;
+		max = 0;
+		return snapshot;
+	}
+
+	private long percentile(double p) {
+		long rank = (long) Math.ceil(p * count);
+		long seen = 0;
+		for (int i = 0; i < NUM_BUCKETS; ++i) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return Math.min(bucketUpperBound(i), max);
+			}
+		}
+		return max;
+	}
+
+	@Override
+	public String toString() {
+		return name + ": " + snapshot;
+	}
+}
@@ -6,22 +6,60 @@ package de.amr.games.pacman.ui.fx.util;
 
 import javafx.animation.Animation;
 import javafx.animation.Animation.Status;
+import javafx.animation.AnimationTimer;
 import javafx.animation.KeyFrame;
 import javafx.animation.Timeline;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleBooleanProperty;
 import javafx.beans.property.SimpleIntegerProperty;
+import javafx.beans.property.SimpleObjectProperty;
 import javafx.util.Duration;
 import org.tinylog.Logger;
 
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
 /**
  * Game clock with modifiable frame rate.
+ * <p>
+ * In the default mode, a timeline executes one update and one render phase per tick. In <em>fixed timestep</em> mode,
+ * rendering is driven by the display pulse and the update phase is executed as often as needed to keep up with the
+ * target frame rate. The remaining fraction of a time step is available as interpolation value.
+ * <p>
+ * In <em>simulation thread</em> mode, the update phase runs on its own thread at the target frame rate and only the
+ * render phase runs on the display pulse. Code running on other threads that accesses the game model must use
+ * {@link #runExclusive(Runnable)}.
+ * <p>
+ * The {@link OverloadPolicy overload policy} decides what happens if a frame takes longer than a time step. By default,
+ * every tick is rendered and the game slows down. With {@link OverloadPolicy#SKIP_RENDERS}, up to
+ * {@link #maxUpdatesPerPulsePy} update steps are executed before the next render, so the game keeps its speed and
+ * only the frame rate drops. In fixed timestep mode, renders are always skipped this way.
+ * <p>
+ * In <em>turbo</em> mode, each clock tick executes {@link #turboFactorPy} update phases back to back followed by a single
+ * render phase, so the game runs that many times faster without increasing the rendering load.
  * 
  * @author Armin Reichert
  */
 public class GameClock {
 
+	/**
+	 * What the clock does when it cannot keep up with the target frame rate.
+	 */
+	public enum OverloadPolicy {
+		/** Render after every update step, the game runs slower than the target frame rate. */
+		RENDER_EVERY_TICK,
+		/** Execute the missed update steps and skip the renders in between, the game keeps its speed. */
+		SKIP_RENDERS
+	}
+
+	/** Default maximum number of update steps executed before the next render. */
+	public static final int DEFAULT_MAX_UPDATES_PER_PULSE = 5;
+
+	/** Turbo factor used when turbo mode is switched on by the user. */
+	public static final int DEFAULT_TURBO_FACTOR = 8;
+
 	private static void snooze() {
 		// rest
 	}
@@ -32,16 +70,63 @@ public class GameClock {
 			updateClock();
 		}
 	};
+	public final BooleanProperty fixedTimestepPy = new SimpleBooleanProperty(this, "fixedTimestep", false) {
+		@Override
+		protected void invalidated() {
+			updateClock();
+		}
+	};
+	public final BooleanProperty simulationThreadPy = new SimpleBooleanProperty(this, "simulationThread", false) {
+		@Override
+		protected void invalidated() {
+			updateClock();
+		}
+	};
+	public final ObjectProperty<OverloadPolicy> overloadPolicyPy = new SimpleObjectProperty<>(this, "overloadPolicy",
+			OverloadPolicy.RENDER_EVERY_TICK) {
+		@Override
+		protected void invalidated() {
+			resetCatchUp();
+		}
+	};
+	public final IntegerProperty maxUpdatesPerPulsePy = new SimpleIntegerProperty(this, "maxUpdatesPerPulse",
+			DEFAULT_MAX_UPDATES_PER_PULSE) {
+		@Override
+		protected void invalidated() {
+			resetCatchUp();
+		}
+	};
+	public final IntegerProperty turboFactorPy = new SimpleIntegerProperty(this, "turboFactor", 1);
 	public final BooleanProperty pausedPy = new SimpleBooleanProperty(this, "paused", false);
 	public final BooleanProperty timeMeasuredPy = new SimpleBooleanProperty(this, "timeMeasured", false);
 
+	private final FrameTimeHistogram updateTimes = new FrameTimeHistogram("Update");
+	private final FrameTimeHistogram renderTimes = new FrameTimeHistogram("Render");
 	private Runnable onTick = GameClock::snooze;
 	private Runnable onRender = GameClock::snooze;
 	private Timeline timeline;
-	private long updateCount;
-	private long ticksPerSec;
+	private final AnimationTimer pulseTimer = new AnimationTimer() {
+		@Override
+		public void handle(long now) {
+			executePulse(now);
+		}
+	};
+	private final ReentrantLock simulationLock = new ReentrantLock();
+	private Thread simulationThread;
+	private volatile boolean simulationRunning;
+	private volatile long lastUpdateTime;
+	private boolean running;
+	private volatile long updateCount;
+	private volatile long ticksPerSec;
 	private long countTicksStartTime;
 	private long ticks;
+	private volatile long rendersPerSec;
+	private long countRendersStartTime;
+	private long renders;
+	private long lastPulseTime;
+	private long accumulatedNanos;
+	private double interpolationAlpha = 1;
+	private volatile long skippedFrames;
 
 	public GameClock() {
 	}
@@ -62,83 +147,363 @@ public class GameClock {
 
 	private void createClock() {
 		int targetFPS = targetFrameratePy.get();
-		var tick = new KeyFrame(Duration.seconds(1.0 / targetFPS), e -> executeSingleStep(!isPaused()));
+		var tick = new KeyFrame(Duration.seconds(1.0 / targetFPS), e -> executeTimelineTick());
 		timeline = new Timeline(targetFPS, tick);
 		timeline.setCycleCount(Animation.INDEFINITE);
 	}
 
 	private void updateClock() {
-		boolean running = timeline.getStatus() == Status.RUNNING;
-		if (running) {
-			timeline.stop();
+		if (timeline == null) {
+			return;
+		}
+		boolean wasRunning = isRunning();
+		if (wasRunning) {
+			stop();
 		}
 		createClock();
-		if (running) {
+		if (wasRunning) {
 			start();
 		}
 	}
 
 	public void start() {
-		timeline.play();
+		if (isSimulationThreaded()) {
+			interpolationAlpha = 1;
+			startSimulationThread();
+			pulseTimer.start();
+		} else if (isFixedTimestep()) {
+			resetCatchUp();
+			pulseTimer.start();
+		} else {
+			resetCatchUp();
+			interpolationAlpha = 1;
+			timeline.play();
+		}
+		running = true;
 	}
 
 	public void stop() {
+		pulseTimer.stop();
 		timeline.stop();
+		stopSimulationThread();
+		running = false;
+	}
+
+	private void startSimulationThread() {
+		simulationRunning = true;
+		simulationThread = new Thread(this::runSimulation, "Simulation");
+		simulationThread.setDaemon(true);
+		simulationThread.start();
+		Logger.info("Simulation thread started");
+	}
+
+	private void stopSimulationThread() {
+		if (simulationThread == null) {
+			return;
+		}
+		simulationRunning = false;
+		LockSupport.unpark(simulationThread);
+		try {
+			simulationThread.join(1000);
+		} catch (InterruptedException x) {
+			Thread.currentThread().interrupt();
+		}
+		simulationThread = null;
+		Logger.info("Simulation thread stopped");
+	}
+
+	private void runSimulation() {
+		long stepNanos = getTimestepNanos();
+		long nextStepTime = System.nanoTime();
+		while (simulationRunning) {
+			long now = System.nanoTime();
+			if (now < nextStepTime) {
+				LockSupport.parkNanos(nextStepTime - now);
+				continue;
+			}
+			if (!isPaused()) {
+				executeUpdates(getTurboFactor());
+				lastUpdateTime = System.nanoTime();
+			}
+			++ticks;
+			computeTickRate(now);
+			nextStepTime += stepNanos;
+			if (now - nextStepTime > getMaxUpdatesPerPulse() * stepNanos) {
+				// cannot keep up, continue from now instead of running a long burst of updates
+				nextStepTime = now;
+			}
+		}
+	}
+
+	/**
+	 * Runs the given action while no update phase is executed. Code that accesses the game model from outside the
+	 * update phase (event handlers, keyboard actions, scene graph updates) must be run this way when the simulation
+	 * runs on its own thread. Without simulation thread, the action is just run.
+	 *
+	 * @param action action to run
+	 */
+	public void runExclusive(Runnable action) {
+		simulationLock.lock();
+		try {
+			action.run();
+		} finally {
+			simulationLock.unlock();
+		}
 	}
 
 	public boolean isRunning() {
-		return timeline.getStatus() == Status.RUNNING;
+		return running || timeline.getStatus() == Status.RUNNING;
 	}
 
 	public boolean isPaused() {
 		return pausedPy.get();
 	}
 
+	public boolean isFixedTimestep() {
+		return fixedTimestepPy.get();
+	}
+
+	public boolean isSimulationThreaded() {
+		return simulationThreadPy.get();
+	}
+
 	public long getUpdateCount() {
 		return updateCount;
 	}
 
+	public OverloadPolicy getOverloadPolicy() {
+		return overloadPolicyPy.get();
+	}
+
+	public int getMaxUpdatesPerPulse() {
+		return Math.max(1, maxUpdatesPerPulsePy.get());
+	}
+
+	/**
+	 * @return number of update phases executed per clock tick, 1 if turbo mode is off
+	 */
+	public int getTurboFactor() {
+		return Math.max(1, turboFactorPy.get());
+	}
+
+	public boolean isTurbo() {
+		return getTurboFactor() > 1;
+	}
+
+	/**
+	 * @return total number of frames not rendered because the clock had to catch up with missed update steps
+	 */
+	public long getSkippedFrames() {
+		return skippedFrames;
+	}
+
+	/**
+	 * @return number of clock ticks during the last second
+	 */
 	public long getFPS() {
 		return ticksPerSec;
 	}
 
+	/**
+	 * @return number of frames rendered during the last second
+	 */
+	public long getRenderFPS() {
+		return rendersPerSec;
+	}
+
+	/**
+	 * @return duration of a single update step in nanoseconds, derived from the target frame rate
+	 */
+	public long getTimestepNanos() {
+		return 1_000_000_000L / targetFrameratePy.get();
+	}
+
+	/**
+	 * @return fraction of a time step (in range [0, 1]) that has elapsed since the last update step. Always 1 if the
+	 *         clock is not in fixed timestep mode or paused.
+	 */
+	public double getInterpolationAlpha() {
+		return interpolationAlpha;
+	}
+
+	/**
+	 * @return histogram of update phase durations, filled while time measurement is enabled
+	 */
+	public FrameTimeHistogram updateTimes() {
+		return updateTimes;
+	}
+
+	/**
+	 * @return histogram of render phase durations, filled while time measurement is enabled
+	 */
+	public FrameTimeHistogram renderTimes() {
+		return renderTimes;
+	}
+
 	public void setTimeMeasured(boolean measured) {
 		timeMeasuredPy.set(measured);
 	}
 
+	/**
+	 * Executes the given number of steps back to back. Only the frame after the last step is rendered, so fast-forwarding
+	 * is not slowed down by rendering frames that would never be shown.
+	 * 
+	 * @param n             number of steps
+	 * @param updateEnabled if the update phase is executed
+	 */
 	public void executeSteps(int n, boolean updateEnabled) {
-		for (int i = 0; i < n; ++i) {
-			executeSingleStep(updateEnabled);
-		}
+		executeStep(updateEnabled ? n : 0, n);
+	}
+
+	/**
+	 * Fast-forwards the game by the given number of update steps and renders the resulting frame.
+	 * 
+	 * @param n number of update steps
+	 */
+	public void fastForward(int n) {
+		executeSteps(n, true);
 	}
 
 	public void executeSingleStep(boolean updateEnabled) {
+		executeStep(updateEnabled ? 1 : 0, 1);
+	}
+
+	private void executeStep(int updates, int numTicks) {
 		long tickTime = System.nanoTime();
-		if (updateEnabled) {
-			runPhase(onTick, "Update phase: {} milliseconds");
-			updateCount++;
+		if (updates > 0) {
+			executeUpdates(updates);
+		}
+		executeRender();
+		if (!isSimulationThreaded()) {
+			ticks += numTicks;
+			computeTickRate(tickTime);
 		}
-		runPhase(onRender, "Render phase: {} milliseconds");
-		++ticks;
-		computeFrameRate(tickTime);
+		computeRenderRate(tickTime);
 	}
 
-	private void runPhase(Runnable phase, String logMessage) {
+	private void executeTimelineTick() {
+		if (getOverloadPolicy() == OverloadPolicy.RENDER_EVERY_TICK || isPaused()) {
+			resetCatchUp();
+			executeStep(isPaused() ? 0 : getTurboFactor(), 1);
+			return;
+		}
+		long now = System.nanoTime();
+		if (lastPulseTime == 0) {
+			lastPulseTime = now - getTimestepNanos();
+		}
+		// each timeline tick is a due step, ticks arriving early must not be compensated by skipping updates later
+		catchUp(now, 1, getMaxUpdatesPerPulse());
+		accumulatedNanos = Math.max(0, accumulatedNanos);
+		executeRender();
+		computeTickRate(now);
+		computeRenderRate(now);
+	}
+
+	private void executePulse(long now) {
+		if (isSimulationThreaded()) {
+			long stepNanos = getTimestepNanos();
+			interpolationAlpha = isPaused() ? 1 : Math.min(1, (double) (now - lastUpdateTime) / stepNanos);
+			executeRender();
+			computeRenderRate(now);
+			return;
+		}
+		if (lastPulseTime == 0) {
+			lastPulseTime = now;
+		}
+		if (isPaused()) {
+			accumulatedNanos = 0;
+			interpolationAlpha = 1;
+			lastPulseTime = now;
+		} else {
+			// updates are decoupled from rendering anyway, so the overload policy does not apply here
+			catchUp(now, 0, getMaxUpdatesPerPulse());
+			interpolationAlpha = (double) accumulatedNanos / getTimestepNanos();
+		}
+		executeRender();
+		computeTickRate(now);
+		computeRenderRate(now);
+	}
+
+	/**
+	 * Executes the update steps that became due since the last call, but at most the given number. If more steps are
+	 * due, the remaining time is dropped instead of spiraling into ever longer catch-up phases.
+	 * 
+	 * @param now        current time (nanoseconds)
+	 * @param minUpdates minimum number of update steps to execute
+	 * @param maxUpdates maximum number of update steps to execute
+	 * @return number of executed update steps
+	 */
+	private int catchUp(long now, int minUpdates, int maxUpdates) {
+		long stepNanos = getTimestepNanos();
+		accumulatedNanos += now - lastPulseTime;
+		lastPulseTime = now;
+		int updates = 0;
+		while ((updates < minUpdates || accumulatedNanos >= stepNanos) && updates < maxUpdates) {
+			executeUpdates(getTurboFactor());
+			accumulatedNanos -= stepNanos;
+			++updates;
+			++ticks;
+		}
+		if (accumulatedNanos >= stepNanos) {
+			Logger.trace("Clock behind schedule, dropping {} milliseconds", (accumulatedNanos - stepNanos) / 1e6);
+			accumulatedNanos %= stepNanos;
+		}
+		if (updates > 1) {
+			skippedFrames += updates - 1;
+		}
+		return updates;
+	}
+
+	private void resetCatchUp() {
+		lastPulseTime = 0;
+		accumulatedNanos = 0;
+	}
+
+	private void executeUpdates(int n) {
+		runExclusive(() -> {
+			for (int i = 0; i < n; ++i) {
+				runPhase(onTick, updateTimes);
+				updateCount++;
+			}
+		});
+	}
+
+	private void executeRender() {
+		runPhase(onRender, renderTimes);
+		++renders;
+	}
+
+	private void runPhase(Runnable phase, FrameTimeHistogram histogram) {
 		if (timeMeasuredPy.get()) {
-			double startNanos = System.nanoTime();
+			long startNanos = System.nanoTime();
 			phase.run();
-			double durationNanos = System.nanoTime() - startNanos;
-			Logger.info(logMessage, durationNanos / 1e6);
+			histogram.record(System.nanoTime() - startNanos);
 		} else {
 			phase.run();
 		}
 	}
 
-	private void computeFrameRate(long time) {
+	private void computeTickRate(long time) {
 		if (time - countTicksStartTime > 1e9) {
 			ticksPerSec = ticks;
 			ticks = 0;
 			countTicksStartTime = time;
+			if (timeMeasuredPy.get()) {
+				// update times are recorded on the simulation thread or, when stepping, on the application thread, always
+				// while holding the simulation lock
+				runExclusive(() -> Logger.debug("Update phase: {}", updateTimes.roll()));
+			}
+		}
+	}
+
+	private void computeRenderRate(long time) {
+		if (time - countRendersStartTime > 1e9) {
+			rendersPerSec = renders;
+			renders = 0;
+			countRendersStartTime = time;
+			if (timeMeasuredPy.get()) {
+				Logger.debug("Render phase: {}", renderTimes.roll());
+			}
 		}
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,82 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.ui.fx.util;
+
+import static de.amr.games.pacman.lib.Globals.checkNotNull;
+
+/**
+ * Text line showing a number, e.g. a score or the credit. The digits are formatted into a reusable character buffer
+ * and a new string is only created when the number changes, so drawing the line in every frame creates no garbage.
+ * <p>
+ * Example: <code>new NumberText("CREDIT ", 1, 2)</code> gives the same text as
+ * <code>String.format("CREDIT %2d", credit)</code>.
+ *
+ * @author Armin Reichert
+ */
+public class NumberText {
+
+	private final String prefix;
+	private final int minDigits;
+	private final int width;
+	private final char[] buffer;
+	private long value;
+	private String text;
+
+	/**
+	 * @param prefix    text preceding the number
+	 * @param minDigits minimum number of digits, the number is padded with leading zeroes
+	 * @param width     minimum width of the number including sign, the number is padded with leading spaces
+	 */
+	public NumberText(String prefix, int minDigits, int width) {
+		checkNotNull(prefix);
+		if (minDigits < 1) {
+			throw new IllegalArgumentException("Minimum number of digits must be at least 1 but is " + minDigits);
+		}
+		this.prefix = prefix;
+		this.minDigits = minDigits;
+		this.width = width;
+		// 20 characters are enough for any long value with sign
+		buffer = new char[prefix.length() + Math.max(Math.max(minDigits + 1, width), 20)];
+		prefix.getChars(0, prefix.length(), buffer, 0);
+	}
+
+	/**
+	 * @param value number
+	 * @return text for this number, the same string instance as long as the number does not change
+	 */
+	public String text(long value) {
+		if (text == null || value != this.value) {
+			this.value = value;
+			text = format(value);
+		}
+		return text;
+	}
+
+	private String format(long value) {
+		// write digits right-aligned into buffer, then move them behind the prefix
+		int end = buffer.length;
+		int pos = end;
+		long rest = value;
+		int digits = 0;
+		do {
+			buffer[--pos] = (char) ('0' + Math.abs(rest % 10));
+			rest /= 10;
+			++digits;
+		} while (rest != 0);
+		while (digits < minDigits) {
+			buffer[--pos] = '0';
+			++digits;
+		}
+		if (value < 0) {
+			buffer[--pos] = '-';
+		}
+		while (end - pos < width) {
+			buffer[--pos] = ' ';
+		}
+		int length = end - pos;
+		System.arraycopy(buffer, pos, buffer, prefix.length(), length);
+		return new String(buffer, 0, prefix.length() + length);
+	}
+}
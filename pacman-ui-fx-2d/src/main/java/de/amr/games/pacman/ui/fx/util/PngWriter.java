@@ -0,0 +1,89 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.ui.fx.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes ARGB pixel data as PNG file (8 bit RGBA, no filtering). JavaFX itself cannot write images without the
+ * javafx.swing module, and this is all that is needed for saving rendered frames.
+ *
+ * @author Armin Reichert
+ */
+public class PngWriter {
+
+	private static final byte[] SIGNATURE = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+
+	private PngWriter() {
+	}
+
+	/**
+	 * @param file   output file
+	 * @param width  image width
+	 * @param height image height
+	 * @param argb   pixels (not premultiplied), row by row
+	 * @throws IOException if writing fails
+	 */
+	public static void write(Path file, int width, int height, int[] argb) throws IOException {
+		if (argb.length < width * height) {
+			throw new IllegalArgumentException("Pixel array too small for image size " + width + "x" + height);
+		}
+		try (var out = new DataOutputStream(Files.newOutputStream(file))) {
+			out.write(SIGNATURE);
+
+			var header = new ByteArrayOutputStream();
+			var headerData = new DataOutputStream(header);
+			headerData.writeInt(width);
+			headerData.writeInt(height);
+			headerData.writeByte(8); // bit depth
+			headerData.writeByte(6); // color type RGBA
+			headerData.writeByte(0); // compression
+			headerData.writeByte(0); // filter
+			headerData.writeByte(0); // no interlace
+			writeChunk(out, "IHDR", header.toByteArray());
+
+			var data = new ByteArrayOutputStream();
+			try (var deflater = new DeflaterOutputStream(data)) {
+				writeScanlines(deflater, width, height, argb);
+			}
+			writeChunk(out, "IDAT", data.toByteArray());
+			writeChunk(out, "IEND", new byte[0]);
+		}
+	}
+
+	private static void writeScanlines(OutputStream out, int width, int height, int[] argb) throws IOException {
+		var row = new byte[1 + 4 * width]; // first byte: filter type none
+		for (int y = 0; y < height; ++y) {
+			for (int x = 0; x < width; ++x) {
+				int p = argb[y * width + x];
+				int i = 1 + 4 * x;
+				row[i] = (byte) (p >> 16);
+				row[i + 1] = (byte) (p >> 8);
+				row[i + 2] = (byte) p;
+				row[i + 3] = (byte) (p >>> 24);
+			}
+			out.write(row);
+		}
+	}
+
+	private static void writeChunk(DataOutputStream out, String type, byte[] data) throws IOException {
+		var typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+		var crc = new CRC32();
+		crc.update(typeBytes);
+		crc.update(data);
+		out.writeInt(data.length);
+		out.write(typeBytes);
+		out.write(data);
+		out.writeInt((int) crc.getValue());
+	}
+}
@@ -0,0 +1,117 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.ui.fx.util;
+
+import javafx.scene.image.Image;
+import javafx.scene.layout.Background;
+import javafx.scene.layout.BackgroundPosition;
+import javafx.scene.layout.BackgroundRepeat;
+import javafx.scene.layout.BackgroundSize;
+import javafx.scene.media.AudioClip;
+import javafx.scene.text.Font;
+import org.tinylog.Logger;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static de.amr.games.pacman.lib.Globals.checkNotNull;
+
+/**
+ * Loads resources in the background on a small, bounded thread pool. Each method returns a future that is completed
+ * when the resource has been loaded. The futures can be stored in a {@link Theme}, which waits for the resource when it
+ * is accessed for the first time.
+ * <p>
+ * The pool threads are daemon threads, so a loader that is still busy does not keep the application alive.
+ *
+ * @author Armin Reichert
+ */
+public class ResourceLoader {
+
+	/** Maximum number of loader threads. */
+	public static final int MAX_THREADS = 4;
+
+	private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+	private final ResourceManager resources;
+	private final ExecutorService executor;
+
+	/**
+	 * @param resources resource manager used for loading (resource paths are relative to its class)
+	 */
+	public ResourceLoader(ResourceManager resources) {
+		checkNotNull(resources);
+		this.resources = resources;
+		int numThreads = Math.max(2, Math.min(MAX_THREADS, Runtime.getRuntime().availableProcessors() - 1));
+		executor = Executors.newFixedThreadPool(numThreads, runnable -> {
+			var thread = new Thread(runnable, "ResourceLoader-" + THREAD_COUNT.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		Logger.trace("Resource loader created, {} threads", numThreads);
+	}
+
+	/**
+	 * @param <T>    type of loaded thing
+	 * @param loader code loading the thing
+	 * @return future of the loaded thing
+	 */
+	public <T> CompletableFuture<T> load(Supplier<T> loader) {
+		checkNotNull(loader);
+		return CompletableFuture.supplyAsync(loader, executor);
+	}
+
+	/**
+	 * @param relPath relative path to image, see {@link ResourceManager#image(String)}
+	 * @return future of the image
+	 */
+	public CompletableFuture<Image> image(String relPath) {
+		return load(() -> resources.image(relPath));
+	}
+
+	/**
+	 * @param relPath relative path to image, see {@link ResourceManager#imageBackground(String)}
+	 * @return future of the image background
+	 */
+	public CompletableFuture<Background> imageBackground(String relPath) {
+		return load(() -> resources.imageBackground(relPath));
+	}
+
+	/**
+	 * @param relPath relative path to image, see
+	 *                {@link ResourceManager#imageBackground(String, BackgroundRepeat, BackgroundRepeat, BackgroundPosition, BackgroundSize)}
+	 * @return future of the image background
+	 */
+	public CompletableFuture<Background> imageBackground(String relPath, BackgroundRepeat repeatX,
+			BackgroundRepeat repeatY, BackgroundPosition position, BackgroundSize size) {
+		return load(() -> resources.imageBackground(relPath, repeatX, repeatY, position, size));
+	}
+
+	/**
+	 * @param relPath relative path to audio clip, see {@link ResourceManager#audioClip(String)}
+	 * @return future of the audio clip
+	 */
+	public CompletableFuture<AudioClip> audioClip(String relPath) {
+		return load(() -> resources.audioClip(relPath));
+	}
+
+	/**
+	 * @param relPath relative path to font, see {@link ResourceManager#font(String, double)}
+	 * @param size    font size
+	 * @return future of the font
+	 */
+	public CompletableFuture<Font> font(String relPath, double size) {
+		return load(() -> resources.font(relPath, size));
+	}
+
+	/**
+	 * Accepts no more loading tasks. Tasks already submitted are still completed.
+	 */
+	public void shutdown() {
+		executor.shutdown();
+	}
+}
@@ -0,0 +1,194 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.ui.fx.util;
+
+import javafx.geometry.Rectangle2D;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import org.tinylog.Logger;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static de.amr.games.pacman.lib.Globals.checkNotNull;
+
+/**
+ * Cache of images (or image regions) scaled by nearest-neighbour pixel replication. Drawing a sprite from a pre-scaled
+ * image is a 1:1 pixel copy which is much cheaper than scaling the sprite on every draw call.
+ * <p>
+ * Scaled images are created by {@link #prepare(double, Image, Rectangle2D)}, typically when the scaling changes. Only
+ * the images for the most recently prepared scalings are kept.
+ *
+ * @author Armin Reichert
+ */
+public class ScaledImageCache {
+
+	/**
+	 * Scaled copy of an image region.
+	 *
+	 * @param source  source image
+	 * @param region  region of the source image that has been scaled
+	 * @param scaling scaling factor
+	 * @param image   scaled image, its upper left corner corresponds to the upper left corner of the region
+	 */
+	public record ScaledImage(Image source, Rectangle2D region, double scaling, Image image) {
+
+		/**
+		 * @param sprite region in source image coordinates
+		 * @return if the sprite is completely inside the scaled region
+		 */
+		public boolean contains(Rectangle2D sprite) {
+			return region.contains(sprite);
+		}
+
+		/**
+		 * @param sourceX x-coordinate in the source image
+		 * @return corresponding x-coordinate in the scaled image
+		 */
+		public int scaledX(double sourceX) {
+			return scaled(sourceX - region.getMinX(), scaling);
+		}
+
+		/**
+		 * @param sourceY y-coordinate in the source image
+		 * @return corresponding y-coordinate in the scaled image
+		 */
+		public int scaledY(double sourceY) {
+			return scaled(sourceY - region.getMinY(), scaling);
+		}
+	}
+
+	public static final int DEFAULT_CAPACITY = 2;
+
+	private final Map<Double, List<ScaledImage>> imagesByScaling;
+	private double lastScaling;
+	private List<ScaledImage> lastImages;
+
+	/**
+	 * @param capacity number of scalings for which the scaled images are kept
+	 */
+	public ScaledImageCache(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Scaled image cache capacity must be positive but is " + capacity);
+		}
+		imagesByScaling = new LinkedHashMap<>(capacity + 1, 1, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Double, List<ScaledImage>> eldest) {
+				boolean remove = size() > capacity;
+				if (remove) {
+					Logger.trace("Scaled images for scaling {} removed from cache", eldest.getKey());
+				}
+				return remove;
+			}
+		};
+	}
+
+	public ScaledImageCache() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates the scaled image for the given image region if not already cached.
+	 *
+	 * @param scaling scaling factor
+	 * @param source  source image
+	 * @param region  region of source image or {@code null} for the complete image
+	 */
+	public void prepare(double scaling, Image source, Rectangle2D region) {
+		checkNotNull(source);
+		if (scaling <= 0) {
+			throw new IllegalArgumentException("Scaling value must be positive but is " + scaling);
+		}
+		if (region == null) {
+			region = new Rectangle2D(0, 0, source.getWidth(), source.getHeight());
+		}
+		var images = imagesByScaling.computeIfAbsent(scaling, s -> new ArrayList<>());
+		for (var scaledImage : images) {
+			if (scaledImage.source() == source && scaledImage.region().equals(region)) {
+				return;
+			}
+		}
+		long start = System.nanoTime();
+		images.add(new ScaledImage(source, region, scaling, scale(source, region, scaling)));
+		Logger.trace("Scaled image ({} x {}) by {} in {} ms", region.getWidth(), region.getHeight(), scaling,
+				(System.nanoTime() - start) / 1e6);
+		lastImages = null;
+	}
+
+	/**
+	 * @param source  source image
+	 * @param sprite  region of the source image
+	 * @param scaling scaling factor
+	 * @return cached scaled image containing the sprite or {@code null}
+	 */
+	public ScaledImage find(Image source, Rectangle2D sprite, double scaling) {
+		if (lastImages == null || scaling != lastScaling) {
+			lastImages = imagesByScaling.get(scaling);
+			lastScaling = scaling;
+		}
+		if (lastImages != null) {
+			for (int i = 0; i < lastImages.size(); ++i) {
+				var scaledImage = lastImages.get(i);
+				if (scaledImage.source() == source && scaledImage.contains(sprite)) {
+					return scaledImage;
+				}
+			}
+		}
+		return null;
+	}
+
+	public void clear() {
+		imagesByScaling.clear();
+		lastImages = null;
+	}
+
+	// source pixel n covers the scaled pixels from scaled(n) (inclusive) to scaled(n+1) (exclusive)
+	private static int scaled(double n, double scaling) {
+		return (int) Math.ceil(n * scaling);
+	}
+
+	private static int[] sourceIndices(int srcSize, double scaling) {
+		var indices = new int[Math.max(1, scaled(srcSize, scaling))];
+		for (int n = 0; n < srcSize; ++n) {
+			for (int i = scaled(n, scaling); i < scaled(n + 1, scaling); ++i) {
+				indices[i] = n;
+			}
+		}
+		return indices;
+	}
+
+	private static Image scale(Image source, Rectangle2D region, double scaling) {
+		int srcX = (int) region.getMinX();
+		int srcY = (int) region.getMinY();
+		int srcWidth = (int) region.getWidth();
+		int srcHeight = (int) region.getHeight();
+		var format = PixelFormat.getIntArgbInstance();
+		var srcPixels = new int[srcWidth * srcHeight];
+		source.getPixelReader().getPixels(srcX, srcY, srcWidth, srcHeight, format, srcPixels, 0, srcWidth);
+		var columns = sourceIndices(srcWidth, scaling);
+		var rows = sourceIndices(srcHeight, scaling);
+		int width = columns.length;
+		int height = rows.length;
+		var row = new int[width];
+		var image = new WritableImage(width, height);
+		var writer = image.getPixelWriter();
+		int lastSrcRow = -1;
+		for (int y = 0; y < height; ++y) {
+			int srcRow = rows[y];
+			if (srcRow != lastSrcRow) {
+				int offset = srcRow * srcWidth;
+				for (int x = 0; x < width; ++x) {
+					row[x] = srcPixels[offset + columns[x]];
+				}
+				lastSrcRow = srcRow;
+			}
+			writer.setPixels(0, y, width, 1, format, row, 0, width);
+		}
+		return image;
+	}
+}
@@ -4,14 +4,14 @@ See file LICENSE in repository root directory for details.
 */
 package de.amr.games.pacman.ui.fx.util;
 
-import javafx.animation.Animation;
-import javafx.animation.Animation.Status;
-import javafx.animation.Interpolator;
-import javafx.animation.Transition;
+import de.amr.games.pacman.model.GameModel;
 import javafx.geometry.Rectangle2D;
-import javafx.util.Duration;
 
 /**
+ * Sprite animation driven by the ticks of the game clock (see {@link AnimationTicker}). A running animation shows each
+ * sprite for {@link #frameTicks} ticks. Looping animations run until they are stopped, other animations stop after
+ * having shown each sprite once.
+ *
  * @author Armin Reichert
  */
 public class SpriteAnimation {
@@ -41,7 +41,6 @@ public class SpriteAnimation {
 		}
 
 		public SpriteAnimation end() {
-			animation.transition = createTransition(animation);
 			return animation;
 		}
 	}
@@ -50,31 +49,19 @@ public class SpriteAnimation {
 		return new Builder();
 	}
 
-	private static Transition createTransition(SpriteAnimation sa) {
-		return new Transition() {
-			{
-				setCycleDuration(Duration.seconds(1.0 / sa.fps * sa.frameTicks));
-				setCycleCount(sa.loop ? Animation.INDEFINITE : sa.sprites.length);
-				setInterpolator(Interpolator.LINEAR);
-			}
-
-			@Override
-			protected void interpolate(double frac) {
-				if (frac == 1.0) {
-					sa.nextFrame();
-				}
-			}
-		};
-	}
-
 	private Rectangle2D[] sprites = new Rectangle2D[0];
 	private boolean loop;
 	private int frameTicks = 1;
-	private int fps = 60;
-	private Transition transition;
+	private int fps = GameModel.FPS;
 	private int frameIndex;
+	private boolean running;
+	private long lastFrameChangeTick;
+	private int frameChanges; // since start, used to end non-looping animations
 
 	public void setSprites(Rectangle2D[] sprites) {
+		if (sprites == this.sprites) {
+			return;
+		}
 		this.sprites = sprites;
 		// TODO what about frame index?
 	}
@@ -84,17 +71,17 @@ public class SpriteAnimation {
 	}
 
 	public void reset() {
-		transition.stop();
-		transition.jumpTo(Duration.ZERO);
+		running = false;
+		frameChanges = 0;
 		frameIndex = 0;
 	}
 
 	public void setFrameTicks(int ticks) {
 		if (ticks != frameTicks) {
-			boolean wasRunning = transition.getStatus() == Status.RUNNING;
-			transition.stop();
+			catchUp();
+			boolean wasRunning = running;
+			running = false;
 			frameTicks = ticks;
-			transition = createTransition(this);
 			if (wasRunning) {
 				start();
 			}
@@ -102,37 +89,79 @@ public class SpriteAnimation {
 	}
 
 	public void start() {
-		transition.play();
+		catchUp();
+		if (!running) {
+			running = true;
+			frameChanges = 0;
+			lastFrameChangeTick = AnimationTicker.now();
+		}
 	}
 
 	public void stop() {
-		transition.stop();
+		catchUp();
+		running = false;
 	}
 
 	public boolean isRunning() {
-		return transition.getStatus() == Status.RUNNING;
-	}
-
-	public void setDelay(Duration delay) {
-		transition.setDelay(delay);
+		catchUp();
+		return running;
 	}
 
 	public void setFrameIndex(int frame) {
+		catchUp();
 		this.frameIndex = frame;
 	}
 
 	public int frameIndex() {
+		catchUp();
 		return frameIndex;
 	}
 
 	public Rectangle2D currentSprite() {
+		catchUp();
 		return sprites[frameIndex];
 	}
 
 	public void nextFrame() {
+		catchUp();
+		step();
+	}
+
+	private void step() {
 		frameIndex++;
 		if (frameIndex == sprites.length) {
-			frameIndex = transition.getCycleCount() == Animation.INDEFINITE ? 0 : sprites.length - 1;
+			frameIndex = loop ? 0 : sprites.length - 1;
+		}
+	}
+
+	private int ticksPerFrame() {
+		return Math.max(1, frameTicks * GameModel.FPS / fps);
+	}
+
+	// Applies the frame changes due since the last access
+	private void catchUp() {
+		if (!running) {
+			return;
+		}
+		int ticksPerFrame = ticksPerFrame();
+		long due = (AnimationTicker.now() - lastFrameChangeTick) / ticksPerFrame;
+		if (due == 0) {
+			return;
+		}
+		lastFrameChangeTick += due * ticksPerFrame;
+		if (loop) {
+			if (sprites.length > 0) {
+				frameIndex = (int) ((frameIndex + due) % sprites.length);
+			}
+		} else {
+			int changes = (int) Math.min(due, sprites.length - frameChanges);
+			for (int i = 0; i < changes; ++i) {
+				step();
+			}
+			frameChanges += changes;
+			if (frameChanges >= sprites.length) {
+				running = false;
+			}
 		}
 	}
-}
\ No newline at end of file
+}
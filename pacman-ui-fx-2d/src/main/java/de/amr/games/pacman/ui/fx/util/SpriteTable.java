@@ -0,0 +1,121 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.ui.fx.util;
+
+import javafx.geometry.Rectangle2D;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static de.amr.games.pacman.lib.Globals.checkNotNull;
+
+/**
+ * Immutable table of the sprites of a spritesheet, indexed by sprite ID. It is built once when the spritesheet is
+ * created, so looking up a sprite allocates nothing.
+ * <p>
+ * Each sprite is stored as rectangle (exact source region, may have fractional coordinates) and in a packed int array
+ * (x, y, width, height, rounded down) for code working with integer pixel coordinates.
+ *
+ * @author Armin Reichert
+ */
+public class SpriteTable {
+
+	public static class Builder {
+
+		private final List<Rectangle2D> sprites = new ArrayList<>();
+
+		/**
+		 * @param sprite sprite source region
+		 * @return ID of the added sprite
+		 */
+		public int add(Rectangle2D sprite) {
+			checkNotNull(sprite);
+			sprites.add(sprite);
+			return sprites.size() - 1;
+		}
+
+		/**
+		 * @param sprites sprite source regions
+		 * @return ID of the first added sprite, the others have the following IDs
+		 */
+		public int addAll(Rectangle2D... sprites) {
+			int firstID = this.sprites.size();
+			for (var sprite : sprites) {
+				add(sprite);
+			}
+			return firstID;
+		}
+
+		public SpriteTable build() {
+			return new SpriteTable(sprites.toArray(Rectangle2D[]::new));
+		}
+	}
+
+	private final Rectangle2D[] rects;
+	private final int[] packed;
+
+	private SpriteTable(Rectangle2D[] rects) {
+		this.rects = rects;
+		packed = new int[4 * rects.length];
+		for (int id = 0; id < rects.length; ++id) {
+			var r = rects[id];
+			packed[4 * id] = (int) r.getMinX();
+			packed[4 * id + 1] = (int) r.getMinY();
+			packed[4 * id + 2] = (int) r.getWidth();
+			packed[4 * id + 3] = (int) r.getHeight();
+		}
+	}
+
+	public int size() {
+		return rects.length;
+	}
+
+	/**
+	 * @param id sprite ID
+	 * @return sprite source region
+	 */
+	public Rectangle2D rect(int id) {
+		return rects[id];
+	}
+
+	/**
+	 * @param ids sprite IDs
+	 * @return new array with the sprites of the given IDs (for building animations, not for the render loop)
+	 */
+	public Rectangle2D[] rects(int... ids) {
+		var result = new Rectangle2D[ids.length];
+		for (int i = 0; i < ids.length; ++i) {
+			result[i] = rects[ids[i]];
+		}
+		return result;
+	}
+
+	/**
+	 * @param firstID ID of first sprite
+	 * @param count   number of sprites
+	 * @return new array with the sprites with IDs <code>firstID, firstID + 1, ...</code>
+	 */
+	public Rectangle2D[] range(int firstID, int count) {
+		var result = new Rectangle2D[count];
+		System.arraycopy(rects, firstID, result, 0, count);
+		return result;
+	}
+
+	public int x(int id) {
+		return packed[4 * id];
+	}
+
+	public int y(int id) {
+		return packed[4 * id + 1];
+	}
+
+	public int width(int id) {
+		return packed[4 * id + 2];
+	}
+
+	public int height(int id) {
+		return packed[4 * id + 3];
+	}
+}
@@ -6,7 +6,6 @@ package de.amr.games.pacman.ui.fx.util;
 
 import javafx.geometry.Rectangle2D;
 import javafx.scene.image.Image;
-import javafx.scene.image.WritableImage;
 
 /**
  * A spritesheet (bekommt kein Wunschkennzeichen!)
@@ -23,6 +22,26 @@ public interface Spritesheet {
 
 	Image source();
 
+	/**
+	 * @return table of all sprites of this spritesheet, indexed by sprite ID
+	 */
+	SpriteTable spriteTable();
+
+	/**
+	 * @param id sprite ID
+	 * @return sprite source region
+	 */
+	default Rectangle2D sprite(int id) {
+		return spriteTable().rect(id);
+	}
+
+	/**
+	 * @return region of the source image containing the sprites, {@code null} means the complete source image
+	 */
+	default Rectangle2D spritesRegion() {
+		return null;
+	}
+
 	default Rectangle2D rect(double x, double y, double width, double height) {
 		return new Rectangle2D(x, y, width, height);
 	}
@@ -33,7 +52,7 @@ public interface Spritesheet {
 
 	/**
 	 * @param r spritesheet region
-	 * @return image (copy) of spritesheet region
+	 * @return image (copy) of spritesheet region, cached and shared, must not be modified
 	 */
 	default Image subImage(Rectangle2D r) {
 		return subImage((int) r.getMinX(), (int) r.getMinY(), (int) r.getWidth(), (int) r.getHeight());
@@ -44,12 +63,22 @@ public interface Spritesheet {
 	 * @param y      region y-coordinate
 	 * @param width  region width
 	 * @param height region height
-	 * @return image (copy) of spritesheet region
+	 * @return image (copy) of spritesheet region, cached and shared, must not be modified
 	 */
 	default Image subImage(int x, int y, int width, int height) {
-		var image = new WritableImage(width, height);
-		image.getPixelWriter().setPixels(0, 0, width, height, source().getPixelReader(), x, y);
-		return image;
+		return SubImageCache.get(source(), x, y, width, height);
+	}
+
+	/**
+	 * Creates the images of the given regions such that later calls of {@link #subImage(Rectangle2D)} find them in the
+	 * cache.
+	 *
+	 * @param regions spritesheet regions
+	 */
+	default void prepareSubImages(Rectangle2D... regions) {
+		for (var r : regions) {
+			subImage(r);
+		}
 	}
 
 	/**
@@ -0,0 +1,83 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.ui.fx.util;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.WritableImage;
+import org.tinylog.Logger;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import static de.amr.games.pacman.lib.Globals.checkNotNull;
+
+/**
+ * Cache of image regions copied from a source image (see {@link Spritesheet#subImage(int, int, int, int)}). For each
+ * source image, the most recently used regions are kept. The entries of a source image are dropped when the source
+ * image is no longer referenced.
+ * <p>
+ * The cached images are shared and must not be modified.
+ *
+ * @author Armin Reichert
+ */
+public class SubImageCache {
+
+	/** Maximum number of regions kept per source image. */
+	public static final int CAPACITY = 64;
+
+	private record Region(int x, int y, int width, int height) {
+	}
+
+	private static final Map<Image, Map<Region, Image>> CACHE = new WeakHashMap<>();
+
+	private SubImageCache() {
+	}
+
+	/**
+	 * @param source source image
+	 * @param x      region x-coordinate
+	 * @param y      region y-coordinate
+	 * @param width  region width
+	 * @param height region height
+	 * @return (cached) copy of the source image region
+	 */
+	public static Image get(Image source, int x, int y, int width, int height) {
+		checkNotNull(source);
+		var region = new Region(x, y, width, height);
+		synchronized (CACHE) {
+			var images = CACHE.computeIfAbsent(source, img -> createLRUMap());
+			var image = images.get(region);
+			if (image == null) {
+				image = copy(source, region);
+				images.put(region, image);
+				Logger.trace("Sub-image {} created", region);
+			}
+			return image;
+		}
+	}
+
+	public static void clear() {
+		synchronized (CACHE) {
+			CACHE.clear();
+		}
+	}
+
+	private static Map<Region, Image> createLRUMap() {
+		return new LinkedHashMap<>(CAPACITY + 1, 1, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Region, Image> eldest) {
+				return size() > CAPACITY;
+			}
+		};
+	}
+
+	private static Image copy(Image source, Region region) {
+		var image = new WritableImage(region.width(), region.height());
+		image.getPixelWriter().setPixels(0, 0, region.width(), region.height(), source.getPixelReader(), region.x(),
+				region.y());
+		return image;
+	}
+}
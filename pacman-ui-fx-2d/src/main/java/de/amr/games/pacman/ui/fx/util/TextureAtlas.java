@@ -0,0 +1,157 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.ui.fx.util;
+
+import javafx.geometry.Rectangle2D;
+import javafx.scene.image.Image;
+import javafx.scene.image.WritableImage;
+import org.tinylog.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static de.amr.games.pacman.lib.Globals.checkNotNull;
+
+/**
+ * Single image ("texture atlas") into which several images (or image regions) are packed, such that drawing them all
+ * uses the same source image. The atlas is packed when the application starts. The region of each packed image inside
+ * the atlas is looked up by the key under which the image was added.
+ *
+ * @author Armin Reichert
+ */
+public class TextureAtlas {
+
+	public static class Builder {
+
+		private record Entry(String key, Image image, Rectangle2D region) {
+		}
+
+		private final List<Entry> entries = new ArrayList<>();
+
+		/**
+		 * @param key   key of the image in the atlas
+		 * @param image image
+		 * @return this builder
+		 */
+		public Builder add(String key, Image image) {
+			checkNotNull(image);
+			return add(key, image, new Rectangle2D(0, 0, image.getWidth(), image.getHeight()));
+		}
+
+		/**
+		 * @param key    key of the image region in the atlas
+		 * @param image  image
+		 * @param region region of the image that is packed into the atlas
+		 * @return this builder
+		 */
+		public Builder add(String key, Image image, Rectangle2D region) {
+			checkNotNull(key);
+			checkNotNull(image);
+			checkNotNull(region);
+			if (entries.stream().anyMatch(entry -> entry.key().equals(key))) {
+				throw new IllegalArgumentException("Duplicate texture atlas key: " + key);
+			}
+			entries.add(new Entry(key, image, region));
+			return this;
+		}
+
+		/**
+		 * Packs the images into rows ("shelves"), highest images first.
+		 *
+		 * @return the texture atlas
+		 */
+		public TextureAtlas build() {
+			long start = System.nanoTime();
+			var sorted = new ArrayList<>(entries);
+			sorted.sort(Comparator.comparingDouble((Entry entry) -> entry.region().getHeight()).reversed());
+			int width = atlasWidth(sorted);
+			var positions = new LinkedHashMap<String, Rectangle2D>();
+			int x = 0, y = 0, shelfHeight = 0;
+			for (var entry : sorted) {
+				int w = (int) entry.region().getWidth();
+				int h = (int) entry.region().getHeight();
+				if (x + w > width) {
+					x = 0;
+					y += shelfHeight + PADDING;
+					shelfHeight = 0;
+				}
+				positions.put(entry.key(), new Rectangle2D(x, y, w, h));
+				x += w + PADDING;
+				shelfHeight = Math.max(shelfHeight, h);
+			}
+			int height = y + shelfHeight;
+			var image = new WritableImage(width, height);
+			var writer = image.getPixelWriter();
+			var regions = new LinkedHashMap<String, Rectangle2D>();
+			for (var entry : entries) {
+				var position = positions.get(entry.key());
+				var region = entry.region();
+				writer.setPixels((int) position.getMinX(), (int) position.getMinY(), (int) position.getWidth(),
+						(int) position.getHeight(), entry.image().getPixelReader(), (int) region.getMinX(), (int) region.getMinY());
+				regions.put(entry.key(), position);
+			}
+			Logger.info("Texture atlas ({} x {}) with {} images packed in {} ms", width, height, entries.size(),
+					(System.nanoTime() - start) / 1e6);
+			regions.forEach((key, region) -> Logger.trace("Texture atlas region '{}': {}", key, region));
+			return new TextureAtlas(image, regions);
+		}
+
+		// power of two, at least as wide as the widest image and about as wide as high
+		private static int atlasWidth(List<Entry> entries) {
+			double area = 0;
+			int maxWidth = 1;
+			for (var entry : entries) {
+				int w = (int) entry.region().getWidth() + PADDING;
+				int h = (int) entry.region().getHeight() + PADDING;
+				area += (double) w * h;
+				maxWidth = Math.max(maxWidth, w);
+			}
+			int side = (int) Math.ceil(Math.sqrt(area));
+			int width = side <= 1 ? 1 : Integer.highestOneBit(side - 1) << 1;
+			while (width < maxWidth) {
+				width *= 2;
+			}
+			return width;
+		}
+	}
+
+	/** Pixels between the packed images, avoids bleeding of neighbour images when drawing scaled. */
+	public static final int PADDING = 2;
+
+	private final Image image;
+	private final Map<String, Rectangle2D> regions;
+
+	private TextureAtlas(Image image, Map<String, Rectangle2D> regions) {
+		this.image = image;
+		this.regions = Collections.unmodifiableMap(regions);
+	}
+
+	public Image image() {
+		return image;
+	}
+
+	/**
+	 * @param key image key
+	 * @return region of the image inside the atlas
+	 */
+	public Rectangle2D region(String key) {
+		var region = regions.get(key);
+		if (region == null) {
+			throw new IllegalArgumentException("No texture atlas region with key: " + key);
+		}
+		return region;
+	}
+
+	/**
+	 * @return (unmodifiable) map from image keys to atlas regions
+	 */
+	public Map<String, Rectangle2D> regions() {
+		return regions;
+	}
+}
@@ -4,27 +4,53 @@ See file LICENSE in repository root directory for details.
 */
 package de.amr.games.pacman.ui.fx.util;
 
+import javafx.application.Platform;
 import javafx.scene.image.Image;
 import javafx.scene.layout.Background;
 import javafx.scene.media.AudioClip;
 import javafx.scene.paint.Color;
 import javafx.scene.text.Font;
+import org.tinylog.Logger;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 /**
+ * Named colors, fonts, images, sounds etc.
+ * <p>
+ * A thing can also be stored as a future (see {@link ResourceLoader}) or as a supplier. Such an entry is resolved when
+ * it is accessed for the first time, that is, the access waits until the future is completed or the supplier has
+ * created the thing.
+ *
  * @author Armin Reichert
  */
 public class Theme {
 
-	protected Map<String, Object> namedThings = new HashMap<>();
+	// entry that is resolved on first access
+	private record Deferred(Supplier<?> supplier, CompletableFuture<?> future) {
+	}
+
+	protected Map<String, Object> namedThings = new ConcurrentHashMap<>();
 	protected Map<String, ArrayList<Object>> namedArrays = new HashMap<>();
 
+	/** Fonts derived from named fonts, by family. Only a few sizes are in use at any time. */
+	private final Map<String, List<Font>> derivedFonts = new HashMap<>();
+	private static final int MAX_DERIVED_FONTS_PER_FAMILY = 16;
+
+	private final AtomicInteger numFutures = new AtomicInteger();
+	private final AtomicInteger numFuturesCompleted = new AtomicInteger();
+
 	private long countEntriesOfType(Class<?> clazz) {
-		var count = namedThings.values().stream().filter(thing -> thing.getClass().isAssignableFrom(clazz)).count();
+		var count = resolvedThings().filter(thing -> thing.getClass().isAssignableFrom(clazz)).count();
 		for (var array: namedArrays.values()) {
 			if (!array.isEmpty() && array.get(0).getClass().isAssignableFrom(clazz)) {
 				count += array.size();
@@ -37,11 +63,72 @@ public class Theme {
 				countEntriesOfType(Image.class) + " images" + ", " +
 				countEntriesOfType(Font.class) + " fonts" + ", " +
 				countEntriesOfType(Color.class) + " colors" + ", " +
-				countEntriesOfType(AudioClip.class) + " audio clips" + ", ";
+				countEntriesOfType(AudioClip.class) + " audio clips" + ", " +
+				countDeferredEntries() + " deferred";
 	}
 
+	private long countDeferredEntries() {
+		return namedThings.values().stream().filter(Deferred.class::isInstance).count();
+	}
+
+	/**
+	 * Stores a thing under the given name. If the thing is a {@link CompletableFuture}, its value is stored when the entry
+	 * is accessed for the first time, see {@link #get(String)}.
+	 *
+	 * @param name  name of thing
+	 * @param thing thing or future of thing
+	 */
 	public void set(String name, Object thing) {
-		namedThings.put(name, thing);
+		if (thing instanceof CompletableFuture<?> future) {
+			numFutures.incrementAndGet();
+			future.whenComplete((value, error) -> {
+				numFuturesCompleted.incrementAndGet();
+				if (error != null) {
+					Logger.error(error, "Theme entry '{}' could not be loaded", name);
+				}
+			});
+			namedThings.put(name, new Deferred(future::join, future));
+		} else {
+			namedThings.put(name, thing);
+		}
+	}
+
+	/**
+	 * Stores a supplier that creates the thing when the entry is accessed for the first time. Used for things that must
+	 * be created on the application thread.
+	 *
+	 * @param name     name of thing
+	 * @param supplier creates the thing
+	 */
+	public void setLazy(String name, Supplier<?> supplier) {
+		namedThings.put(name, new Deferred(supplier, null));
+	}
+
+	/**
+	 * @return fraction (0..1) of the stored futures that are completed
+	 */
+	public double loadingProgress() {
+		int total = numFutures.get();
+		return total == 0 ? 1 : (double) numFuturesCompleted.get() / total;
+	}
+
+	/**
+	 * Passes the named thing to the action without waiting for it to be loaded. If the thing is available, the action is
+	 * run immediately, otherwise it is run on the application thread when loading has finished. If loading fails, the
+	 * action is not run.
+	 *
+	 * @param <T>    expected type of thing
+	 * @param name   name of thing
+	 * @param action action receiving the thing
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> void onLoaded(String name, Consumer<T> action) {
+		if (namedThings.get(name) instanceof Deferred deferred && deferred.future() != null
+				&& !deferred.future().isDone()) {
+			deferred.future().thenRun(() -> Platform.runLater(() -> action.accept((T) get(name))));
+		} else {
+			action.accept(get(name));
+		}
 	}
 
 	public void addToArray(String arrayName, Color color) {
@@ -63,11 +150,29 @@ public class Theme {
 	 * 
 	 * @param <T>  expected return type
 	 * @param name name of thing
-	 * @return stored value cast to return type
+	 * @return stored value cast to return type. If the value is not yet loaded, waits until it is available.
 	 */
 	@SuppressWarnings("unchecked")
 	public <T> T get(String name) {
-		return (T) namedThings.get(name);
+		var thing = namedThings.get(name);
+		if (thing instanceof Deferred deferred) {
+			var value = deferred.supplier().get();
+			// another thread may have resolved the entry in the meantime
+			namedThings.replace(name, deferred, value);
+			thing = namedThings.get(name);
+		}
+		return (T) thing;
+	}
+
+	// entries that are available without waiting
+	private Stream<Object> resolvedThings() {
+		return namedThings.entrySet().stream().map(entry -> {
+			if (entry.getValue() instanceof Deferred deferred) {
+				var future = deferred.future();
+				return future != null && future.isDone() && !future.isCompletedExceptionally() ? get(entry.getKey()) : null;
+			}
+			return entry.getValue();
+		}).filter(Objects::nonNull);
 	}
 
 	public Color color(String name, int i) {
@@ -83,8 +188,25 @@ public class Theme {
 		return get(name);
 	}
 
+	/**
+	 * @param name name of font
+	 * @param size font size
+	 * @return font of the same family as the named font with given size. Fonts are cached.
+	 */
 	public Font font(String name, double size) {
-		return Font.font(font(name).getFamily(), size);
+		var family = font(name).getFamily();
+		var fonts = derivedFonts.computeIfAbsent(family, f -> new ArrayList<>());
+		for (int i = 0; i < fonts.size(); ++i) {
+			if (fonts.get(i).getSize() == size) {
+				return fonts.get(i);
+			}
+		}
+		if (fonts.size() == MAX_DERIVED_FONTS_PER_FAMILY) {
+			fonts.remove(0);
+		}
+		var font = Font.font(family, size);
+		fonts.add(font);
+		return font;
 	}
 
 	public Image image(String name) {
@@ -100,6 +222,6 @@ public class Theme {
 	}
 
 	public Stream<AudioClip> audioClips() {
-		return namedThings.values().stream().filter(AudioClip.class::isInstance).map(AudioClip.class::cast);
+		return resolvedThings().filter(AudioClip.class::isInstance).map(AudioClip.class::cast);
 	}
 }
\ No newline at end of file
@@ -0,0 +1,60 @@
+/*
+Copyright (c) 2021-2023 Armin Reichert (MIT License)
+See file LICENSE in repository root directory for details.
+*/
+package de.amr.games.pacman.ui.fx.util;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static de.amr.games.pacman.lib.Globals.checkNotNull;
+
+/**
+ * Lock-free triple buffer for handing data from one writer thread to one reader thread. The writer fills the write
+ * buffer and publishes it, the reader always gets the most recently published buffer. Neither side ever waits for the
+ * other, and the three buffer objects are reused.
+ *
+ * @param <T> buffer type
+ * @author Armin Reichert
+ */
+public class TripleBuffer<T> {
+
+	private static final int INDEX_MASK = 0b011;
+	private static final int FRESH = 0b100;
+
+	private final List<T> buffers;
+	/** Index of the buffer between writer and reader, plus flag telling if it has been published but not read. */
+	private final AtomicInteger middle = new AtomicInteger(2);
+	private int writeIndex = 0;
+	private int readIndex = 1;
+
+	public TripleBuffer(Supplier<T> factory) {
+		checkNotNull(factory);
+		buffers = List.of(factory.get(), factory.get(), factory.get());
+	}
+
+	/**
+	 * @return buffer the writer may fill (writer thread only)
+	 */
+	public T writeBuffer() {
+		return buffers.get(writeIndex);
+	}
+
+	/**
+	 * Publishes the write buffer and makes another buffer the write buffer (writer thread only).
+	 */
+	public void publish() {
+		writeIndex = middle.getAndSet(writeIndex | FRESH) & INDEX_MASK;
+	}
+
+	/**
+	 * @return the most recently published buffer (reader thread only). Stays valid until the next call.
+	 */
+	public T readBuffer() {
+		if ((middle.get() & FRESH) != 0) {
+			readIndex = middle.getAndSet(readIndex) & INDEX_MASK;
+		}
+		return buffers.get(readIndex);
+	}
+}
@@ -9,14 +9,11 @@ import javafx.animation.PauseTransition;
 import javafx.beans.binding.Bindings;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.ObjectProperty;
-import javafx.scene.image.Image;
-import javafx.scene.image.PixelWriter;
-import javafx.scene.image.WritableImage;
 import javafx.scene.paint.Color;
 import javafx.scene.paint.PhongMaterial;
 import javafx.util.Duration;
 
-import java.util.Map;
+import java.util.Random;
 
 import static de.amr.games.pacman.lib.Globals.checkNotNull;
 
@@ -27,6 +24,12 @@ import static de.amr.games.pacman.lib.Globals.checkNotNull;
  */
 public class Ufx {
 
+	/**
+	 * Random generator for visual effects. The game model has its own generator whose sequence must not be changed by the
+	 * user interface, otherwise recorded games could not be replayed.
+	 */
+	public static final Random EFFECTS_RND = new Random();
+
 	private Ufx() {
 	}
 
@@ -72,23 +75,4 @@ public class Ufx {
 		pause.setOnFinished(e -> action.run());
 		return pause;
 	}
-
-	/**
-	 * @param source    source image
-	 * @param exchanges map of color exchanges
-	 * @return copy of source image with colors exchanged
-	 */
-	public static Image colorsExchanged(Image source, Map<Color, Color> exchanges) {
-		WritableImage result = new WritableImage((int) source.getWidth(), (int) source.getHeight());
-		PixelWriter out = result.getPixelWriter();
-		for (int x = 0; x < source.getWidth(); ++x) {
-			for (int y = 0; y < source.getHeight(); ++y) {
-				Color color = source.getPixelReader().getColor(x, y);
-				if (exchanges.containsKey(color)) {
-					out.setColor(x, y, exchanges.get(color));
-				}
-			}
-		}
-		return result;
-	}
-}
\ No newline at end of file
+}
@@ -10,6 +10,7 @@ module de.amr.games.pacman.ui.fx {
 
 	exports de.amr.games.pacman.ui.fx;
 	exports de.amr.games.pacman.ui.fx.input;
+	exports de.amr.games.pacman.ui.fx.replay;
 	exports de.amr.games.pacman.ui.fx.scene;
 	exports de.amr.games.pacman.ui.fx.util;
 	exports de.amr.games.pacman.ui.fx.rendering2d;
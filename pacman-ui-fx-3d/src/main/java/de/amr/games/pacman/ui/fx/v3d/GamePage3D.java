@@ -190,7 +190,7 @@ public class GamePage3D extends GamePage {
 	public void render() {
 		super.render();
 		contextMenu.updateState();
-		dashboard.update();
+		ui().clock().runExclusive(dashboard::update);
 		pip.root().setVisible(isPictureInPictureActive() && isCurrentGameScene3D());
 		pip.render();
 	}
@@ -12,12 +12,14 @@ import de.amr.games.pacman.ui.fx.rendering2d.ArcadePalette;
 import de.amr.games.pacman.ui.fx.scene.GameScene;
 import de.amr.games.pacman.ui.fx.scene2d.*;
 import de.amr.games.pacman.ui.fx.util.Picker;
+import de.amr.games.pacman.ui.fx.util.ResourceLoader;
 import de.amr.games.pacman.ui.fx.util.ResourceManager;
 import de.amr.games.pacman.ui.fx.util.Theme;
 import de.amr.games.pacman.ui.fx.v3d.model.Model3D;
 import de.amr.games.pacman.ui.fx.v3d.scene.Perspective;
 import de.amr.games.pacman.ui.fx.v3d.scene.PlayScene3D;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.beans.property.*;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyCodeCombination;
@@ -32,6 +34,7 @@ import org.tinylog.Logger;
 
 import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
 
 import static de.amr.games.pacman.lib.Globals.TS;
 import static de.amr.games.pacman.ui.fx.input.Keyboard.alt;
@@ -136,31 +139,32 @@ public class PacManGames3dApp extends Application implements ResourceManager {
 
 	private Theme createTheme() {
 		var theme = new PacManGames2dApp().createTheme();
+		var loader = new ResourceLoader(this);
 
-		theme.set("model3D.pacman",                  new Model3D(url("model3D/pacman.obj")));
-		theme.set("model3D.ghost",                   new Model3D(url("model3D/ghost.obj")));
-		theme.set("model3D.pellet",                  new Model3D(url("model3D/12206_Fruit_v1_L3.obj")));
+		theme.set("model3D.pacman",                  loader.load(() -> new Model3D(url("model3D/pacman.obj"))));
+		theme.set("model3D.ghost",                   loader.load(() -> new Model3D(url("model3D/ghost.obj"))));
+		theme.set("model3D.pellet",                  loader.load(() -> new Model3D(url("model3D/12206_Fruit_v1_L3.obj"))));
 
-		theme.set("model3D.wallpaper",  imageBackground("graphics/sea-wallpaper.jpg",
+		theme.set("model3D.wallpaper",  loader.imageBackground("graphics/sea-wallpaper.jpg",
 				BackgroundRepeat.NO_REPEAT, BackgroundRepeat.NO_REPEAT,
 				BackgroundPosition.CENTER,
 				new BackgroundSize(1, 1, true, true, false, true)
 		));
-		theme.set("model3D.wallpaper.night",  imageBackground("graphics/sea-wallpaper-night.jpg",
+		theme.set("model3D.wallpaper.night",  loader.imageBackground("graphics/sea-wallpaper-night.jpg",
 				BackgroundRepeat.NO_REPEAT, BackgroundRepeat.NO_REPEAT,
 				BackgroundPosition.CENTER,
 				new BackgroundSize(1, 1, true, true, false, true)
 		));
 
-		theme.set("image.armin1970",                 image("graphics/armin.jpg"));
-		theme.set("icon.play",                       image("graphics/icons/play.png"));
-		theme.set("icon.stop",                       image("graphics/icons/stop.png"));
-		theme.set("icon.step",                       image("graphics/icons/step.png"));
+		theme.set("image.armin1970",                 loader.image("graphics/armin.jpg"));
+		theme.set("icon.play",                       loader.image("graphics/icons/play.png"));
+		theme.set("icon.stop",                       loader.image("graphics/icons/stop.png"));
+		theme.set("icon.step",                       loader.image("graphics/icons/step.png"));
 
-		theme.set("texture.hexagon",                 createFloorTexture("hexagon", "jpg"));
-		theme.set("texture.knobs",                   createFloorTexture("knobs", "jpg"));
-		theme.set("texture.plastic",                 createFloorTexture("plastic", "jpg"));
-		theme.set("texture.wood",                    createFloorTexture("wood", "jpg"));
+		theme.set("texture.hexagon",                 createFloorTexture(loader, "hexagon", "jpg"));
+		theme.set("texture.knobs",                   createFloorTexture(loader, "knobs", "jpg"));
+		theme.set("texture.plastic",                 createFloorTexture(loader, "plastic", "jpg"));
+		theme.set("texture.wood",                    createFloorTexture(loader, "wood", "jpg"));
 
 		theme.set("ghost.0.color.normal.dress",      ArcadePalette.RED);
 		theme.set("ghost.0.color.normal.eyeballs",   ArcadePalette.PALE);
@@ -230,14 +234,21 @@ public class PacManGames3dApp extends Application implements ResourceManager {
 		theme.set("pacman.color.palate",             Color.rgb(191, 79, 61));
 		theme.set("pacman.color.eyes",               Color.rgb(33, 33, 33));
 
+		loader.shutdown();
 		return theme;
 	}
 
-	private PhongMaterial createFloorTexture(String baseName, String ext) {
-		var texture = new PhongMaterial();
-		texture.setBumpMap(image("graphics/textures/%s-bump.%s".formatted(baseName, ext)));
-		texture.setDiffuseMap(image("graphics/textures/%s-diffuse.%s".formatted(baseName, ext)));
-		texture.diffuseColorProperty().bind(PY_3D_FLOOR_COLOR);
-		return texture;
+	private CompletableFuture<PhongMaterial> createFloorTexture(ResourceLoader loader, String baseName, String ext) {
+		var bumpMap = loader.image("graphics/textures/%s-bump.%s".formatted(baseName, ext));
+		var diffuseMap = loader.image("graphics/textures/%s-diffuse.%s".formatted(baseName, ext));
+		var future = bumpMap.thenCombine(diffuseMap, (bump, diffuse) -> {
+			var texture = new PhongMaterial();
+			texture.setBumpMap(bump);
+			texture.setDiffuseMap(diffuse);
+			return texture;
+		});
+		// the color property is bound on the application thread, the loader thread must not register listeners on it
+		future.thenAccept(texture -> Platform.runLater(() -> texture.diffuseColorProperty().bind(PY_3D_FLOOR_COLOR)));
+		return future;
 	}
 }
\ No newline at end of file
@@ -15,6 +15,7 @@ import de.amr.games.pacman.ui.fx.util.Theme;
 import de.amr.games.pacman.ui.fx.util.Ufx;
 import de.amr.games.pacman.ui.fx.v3d.scene.Perspective;
 import de.amr.games.pacman.ui.fx.v3d.scene.PlayScene3D;
+import javafx.scene.image.Image;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyCombination;
 import javafx.scene.input.MouseButton;
@@ -72,8 +73,9 @@ public class PacManGames3dUI extends PacManGames2dUI implements ActionHandler3D
 		return gameScene == config.get("play") || gameScene == config.get("play3D");
 	}
 
+	@Override
 	public GamePage3D gamePage() {
-		return (GamePage3D) gamePage;
+		return (GamePage3D) super.gamePage();
 	}
 
 	@Override
@@ -110,8 +112,10 @@ public class PacManGames3dUI extends PacManGames2dUI implements ActionHandler3D
 		}
 		var dimension = message(PacManGames3dApp.TEXTS, PacManGames3dApp.PY_3D_ENABLED.get() ? "threeD" : "twoD");
 		stage.setTitle(message(PacManGames3dApp.TEXTS, titleKey, dimension));
-		stage.getIcons().setAll(theme.image(variantKey + ".icon"));
-		gamePage().updateBackground();
+		theme.<Image>onLoaded(variantKey + ".icon", icon -> stage.getIcons().setAll(icon));
+		if (gamePage != null) {
+			gamePage().updateBackground();
+		}
 	}
 
 	@Override
@@ -131,7 +135,7 @@ public class PacManGames3dUI extends PacManGames2dUI implements ActionHandler3D
 			Ufx.toggle(PacManGames3dApp.PY_3D_ENABLED);
 			if (isPlayScene(gameScene)) {
 				updateOrReloadGameScene(true);
-				gamePage.onGameSceneChanged();
+				gamePage().onGameSceneChanged();
 				gameScene.onSceneVariantSwitch();
 			}
 			GameController.it().update();
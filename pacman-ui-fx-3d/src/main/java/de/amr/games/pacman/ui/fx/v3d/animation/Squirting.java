@@ -32,7 +32,7 @@ import javafx.scene.shape.Sphere;
 import javafx.util.Duration;
 import org.tinylog.Logger;
 
-import static de.amr.games.pacman.lib.Globals.*;
+import static de.amr.games.pacman.ui.fx.util.Ufx.EFFECTS_RND;
 
 /**
  * @author Armin Reichert
@@ -161,13 +161,13 @@ public abstract class Squirting extends Transition {
 	protected abstract boolean reachesEndPosition(Drop drop);
 
 	private void createDrops() {
-		for (int i = 0; i < randomInt(dropCountMin, dropCountMax); ++i) {
-			var drop = new Drop(this, randomFloat(dropRadiusMin, dropRadiusMax));
+		for (int i = 0; i < EFFECTS_RND.nextInt(dropCountMin, dropCountMax); ++i) {
+			var drop = new Drop(this, EFFECTS_RND.nextFloat(dropRadiusMin, dropRadiusMax));
 			drop.setVisible(true);
 			drop.setVelocity(//
-					randomDouble(dropVelocityMin.getX(), dropVelocityMax.getX()), //
-					randomDouble(dropVelocityMin.getY(), dropVelocityMax.getY()), //
-					randomDouble(dropVelocityMin.getZ(), dropVelocityMax.getZ()));
+					EFFECTS_RND.nextDouble(dropVelocityMin.getX(), dropVelocityMax.getX()), //
+					EFFECTS_RND.nextDouble(dropVelocityMin.getY(), dropVelocityMax.getY()), //
+					EFFECTS_RND.nextDouble(dropVelocityMin.getZ(), dropVelocityMax.getZ()));
 			particleGroup.getChildren().add(drop);
 		}
 		Logger.trace("{} drops created", particleGroup.getChildren().size());
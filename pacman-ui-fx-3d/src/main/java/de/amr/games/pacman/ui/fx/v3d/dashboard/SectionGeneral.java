@@ -5,6 +5,9 @@ See file LICENSE in repository root directory for details.
 package de.amr.games.pacman.ui.fx.v3d.dashboard;
 
 import de.amr.games.pacman.ui.fx.PacManGames2dApp;
+import de.amr.games.pacman.ui.fx.scene2d.GameScene2D;
+import de.amr.games.pacman.ui.fx.util.FrameTimeHistogram;
+import de.amr.games.pacman.ui.fx.util.GameClock;
 import de.amr.games.pacman.ui.fx.util.Ufx;
 import de.amr.games.pacman.ui.fx.v3d.PacManGames3dApp;
 import de.amr.games.pacman.ui.fx.v3d.PacManGames3dUI;
@@ -28,6 +31,12 @@ public class SectionGeneral extends Section {
 	private final CheckBox cbPoliticallyCorrect;
 	private final CheckBox cbDebugUI;
 	private final CheckBox cbTimeMeasured;
+	private final CheckBox cbFixedTimestep;
+	private final CheckBox cbSimulationThread;
+	private final CheckBox cbTurbo;
+	private final CheckBox cbSoftwareRendering;
+	private final ComboBox<GameClock.OverloadPolicy> comboOverloadPolicy;
+	private final Spinner<Integer> spinnerMaxUpdatesPerPulse;
 	private final ImageView iconPlay;
 	private final ImageView iconStop;
 	private final ImageView iconStep;
@@ -69,12 +78,56 @@ public class SectionGeneral extends Section {
 		addInfo("",
 				() -> String.format("Target %dHz Actual %dHz", ui.clock().targetFrameratePy.get(), ui.clock().getFPS()));
 
+		addInfo("Render Rate", () -> String.format("%dHz", ui.clock().getRenderFPS()));
+
 		addInfo("Total Updates", () -> ui.clock().getUpdateCount());
 
+		cbTurbo = addCheckBox("Turbo " + GameClock.DEFAULT_TURBO_FACTOR + "x", ui::toggleTurbo);
+
 		cbUsePlayScene3D = addCheckBox("3D Play Scene", ui::toggle2D3D);
 		cbPoliticallyCorrect = addCheckBox("Woke Pussy Mode", () -> Ufx.toggle(PacManGames3dApp.PY_WOKE_PUSSY));
 		cbDebugUI = addCheckBox("Show Debug Info", () -> Ufx.toggle(PacManGames2dApp.PY_SHOW_DEBUG_INFO));
 		cbTimeMeasured = addCheckBox("Time Measured", () -> Ufx.toggle(ui.clock().timeMeasuredPy));
+		addInfo("Update p50/95/99/max", () -> fmtPhaseTimes(ui.clock().updateTimes().snapshot()))
+				.available(() -> ui.clock().timeMeasuredPy.get());
+		addInfo("Render p50/95/99/max", () -> fmtPhaseTimes(ui.clock().renderTimes().snapshot()))
+				.available(() -> ui.clock().timeMeasuredPy.get());
+		cbFixedTimestep = addCheckBox("Fixed Timestep", () -> Ufx.toggle(ui.clock().fixedTimestepPy));
+		cbSimulationThread = addCheckBox("Simulation Thread", () -> Ufx.toggle(ui.clock().simulationThreadPy));
+		comboOverloadPolicy = addComboBox("Overload Policy", GameClock.OverloadPolicy.values());
+		comboOverloadPolicy.setOnAction(e -> ui.clock().overloadPolicyPy.set(comboOverloadPolicy.getValue()));
+		spinnerMaxUpdatesPerPulse = addSpinner("Max Updates/Frame", 1, 20, ui.clock().getMaxUpdatesPerPulse());
+		spinnerMaxUpdatesPerPulse.valueProperty()
+				.addListener((obs, oldVal, newVal) -> ui.clock().maxUpdatesPerPulsePy.set(newVal.intValue()));
+		addInfo("Skipped Frames", () -> ui.clock().getSkippedFrames());
+		addInfo("Draw Commands", this::fmtDrawCommands)
+				.available(() -> ui.currentScene().isPresent() && ui.currentScene().get() instanceof GameScene2D);
+		cbSoftwareRendering = addCheckBox("Software Rendering",
+				() -> Ufx.toggle(PacManGames2dApp.PY_SOFTWARE_RENDERING));
+		addInfo("Software Renderer", this::fmtSoftwareRenderer)
+				.available(() -> PacManGames2dApp.PY_SOFTWARE_RENDERING.get()
+						&& ui.gamePage().softwareRenderView().isPresent());
+	}
+
+	private String fmtDrawCommands() {
+		if (ui.currentScene().isPresent() && ui.currentScene().get() instanceof GameScene2D scene2D) {
+			var commands = scene2D.actorsDrawCommands();
+			return String.format("%d, state changes %d (unsorted %d), reused %d", commands.commandCount(),
+					commands.stateChanges(), commands.unsortedStateChanges(), commands.reusedFrames());
+		}
+		return "";
+	}
+
+	private String fmtSoftwareRenderer() {
+		return ui.gamePage().softwareRenderView()
+				.map(view -> String.format("%.2f ms, frames %d, skipped %d", view.renderMillis(), view.framesRendered(),
+						view.framesSkipped()))
+				.orElse("");
+	}
+
+	private static String fmtPhaseTimes(FrameTimeHistogram.Snapshot times) {
+		return String.format("%.2f/%.2f/%.2f/%.2f ms", times.p50() / 1e6, times.p95() / 1e6, times.p99() / 1e6,
+				times.max() / 1e6);
 	}
 
 	@Override
@@ -88,6 +141,12 @@ public class SectionGeneral extends Section {
 		cbUsePlayScene3D.setSelected(PacManGames3dApp.PY_3D_ENABLED.get());
 		cbPoliticallyCorrect.setSelected(PacManGames3dApp.PY_WOKE_PUSSY.get());
 		cbTimeMeasured.setSelected(ui.clock().timeMeasuredPy.get());
+		cbFixedTimestep.setSelected(ui.clock().fixedTimestepPy.get());
+		cbSimulationThread.setSelected(ui.clock().simulationThreadPy.get());
+		cbTurbo.setSelected(ui.clock().isTurbo());
+		comboOverloadPolicy.setValue(ui.clock().getOverloadPolicy());
+		spinnerMaxUpdatesPerPulse.getValueFactory().setValue(ui.clock().getMaxUpdatesPerPulse());
 		cbDebugUI.setSelected(PacManGames2dApp.PY_SHOW_DEBUG_INFO.get());
+		cbSoftwareRendering.setSelected(PacManGames2dApp.PY_SOFTWARE_RENDERING.get());
 	}
 }
\ No newline at end of file
@@ -69,6 +69,7 @@ public class GameLevel3D {
 				pac3D             = Pac3D.createMsPacMan3D(pacModel3D, theme, level.pac());
 				ghosts3D          = level.ghosts().map(ghost -> createGhost3D(ghost, ghostModel3D, theme)).toArray(Ghost3D[]::new);
 				livesCounter3D    = new LivesCounter3D(() -> Pac3D.createMsPacManGroup(pacModel3D, theme), true);
+				prepareSubImages((SpritesheetMsPacManGame) spritesheet);
 			}
 			case PACMAN -> {
 				var foodColor     = theme.color("pacman.maze.foodColor");
@@ -79,6 +80,7 @@ public class GameLevel3D {
 				pac3D             = Pac3D.createPacMan3D(pacModel3D, theme, level.pac());
 				ghosts3D          = level.ghosts().map(ghost -> createGhost3D(ghost, ghostModel3D, theme)).toArray(Ghost3D[]::new);
 				livesCounter3D    = new LivesCounter3D(() -> Pac3D.createPacManGroup(pacModel3D, theme), false);
+				prepareSubImages((SpritesheetPacManGame) spritesheet);
 			}
 			default -> throw new IllegalGameVariantException(level.game().variant());
 		}
@@ -116,6 +118,21 @@ public class GameLevel3D {
 		livesCounter3D.drawModePy.bind(PacManGames3dApp.PY_3D_DRAW_MODE);
 	}
 
+	// bonus and ghost number images are needed during play, avoid creating them when the first bonus or ghost is eaten
+	private void prepareSubImages(SpritesheetMsPacManGame ss) {
+		for (int symbol = 0; symbol < 7; ++symbol) {
+			ss.prepareSubImages(ss.bonusSymbolSprite(symbol), ss.bonusValueSprite(symbol));
+		}
+		ss.prepareSubImages(ss.ghostNumberSprites());
+	}
+
+	private void prepareSubImages(SpritesheetPacManGame ss) {
+		for (int symbol = 0; symbol < 8; ++symbol) {
+			ss.prepareSubImages(ss.bonusSymbolSprite(symbol), ss.bonusValueSprite(symbol));
+		}
+		ss.prepareSubImages(ss.ghostNumberSprites());
+	}
+
 	private PointLight createPacLight(Pac3D pac3D) {
 		var light = new PointLight();
 		light.setColor(Color.rgb(255, 255, 0, 0.75));
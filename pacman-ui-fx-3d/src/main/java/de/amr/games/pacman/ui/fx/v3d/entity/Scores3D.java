@@ -32,6 +32,12 @@ public class Scores3D {
 	private Font font = Font.font("Courier", 12);
 	private boolean pointsDisplayed = true;
 
+	// displayed values, texts are only changed when these change
+	private int scorePoints = -1;
+	private int scoreLevelNumber = -1;
+	private int highScorePoints = -1;
+	private int highScoreLevelNumber = -1;
+
 	public Scores3D(Font font) {
 		requireNonNull(font);
 
@@ -65,6 +71,7 @@ public class Scores3D {
 		txtScore.setFill(color);
 		txtScore.setText(text);
 		pointsDisplayed = false;
+		scorePoints = -1;
 	}
 
 	public void setShowPoints(boolean show) {
@@ -77,15 +84,28 @@ public class Scores3D {
 		txtScoreTitle.setFill(titleColor);
 		txtScoreTitle.setFont(font);
 		if (pointsDisplayed) {
+			var score = level.game().score();
 			txtScore.setFont(font);
-			txtScore.setText(String.format("%7d L%d", level.game().score().points(), level.game().score().levelNumber()));
 			txtScore.setFill(Color.YELLOW);
+			if (score.points() != scorePoints || score.levelNumber() != scoreLevelNumber) {
+				scorePoints = score.points();
+				scoreLevelNumber = score.levelNumber();
+				txtScore.setText(scoreText(scorePoints, scoreLevelNumber));
+			}
 		}
 		txtHiscoreTitle.setFill(titleColor);
 		txtHiscoreTitle.setFont(font);
 		txtHiscore.setFill(scoreColor);
 		txtHiscore.setFont(font);
-		txtHiscore
-				.setText(String.format("%7d L%d", level.game().highScore().points(), level.game().highScore().levelNumber()));
+		var highScore = level.game().highScore();
+		if (highScore.points() != highScorePoints || highScore.levelNumber() != highScoreLevelNumber) {
+			highScorePoints = highScore.points();
+			highScoreLevelNumber = highScore.levelNumber();
+			txtHiscore.setText(scoreText(highScorePoints, highScoreLevelNumber));
+		}
+	}
+
+	private static String scoreText(int points, int levelNumber) {
+		return String.format("%7d L%d", points, levelNumber);
 	}
 }
\ No newline at end of file
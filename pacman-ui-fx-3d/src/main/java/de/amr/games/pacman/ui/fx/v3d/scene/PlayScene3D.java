@@ -47,6 +47,7 @@ import java.util.Optional;
 import java.util.stream.Stream;
 
 import static de.amr.games.pacman.lib.Globals.*;
+import static de.amr.games.pacman.ui.fx.util.Ufx.EFFECTS_RND;
 import static de.amr.games.pacman.ui.fx.util.Ufx.actionAfterSeconds;
 import static de.amr.games.pacman.ui.fx.util.Ufx.pauseSeconds;
 
@@ -199,7 +200,7 @@ public class PlayScene3D implements GameScene {
 
 		if (PacManGames3dApp.PY_3D_FLOOR_TEXTURE_RND.get()) {
 			var names = new String[] { "hexagon", "knobs", "plastic", "wood" };
-			PacManGames3dApp.PY_3D_FLOOR_TEXTURE.set(names[randomInt(0, names.length)]);
+			PacManGames3dApp.PY_3D_FLOOR_TEXTURE.set(names[EFFECTS_RND.nextInt(names.length)]);
 		}
 		Logger.info("3D game level {} created.", level.number());
 	}
@@ -315,7 +316,7 @@ public class PlayScene3D implements GameScene {
 			level3D.pac3D().init();
 			Stream.of(level3D.ghosts3D()).forEach(Ghost3D::init);
 			var msg = "READY!";
-			if (!PacManGames3dApp.PY_WOKE_PUSSY.get() && inPercentOfCases(5)) {
+			if (!PacManGames3dApp.PY_WOKE_PUSSY.get() && EFFECTS_RND.nextInt(100) < 5) {
 				msg = pickFunnyReadyMessage(game().variant());
 			}
 			readyMessageText3D.setText(msg);
@@ -441,7 +442,7 @@ public class PlayScene3D implements GameScene {
 
 	private Animation createLevelChangeAnimation() {
 		var rotation = new RotateTransition(Duration.seconds(1.5), level3D.root());
-		rotation.setAxis(RND.nextBoolean() ? Rotate.X_AXIS : Rotate.Z_AXIS);
+		rotation.setAxis(EFFECTS_RND.nextBoolean() ? Rotate.X_AXIS : Rotate.Z_AXIS);
 		rotation.setFromAngle(0);
 		rotation.setToAngle(360);
 		rotation.setInterpolator(Interpolator.LINEAR);